@@ -0,0 +1,116 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.benchmarks;
+
+import info.magnolia.jcr.util.ContentMap;
+import info.magnolia.rendering.template.RenderableDefinition;
+import info.magnolia.templating.functions.TemplatingFunctions;
+import nl.tricode.magnolia.blogs.templates.BlogFilter;
+import nl.tricode.magnolia.blogs.templates.BlogRenderableDefinition;
+import nl.tricode.magnolia.blogs.templates.CloudMap;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jcr.RepositoryException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Model methods used by the blog overview components. Every invocation renders a new request with a new model,
+ * so results memoized by the model are not reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlogRenderableDefinitionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int blogCount;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private final BlogRepository repository = new BlogRepository();
+    private RenderableDefinition definition;
+    private TemplatingFunctions templatingFunctions;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        repository.start(blogCount, indexed);
+        definition = mock(RenderableDefinition.class);
+        templatingFunctions = mock(TemplatingFunctions.class, Mockito.CALLS_REAL_METHODS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        repository.stop();
+    }
+
+    @Benchmark
+    public List<ContentMap> getBlogs() throws RepositoryException {
+        return createModel(Collections.<String, String>emptyMap()).getBlogs("/", "10");
+    }
+
+    @Benchmark
+    public List<ContentMap> getBlogsOfYear() throws RepositoryException {
+        final String year = String.valueOf(Calendar.getInstance().get(Calendar.YEAR) - 1);
+        return createModel(Collections.singletonMap(BlogFilter.YEAR, year)).getBlogs("/", "10");
+    }
+
+    @Benchmark
+    public int getBlogCount() throws RepositoryException {
+        return createModel(Collections.<String, String>emptyMap()).getBlogCount("/", true);
+    }
+
+    @Benchmark
+    public List<CloudMap> getCategoryCloud() {
+        return createModel(Collections.<String, String>emptyMap()).getCategoryCloud();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getArchivedDates() {
+        return createModel(Collections.<String, String>emptyMap()).getArchivedDates();
+    }
+
+    private BlogRenderableDefinition<RenderableDefinition> createModel(Map<String, String> parameters) {
+        repository.newRequest(parameters);
+        return new BlogRenderableDefinition<>(repository.getContent(), definition, null,
+                templatingFunctions, repository.getBlogIndex(), repository.getFragmentCache(), repository.getCategoryClosure());
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.benchmarks;
+
+import info.magnolia.context.Context;
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.NodeTypes;
+import info.magnolia.module.model.ModuleDefinition;
+import info.magnolia.module.model.RepositoryDefinition;
+import info.magnolia.module.model.reader.BetwixtModuleDefinitionReader;
+import info.magnolia.objectfactory.Components;
+import info.magnolia.repository.RepositoryManager;
+import info.magnolia.test.ComponentsTestUtil;
+import info.magnolia.test.RepositoryTestCase;
+import info.magnolia.test.mock.MockWebContext;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
+import nl.tricode.magnolia.blogs.cache.FragmentCache;
+import nl.tricode.magnolia.blogs.generator.DatasetGenerator;
+import nl.tricode.magnolia.blogs.generator.DatasetWriter;
+import nl.tricode.magnolia.blogs.generator.SessionDatasetWriter;
+import nl.tricode.magnolia.blogs.index.BlogIndex;
+import nl.tricode.magnolia.blogs.index.BlogSearchIndex;
+import nl.tricode.magnolia.blogs.index.CategoryClosure;
+import nl.tricode.magnolia.blogs.metrics.QueryMetrics;
+import nl.tricode.magnolia.blogs.service.BlogServiceImpl;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Embedded Jackrabbit repository with the workspaces and node types of the blog module and its dependencies,
+ * seeded by the {@link DatasetGenerator} with a fixed, reproducible set of blogs, categories and authors.
+ * The module components are created like the module does, either stopped so every call queries the repository,
+ * or started so calls are answered from the in-memory indexes and caches.
+ */
+public class BlogRepository extends RepositoryTestCase {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long INDEX_TIMEOUT = 600000;
+
+    private final List<String> blogIdentifiers = new ArrayList<>();
+    private final List<String> categoryIdentifiers = new ArrayList<>();
+    private Node content;
+
+    private ContentVersionTracker contentVersionTracker;
+    private BlogIndex blogIndex;
+    private BlogSearchIndex blogSearchIndex;
+    private FragmentCache fragmentCache;
+    private CategoryClosure categoryClosure;
+    private BlogServiceImpl blogService;
+
+    /**
+     * Start the repository, add the given number of blogs and create the module components.
+     *
+     * @param blogCount Number of blogs
+     * @param indexed   <code>true</code> to start the indexes and caches of the module
+     * @throws Exception When the repository can not be started or seeded
+     */
+    public void start(int blogCount, boolean indexed) throws Exception {
+        setUp();
+        registerModuleRepositories();
+
+        final DatasetGenerator generator = new DatasetGenerator();
+        generator.setBlogCount(blogCount);
+        try (DatasetWriter writer = new SessionDatasetWriter(BATCH_SIZE) {
+            @Override
+            public String startNode(String name, String nodeType, String identifier, Map<String, Object> properties) throws RepositoryException {
+                final String storedIdentifier = super.startNode(name, nodeType, identifier, properties);
+                if (BlogsNodeTypes.Blog.NAME.equals(nodeType)) {
+                    blogIdentifiers.add(storedIdentifier);
+                }
+                return storedIdentifier;
+            }
+        }) {
+            generator.generate(writer);
+        }
+        categoryIdentifiers.addAll(generator.getCategoryIdentifiers());
+
+        final Session website = MgnlContext.getJCRSession("website");
+        content = website.getRootNode().addNode("component", NodeTypes.Component.NAME);
+        content.setProperty("maxResultsPerPage", "10");
+        website.save();
+
+        createComponents(indexed);
+    }
+
+    /**
+     * Stop the module components and shut down the repository.
+     *
+     * @throws Exception When the repository can not be shut down
+     */
+    public void stop() throws Exception {
+        blogSearchIndex.stop();
+        blogIndex.stop();
+        contentVersionTracker.stop();
+        tearDown();
+    }
+
+    /**
+     * Start a new request: drop the request scoped attributes and set the request parameters.
+     *
+     * @param parameters Request parameters
+     */
+    public void newRequest(Map<String, String> parameters) {
+        final MockWebContext context = (MockWebContext) MgnlContext.getWebContext();
+        for (String name : new ArrayList<>(context.getAttributes(Context.LOCAL_SCOPE).keySet())) {
+            context.removeAttribute(name, Context.LOCAL_SCOPE);
+        }
+        context.setParameters(new HashMap<>(parameters));
+
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        doReturn("GET").when(request).getMethod();
+        doReturn("/blogs.html").when(request).getRequestURI();
+        context.setRequest(request);
+        context.setResponse(mock(HttpServletResponse.class));
+    }
+
+    /**
+     * @return Component node to render the blog models for
+     */
+    public Node getContent() {
+        return content;
+    }
+
+    public BlogIndex getBlogIndex() {
+        return blogIndex;
+    }
+
+    public BlogSearchIndex getBlogSearchIndex() {
+        return blogSearchIndex;
+    }
+
+    public FragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    public CategoryClosure getCategoryClosure() {
+        return categoryClosure;
+    }
+
+    public BlogServiceImpl getBlogService() {
+        return blogService;
+    }
+
+    public List<String> getBlogIdentifiers() {
+        return blogIdentifiers;
+    }
+
+    public List<String> getCategoryIdentifiers() {
+        return categoryIdentifiers;
+    }
+
+    /**
+     * @param index Index, wrapped around
+     * @return A word used in the blog texts, for search benchmarks
+     */
+    public static String getWord(int index) {
+        return DatasetGenerator.VOCABULARY.get(Math.floorMod(index, DatasetGenerator.VOCABULARY.size()));
+    }
+
+    /**
+     * Create the module components and register them for the code looking them up.
+     * When indexed, the components are started in the order of the module class and this method waits for the first
+     * build of the blog index.
+     */
+    private void createComponents(boolean indexed) throws InterruptedException {
+        contentVersionTracker = new ContentVersionTracker();
+        blogIndex = new BlogIndex();
+        blogSearchIndex = new BlogSearchIndex(blogIndex);
+        fragmentCache = new FragmentCache(contentVersionTracker);
+        categoryClosure = new CategoryClosure(contentVersionTracker);
+        blogService = new BlogServiceImpl(blogIndex, contentVersionTracker);
+        // Queries on the large data sets are slow by design, logging each of them would be measured as well
+        final QueryMetrics queryMetrics = new QueryMetrics();
+        queryMetrics.setSlowQueryThresholdMillis(Long.MAX_VALUE);
+
+        ComponentsTestUtil.setInstance(ContentVersionTracker.class, contentVersionTracker);
+        ComponentsTestUtil.setInstance(BlogIndex.class, blogIndex);
+        ComponentsTestUtil.setInstance(BlogSearchIndex.class, blogSearchIndex);
+        ComponentsTestUtil.setInstance(FragmentCache.class, fragmentCache);
+        ComponentsTestUtil.setInstance(CategoryClosure.class, categoryClosure);
+        ComponentsTestUtil.setInstance(QueryMetrics.class, queryMetrics);
+
+        if (indexed) {
+            contentVersionTracker.start();
+            blogSearchIndex.start();
+            blogIndex.start();
+
+            final long deadline = System.currentTimeMillis() + INDEX_TIMEOUT;
+            while (!blogIndex.isReady() || !blogSearchIndex.isReady()) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Blog index not built within " + INDEX_TIMEOUT + " ms");
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Register the node types and workspaces of all module descriptors on the class path, like the module manager does.
+     */
+    private static void registerModuleRepositories() throws Exception {
+        final RepositoryManager repositoryManager = Components.getComponent(RepositoryManager.class);
+        final Map<String, ModuleDefinition> modules = new BetwixtModuleDefinitionReader().readAll();
+        for (ModuleDefinition module : modules.values()) {
+            for (RepositoryDefinition repository : module.getRepositories()) {
+                if (StringUtils.isNotBlank(repository.getNodeTypeFile())) {
+                    repositoryManager.getRepositoryProvider(repository.getName()).registerNodeTypes(repository.getNodeTypeFile());
+                }
+                for (String workspace : repository.getWorkspaces()) {
+                    if (!repositoryManager.hasWorkspace(workspace)) {
+                        repositoryManager.loadWorkspace(repository.getName(), workspace);
+                    }
+                }
+            }
+        }
+    }
+}
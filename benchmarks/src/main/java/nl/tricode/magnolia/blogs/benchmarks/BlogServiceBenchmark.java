@@ -0,0 +1,97 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.benchmarks;
+
+import nl.tricode.magnolia.blogs.exception.UnableToGetBlogException;
+import nl.tricode.magnolia.blogs.exception.UnableToGetLatestBlogsException;
+import nl.tricode.magnolia.blogs.service.BlogItemsWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listings of the blog service. The pages and blogs asked for rotate, so the listing cache of the service is
+ * exercised with both hits and misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlogServiceBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES = 20;
+
+    @Param({"1000", "10000", "100000"})
+    private int blogCount;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private final BlogRepository repository = new BlogRepository();
+    private List<String> blogIdentifiers;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        repository.start(blogCount, indexed);
+        repository.newRequest(Collections.<String, String>emptyMap());
+        blogIdentifiers = repository.getBlogIdentifiers();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        repository.stop();
+    }
+
+    @Benchmark
+    public BlogItemsWrapper getLatestBlogItems() throws UnableToGetLatestBlogsException {
+        final int page = 1 + invocation++ % PAGES;
+        return repository.getBlogService().getLatestBlogItems("/", page, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public BlogItemsWrapper getLatestBlogItemsOfCategory() throws UnableToGetLatestBlogsException {
+        final List<String> categories = repository.getCategoryIdentifiers();
+        final String category = categories.get(invocation++ % categories.size());
+        return repository.getBlogService().getLatestBlogItems("/", 1, PAGE_SIZE, category);
+    }
+
+    @Benchmark
+    public BlogItemsWrapper getRelatedBlogItemsById() throws UnableToGetBlogException, UnableToGetLatestBlogsException {
+        final String id = blogIdentifiers.get(invocation++ % blogIdentifiers.size());
+        return repository.getBlogService().getRelatedBlogItemsById(id, 5);
+    }
+}
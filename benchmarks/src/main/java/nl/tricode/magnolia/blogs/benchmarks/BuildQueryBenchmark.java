@@ -0,0 +1,58 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.benchmarks;
+
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.util.BlogJcrUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the blog queries, without executing them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildQueryBenchmark {
+
+    private String path = "/blogs";
+    private String customFilters = "AND contains(p.categories, 'c0a8b1f2-0000-0000-0000-000000000001') ";
+
+    @Benchmark
+    public String buildQuery() {
+        return BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME);
+    }
+
+    @Benchmark
+    public String buildFilteredQuery() {
+        return BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, true, customFilters);
+    }
+}
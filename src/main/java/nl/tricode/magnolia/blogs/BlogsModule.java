@@ -0,0 +1,96 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs;
+
+import info.magnolia.module.ModuleLifecycle;
+import info.magnolia.module.ModuleLifecycleContext;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
+import nl.tricode.magnolia.blogs.index.BlogIndex;
+import nl.tricode.magnolia.blogs.index.BlogSearchIndex;
+import nl.tricode.magnolia.blogs.metrics.QueryMetrics;
+import nl.tricode.magnolia.blogs.metrics.RenderMetrics;
+
+import javax.inject.Inject;
+
+/**
+ * Blog module class, starts and stops the module wide components.
+ * The in-memory search index is optional and enabled by setting <code>searchIndexEnabled</code> to
+ * <code>true</code> in the module configuration.
+ * Queries taking longer than <code>slowQueryThreshold</code> milliseconds are logged as slow queries.
+ */
+public class BlogsModule implements ModuleLifecycle {
+
+    private final BlogIndex blogIndex;
+    private final ContentVersionTracker contentVersionTracker;
+    private final BlogSearchIndex blogSearchIndex;
+    private final QueryMetrics queryMetrics;
+    private final RenderMetrics renderMetrics;
+
+    private boolean searchIndexEnabled;
+    private long slowQueryThreshold = QueryMetrics.DEFAULT_SLOW_QUERY_THRESHOLD;
+
+    @Inject
+    public BlogsModule(BlogIndex blogIndex, ContentVersionTracker contentVersionTracker, BlogSearchIndex blogSearchIndex,
+                       QueryMetrics queryMetrics, RenderMetrics renderMetrics) {
+        this.blogIndex = blogIndex;
+        this.contentVersionTracker = contentVersionTracker;
+        this.blogSearchIndex = blogSearchIndex;
+        this.queryMetrics = queryMetrics;
+        this.renderMetrics = renderMetrics;
+    }
+
+    @Override
+    public void start(ModuleLifecycleContext moduleLifecycleContext) {
+        queryMetrics.setSlowQueryThresholdMillis(slowQueryThreshold);
+        queryMetrics.start();
+        renderMetrics.start();
+        contentVersionTracker.start();
+        if (searchIndexEnabled) {
+            blogSearchIndex.start();
+        } else {
+            blogSearchIndex.stop();
+        }
+        blogIndex.start();
+    }
+
+    @Override
+    public void stop(ModuleLifecycleContext moduleLifecycleContext) {
+        blogSearchIndex.stop();
+        blogIndex.stop();
+        contentVersionTracker.stop();
+        queryMetrics.stop();
+        renderMetrics.stop();
+    }
+
+    public boolean isSearchIndexEnabled() {
+        return searchIndexEnabled;
+    }
+
+    public void setSearchIndexEnabled(boolean searchIndexEnabled) {
+        this.searchIndexEnabled = searchIndexEnabled;
+    }
+
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+}
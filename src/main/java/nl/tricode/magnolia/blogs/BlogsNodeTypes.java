@@ -40,11 +40,13 @@ public final class BlogsNodeTypes {
         // Property Name
         public static final String PROPERTY_TITLE = "title";
         public static final String PROPERTY_MESSAGE = "message";
+        public static final String PROPERTY_SUMMARY = "summary";
         public static final String PROPERTY_AUTHOR = "author";
         public static final String PROPERTY_COMMENTS_ENABLED = "comments";
         public static final String PROPERTY_CATEGORIES = "categories";
         public static final String PROPERTY_PERMLINK = "permaLink";
         public static final String PROPERTY_INITIALACTIVATIONDATE = "initialActivationDate";
+        public static final String PROPERTY_PUBLISHDATE = "publishDate";
 
         private Blog() {
             // Prevent instantiating this class
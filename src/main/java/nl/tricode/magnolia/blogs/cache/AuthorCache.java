@@ -0,0 +1,94 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import info.magnolia.jcr.util.NodeUtil;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.RoundTrips;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.util.Optional;
+
+/**
+ * Cache of blog authors by contact identifier.
+ * The cache is bounded and cleared whenever the contacts workspace changes.
+ */
+public class AuthorCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthorCache.class);
+
+    private static final long MAXIMUM_SIZE = 10000;
+
+    private final ContentVersionTracker contentVersionTracker;
+    private final Cache<String, Optional<AuthorSummary>> authors = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    @Inject
+    public AuthorCache(ContentVersionTracker contentVersionTracker) {
+        this.contentVersionTracker = contentVersionTracker;
+        contentVersionTracker.addListener(BlogRepositoryConstants.CONTACTS, authors::invalidateAll);
+    }
+
+    /**
+     * @param authorId Contact identifier
+     * @return Author details or <code>null</code> when the author does not exist
+     */
+    public AuthorSummary get(String authorId) {
+        if (StringUtils.isEmpty(authorId)) {
+            return null;
+        }
+
+        Optional<AuthorSummary> author = authors.getIfPresent(authorId);
+        if (author == null) {
+            final long version = contentVersionTracker.getVersion(BlogRepositoryConstants.CONTACTS);
+            author = load(authorId);
+            // Only keep what was read when the contacts did not change in the meantime
+            if (version == contentVersionTracker.getVersion(BlogRepositoryConstants.CONTACTS)) {
+                authors.put(authorId, author);
+            }
+        }
+        return author.orElse(null);
+    }
+
+    /**
+     * Remove all cached authors.
+     */
+    public void invalidateAll() {
+        authors.invalidateAll();
+    }
+
+    private static Optional<AuthorSummary> load(String authorId) {
+        try {
+            RoundTrips.increment();
+            final Node author = NodeUtil.getNodeByIdentifier(BlogRepositoryConstants.CONTACTS, authorId);
+            return author == null ? Optional.empty() : Optional.of(AuthorSummary.create(author));
+        } catch (RepositoryException e) {
+            LOGGER.warn("Referenced authorId not found: {}", authorId);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import info.magnolia.contacts.app.ContactsNodeTypes;
+import info.magnolia.jcr.util.PropertyUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.io.Serializable;
+
+/**
+ * Immutable display details of a blog author (contact), as kept by the {@link AuthorCache}.
+ */
+public final class AuthorSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String identifier;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+
+    private AuthorSummary(String identifier, String firstName, String lastName, String email) {
+        this.identifier = identifier;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+    }
+
+    /**
+     * Read the display details of the given contact node.
+     *
+     * @param contact Contact node
+     * @return Author summary
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    public static AuthorSummary create(Node contact) throws RepositoryException {
+        return new AuthorSummary(
+                contact.getIdentifier(),
+                PropertyUtil.getString(contact, ContactsNodeTypes.Contact.PROPERTY_FIRST_NAME, StringUtils.EMPTY),
+                PropertyUtil.getString(contact, ContactsNodeTypes.Contact.PROPERTY_LAST_NAME, StringUtils.EMPTY),
+                PropertyUtil.getString(contact, ContactsNodeTypes.Contact.PROPERTY_EMAIL, StringUtils.EMPTY));
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return First name and last name separated by a space
+     */
+    public String getName() {
+        return (firstName + " " + lastName).trim();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import info.magnolia.cms.beans.config.ServerConfiguration;
+import info.magnolia.cms.security.User;
+import info.magnolia.cms.security.UserManager;
+import info.magnolia.context.MgnlContext;
+import info.magnolia.context.WebContext;
+import info.magnolia.objectfactory.Components;
+import nl.tricode.magnolia.blogs.index.BlogIndex;
+import nl.tricode.magnolia.blogs.templates.BlogFilter;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * Conditional GET support for the pages rendering blog components.
+ * Responses are validated by an ETag built from the versions of the {@link ContentVersionTracker} workspaces, the
+ * request parameters the components filter on, the user, as listings leave out the blogs the user may not read, and
+ * the next publish date of the {@link BlogIndex}, as listings leave out the blogs that are not published yet. The blog components register their page in the {@link ValidatedPages}
+ * and set the validators while rendering; later requests for the page are checked by the
+ * {@link nl.tricode.magnolia.blogs.filters.ConditionalGetFilter} before rendering, so unchanged pages are answered
+ * with <code>304 Not Modified</code> without rendering or querying anything.
+ */
+public final class ConditionalGet {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConditionalGet.class);
+
+    /**
+     * Request parameters the blog components render differently for.
+     */
+    public static final List<String> VALIDATED_PARAMETERS = BlogFilter.PARAMETERS;
+
+    private static final String VALIDATED_ATTRIBUTE = ConditionalGet.class.getName() + ".validated";
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Check a request for a page known to render blog components before it is rendered: set the validators on the
+     * response and check them against the conditional headers of the request.
+     *
+     * @param request  Current request
+     * @param response Current response
+     * @return <code>true</code> when the status is set to <code>304 Not Modified</code> and rendering can be skipped
+     */
+    public static boolean isNotModified(HttpServletRequest request, HttpServletResponse response) {
+        final ValidatedPages validatedPages = Components.getComponent(ValidatedPages.class);
+        if (validatedPages == null || !validatedPages.contains(request.getRequestURI())) {
+            return false;
+        }
+        final String etag = setValidators(request, response);
+        if (etag == null || !matches(request, etag)) {
+            return false;
+        }
+        LOGGER.debug("Not modified: {} {}", request.getRequestURI(), etag);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Register the page of a rendering blog component, and set the validators on the response when the request was
+     * not checked before rendering. The status is never changed, as the page is being rendered already.
+     *
+     * @param webContext Current web context
+     */
+    public static void register(WebContext webContext) {
+        final HttpServletRequest request = webContext.getRequest();
+        if (request.getAttribute(VALIDATED_ATTRIBUTE) != null) {
+            return;
+        }
+        if (setValidators(request, webContext.getResponse()) != null) {
+            final ValidatedPages validatedPages = Components.getComponent(ValidatedPages.class);
+            if (validatedPages != null) {
+                validatedPages.add(request.getRequestURI());
+            }
+        }
+    }
+
+    /**
+     * @return ETag of the response, <code>null</code> when the response may not be cached
+     */
+    private static String setValidators(HttpServletRequest request, HttpServletResponse response) {
+        request.setAttribute(VALIDATED_ATTRIBUTE, Boolean.TRUE);
+        final ContentVersionTracker tracker = Components.getComponent(ContentVersionTracker.class);
+        final BlogIndex blogIndex = Components.getComponent(BlogIndex.class);
+        if (tracker == null || !tracker.isStarted() || blogIndex == null || !blogIndex.isReady() || isAuthorInstance() ||
+                response.isCommitted() || !isGetOrHead(request)) {
+            // Do not cache this response!
+            // More info: http://documentation.magnolia-cms.com/display/DOCS/Cache+module#Cachemodule-Cacheheadernegotiation
+            response.setHeader("Cache-Control", "no-cache");
+            return null;
+        }
+
+        final long now = System.currentTimeMillis();
+        final String userName = getUserName();
+        final String etag = createETag(request, tracker, userName, blogIndex.getNextPublishDate(now));
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", getLastModified(tracker, blogIndex, now));
+        // Shared caches must not serve the page rendered for a user to anyone else
+        response.setHeader("Cache-Control", (isAnonymous(userName) ? "" : "private, ") + "max-age=0, must-revalidate");
+        return etag;
+    }
+
+    private static boolean matches(HttpServletRequest request, String etag) {
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        // The date does not tell the users apart, only anonymous requests are validated by it
+        final long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        return ifModifiedSince != -1 && isAnonymous(getUserName()) && getLastModified(Components.getComponent(ContentVersionTracker.class),
+                Components.getComponent(BlogIndex.class), System.currentTimeMillis()) <= ifModifiedSince;
+    }
+
+    /**
+     * @return Last change of the tracked workspaces, or the last publish date that passed after it
+     */
+    private static long getLastModified(ContentVersionTracker tracker, BlogIndex blogIndex, long now) {
+        return Math.max(tracker.getLastModified(), blogIndex.getLastPublishDate(now)) / 1000 * 1000;
+    }
+
+    private static String createETag(HttpServletRequest request, ContentVersionTracker tracker, String userName, long nextPublishDate) {
+        final StringBuilder validator = new StringBuilder(request.getRequestURI());
+        validator.append('|').append(userName).append('|').append(nextPublishDate);
+        for (String workspace : ContentVersionTracker.WORKSPACES) {
+            validator.append('|').append(tracker.getVersion(workspace));
+        }
+        for (String parameter : VALIDATED_PARAMETERS) {
+            validator.append('|').append(parameter).append('=').append(StringUtils.defaultString(request.getParameter(parameter)));
+        }
+        return "W/\"" + Hashing.murmur3_128().hashString(validator, Charsets.UTF_8) + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        final String opaqueTag = StringUtils.removeStart(etag, "W/");
+        for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            final String tag = candidate.trim();
+            if ("*".equals(tag) || opaqueTag.equals(StringUtils.removeStart(tag, "W/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Name of the current user, <code>null</code> when there is none
+     */
+    static String getUserName() {
+        final User user = MgnlContext.getUser();
+        return user == null ? null : user.getName();
+    }
+
+    static boolean isAnonymous(String userName) {
+        return userName == null || UserManager.ANONYMOUS_USER.equals(userName);
+    }
+
+    private static boolean isGetOrHead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    static boolean isAuthorInstance() {
+        final ServerConfiguration serverConfiguration = Components.getComponent(ServerConfiguration.class);
+        return serverConfiguration != null && serverConfiguration.isAdmin();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import info.magnolia.cms.util.ObservationUtil;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+
+import javax.jcr.observation.EventListener;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a version number per workspace that is increased on every change to the workspace.
+ * Versions start at the time the tracker was created, so they keep increasing over restarts and can be used in
+ * cache validators.
+ */
+public class ContentVersionTracker {
+
+    /**
+     * Workspaces that contribute to rendered blog content, or to the pages holding blog components.
+     */
+    public static final List<String> WORKSPACES = Arrays.asList(BlogRepositoryConstants.COLLABORATION,
+            BlogRepositoryConstants.CATEGORY, BlogRepositoryConstants.CONTACTS, BlogRepositoryConstants.WEBSITE,
+            BlogRepositoryConstants.DAM);
+
+    private final long startTime = System.currentTimeMillis();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, EventListener> listeners = new HashMap<>();
+    private final Map<String, List<Runnable>> changeListeners = new ConcurrentHashMap<>();
+
+    private volatile long lastModified = startTime;
+    private volatile boolean started;
+
+    /**
+     * Register the observation listeners.
+     */
+    public synchronized void start() {
+        for (String workspace : WORKSPACES) {
+            if (!listeners.containsKey(workspace)) {
+                final EventListener listener = events -> changed(workspace);
+                ObservationUtil.registerChangeListener(workspace, "/", listener);
+                listeners.put(workspace, listener);
+            }
+        }
+        started = true;
+    }
+
+    /**
+     * Unregister the observation listeners.
+     */
+    public synchronized void stop() {
+        started = false;
+        for (Map.Entry<String, EventListener> listener : listeners.entrySet()) {
+            ObservationUtil.unregisterChangeListener(listener.getKey(), listener.getValue());
+        }
+        listeners.clear();
+    }
+
+    /**
+     * @return <code>true</code> when changes are being tracked
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @param workspace Workspace name
+     * @return Current version of the workspace
+     */
+    public long getVersion(String workspace) {
+        final AtomicLong version = versions.get(workspace);
+        return version == null ? startTime : version.get();
+    }
+
+    /**
+     * Run the given listener after every change to the workspace.
+     *
+     * @param workspace Workspace name
+     * @param listener  Listener, called from the observation thread
+     */
+    public void addListener(String workspace, Runnable listener) {
+        changeListeners.computeIfAbsent(workspace, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * @return Time in milliseconds of the last change to any of the tracked workspaces
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private void changed(String workspace) {
+        versions.computeIfAbsent(workspace, key -> new AtomicLong(startTime)).incrementAndGet();
+        lastModified = System.currentTimeMillis();
+        for (Runnable listener : changeListeners.getOrDefault(workspace, Collections.emptyList())) {
+            listener.run();
+        }
+    }
+}
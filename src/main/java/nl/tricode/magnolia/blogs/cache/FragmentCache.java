@@ -0,0 +1,114 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import freemarker.template.TemplateDirectiveModel;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cache of rendered template fragments.
+ * Fragments are dropped least recently used first when the cache is full, and all at once when one of the
+ * {@link #INVALIDATING_WORKSPACES} changes.
+ */
+public class FragmentCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FragmentCache.class);
+
+    /**
+     * Workspaces whose content is rendered into the cached fragments, including the website for the links to pages.
+     */
+    public static final List<String> INVALIDATING_WORKSPACES = Arrays.asList(BlogRepositoryConstants.COLLABORATION,
+            BlogRepositoryConstants.CATEGORY, BlogRepositoryConstants.CONTACTS, BlogRepositoryConstants.WEBSITE);
+
+    /**
+     * Maximum number of characters kept in the cache.
+     */
+    private static final long MAXIMUM_WEIGHT = 8L * 1024 * 1024;
+
+    private final ContentVersionTracker contentVersionTracker;
+    private final Cache<String, String> fragments = CacheBuilder.newBuilder()
+            .maximumWeight(MAXIMUM_WEIGHT)
+            .weigher((String key, String fragment) -> key.length() + fragment.length())
+            .build();
+
+    @Inject
+    public FragmentCache(ContentVersionTracker contentVersionTracker) {
+        this.contentVersionTracker = contentVersionTracker;
+        for (String workspace : INVALIDATING_WORKSPACES) {
+            contentVersionTracker.addListener(workspace, fragments::invalidateAll);
+        }
+    }
+
+    /**
+     * @return <code>false</code> when changes are not tracked or on an author instance, where fragments should
+     * always be rendered
+     */
+    public boolean isEnabled() {
+        return contentVersionTracker.isStarted() && !ConditionalGet.isAuthorInstance();
+    }
+
+    /**
+     * Create a directive that writes the cached fragment, or renders its body and caches the result.
+     * The key is extended with the current versions of the {@link #INVALIDATING_WORKSPACES}, so a fragment that was
+     * rendered while content changed is never served for the new content, and with the user, as listings are read
+     * through the session of the user and leave out the blogs the user may not read.
+     *
+     * @param key Key identifying the fragment content
+     * @return FreeMarker directive
+     */
+    public TemplateDirectiveModel createDirective(String key) {
+        if (!isEnabled()) {
+            return (env, params, loopVars, body) -> body.render(env.getOut());
+        }
+
+        final StringBuilder versionedKey = new StringBuilder(key).append('|').append(ConditionalGet.getUserName());
+        for (String workspace : INVALIDATING_WORKSPACES) {
+            versionedKey.append('|').append(contentVersionTracker.getVersion(workspace));
+        }
+        final String fragmentKey = versionedKey.toString();
+
+        return (env, params, loopVars, body) -> {
+            String fragment = fragments.getIfPresent(fragmentKey);
+            if (fragment == null) {
+                final StringWriter writer = new StringWriter();
+                body.render(writer);
+                fragment = writer.toString();
+                fragments.put(fragmentKey, fragment);
+                LOGGER.debug("Cached fragment {}", fragmentKey);
+            }
+            env.getOut().write(fragment);
+        };
+    }
+
+    /**
+     * Remove all cached fragments.
+     */
+    public void invalidateAll() {
+        fragments.invalidateAll();
+    }
+}
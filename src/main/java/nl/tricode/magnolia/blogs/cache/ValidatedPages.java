@@ -0,0 +1,62 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+
+import javax.inject.Inject;
+
+/**
+ * Request URIs of the pages rendering blog components, learned while rendering them, so conditional requests for these
+ * pages can be answered before anything is rendered. Cleared when the website changes, as blog components may have
+ * been removed from a page.
+ */
+public class ValidatedPages {
+
+    /**
+     * Maximum number of pages kept.
+     */
+    private static final long MAXIMUM_PAGES = 10000;
+
+    private final Cache<String, Boolean> pages = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_PAGES)
+            .build();
+
+    @Inject
+    public ValidatedPages(ContentVersionTracker contentVersionTracker) {
+        contentVersionTracker.addListener(BlogRepositoryConstants.WEBSITE, pages::invalidateAll);
+    }
+
+    /**
+     * @param requestUri Request URI of a page rendering blog components
+     */
+    public void add(String requestUri) {
+        pages.put(requestUri, Boolean.TRUE);
+    }
+
+    /**
+     * @param requestUri Request URI
+     * @return <code>true</code> when the page was seen rendering blog components since the website last changed
+     */
+    public boolean contains(String requestUri) {
+        return pages.getIfPresent(requestUri) != null;
+    }
+}
@@ -19,21 +19,21 @@
 package nl.tricode.magnolia.blogs.column;
 
 import com.vaadin.ui.Table;
-import info.magnolia.contacts.app.ContactsNodeTypes;
 import info.magnolia.jcr.util.NodeUtil;
 import info.magnolia.jcr.util.PropertyUtil;
 import info.magnolia.ui.workbench.column.AbstractColumnFormatter;
 import info.magnolia.ui.workbench.column.definition.PropertyColumnDefinition;
 import nl.tricode.magnolia.blogs.BlogsNodeTypes;
-import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.cache.AuthorCache;
+import nl.tricode.magnolia.blogs.cache.AuthorSummary;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import javax.jcr.Item;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
-import java.util.Optional;
 
 /**
  * Column formatter that displays either the name of a contact or a folder.
@@ -44,8 +44,12 @@ public class AuthorNameColumnFormatter extends AbstractColumnFormatter<PropertyC
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthorNameColumnFormatter.class);
 
-    public AuthorNameColumnFormatter(PropertyColumnDefinition definition) {
+    private final AuthorCache authorCache;
+
+    @Inject
+    public AuthorNameColumnFormatter(PropertyColumnDefinition definition, AuthorCache authorCache) {
         super(definition);
+        this.authorCache = authorCache;
     }
 
     @Override
@@ -61,17 +65,9 @@ public class AuthorNameColumnFormatter extends AbstractColumnFormatter<PropertyC
                     final String authorId = PropertyUtil.getString(node, BlogsNodeTypes.Blog.PROPERTY_AUTHOR, StringUtils.EMPTY);
 
                     // Find author in contacts and return first name and last name
-                    if (StringUtils.isNotEmpty(authorId)) {
-                        final Optional<Node> authorOptional = readAuthorDetails(authorId);
-
-                        if (authorOptional.isPresent()) {
-                            final Node author = authorOptional.get();
-                            final StringBuilder nameBuilder = new StringBuilder();
-                            nameBuilder.append(PropertyUtil.getString(author, ContactsNodeTypes.Contact.PROPERTY_FIRST_NAME, StringUtils.EMPTY));
-                            nameBuilder.append(" ");
-                            nameBuilder.append(PropertyUtil.getString(author, ContactsNodeTypes.Contact.PROPERTY_LAST_NAME, StringUtils.EMPTY));
-                            return nameBuilder.toString().trim();
-                        }
+                    final AuthorSummary author = authorCache.get(authorId);
+                    if (author != null) {
+                        return author.getName();
                     }
                 }
             } catch (RepositoryException e) {
@@ -81,14 +77,4 @@ public class AuthorNameColumnFormatter extends AbstractColumnFormatter<PropertyC
 
         return StringUtils.EMPTY;
     }
-
-    private static Optional<Node> readAuthorDetails(final String authorId) {
-        try {
-            return Optional.of(NodeUtil.getNodeByIdentifier(BlogRepositoryConstants.CONTACTS, authorId));
-        } catch (RepositoryException e) {
-            LOGGER.warn("Referenced authorId not found: {}", authorId);
-            return Optional.empty();
-        }
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.commands.activation;
+
+import info.magnolia.commands.CommandsManager;
+import info.magnolia.commands.impl.BaseRepositoryCommand;
+import info.magnolia.context.Context;
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.NodeTypes;
+import info.magnolia.objectfactory.Components;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Publishes a blog folder with all unpublished folders and blogs below it.
+ * The folder tree is traversed once with the session of the editor, leaving out the folders and blogs the editor is
+ * not allowed to modify. The folders are published top down, followed by the blogs in sub-batches of
+ * <code>batchSize</code>, published concurrently by at most <code>threads</code> workers. A sub-batch gets its
+ * initial activation dates just before it is published; when publishing fails, the dates of its unpublished blogs are
+ * removed again. Every node is published with the non-recursive <code>activationCommand</code> of the
+ * <code>activationCatalog</code>.
+ */
+public class ActivateBlogFolderCommand extends BaseRepositoryCommand {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActivateBlogFolderCommand.class);
+
+    private static final String ATTRIBUTE_RECURSIVE = "recursive";
+
+    private int batchSize = 100;
+    private int threads = 4;
+    private String activationCatalog = "default";
+    private String activationCommand = "activate";
+
+    @Override
+    public boolean execute(final Context context) throws Exception {
+        final Node root = getJCRNode(context);
+        if (!canPublish(root)) {
+            throw new AccessDeniedException("Not allowed to publish " + root.getPath());
+        }
+        final List<String> folders = new ArrayList<>();
+        final List<String> blogs = new ArrayList<>();
+        final List<String> denied = new ArrayList<>();
+
+        if (!isPublished(root)) {
+            folders.add(root.getPath());
+        }
+        collect(root, folders, blogs, denied);
+        if (!denied.isEmpty()) {
+            LOGGER.warn("Not allowed to publish, leaving out: {}", denied);
+        }
+        LOGGER.info("Publishing {} folders and {} blogs below {}", folders.size(), blogs.size(), root.getPath());
+
+        // Parents have to exist on the public instances before their children can be published
+        for (String folder : folders) {
+            publish(folder);
+        }
+
+        final List<List<String>> batches = new ArrayList<>();
+        for (int start = 0; start < blogs.size(); start += getEffectiveBatchSize()) {
+            batches.add(blogs.subList(start, Math.min(blogs.size(), start + getEffectiveBatchSize())));
+        }
+        if (!batches.isEmpty()) {
+            publishConcurrently(batches, context.getUser() == null ? null : context.getUser().getName());
+        }
+        return true;
+    }
+
+    /**
+     * Collect the unpublished folders and blogs below the given node in document order. Nodes the editor is not
+     * allowed to publish are collected as denied, and so is everything below a denied folder.
+     */
+    private void collect(Node parent, List<String> folders, List<String> blogs, List<String> denied) throws RepositoryException {
+        final NodeIterator children = parent.getNodes();
+        while (children.hasNext()) {
+            final Node child = children.nextNode();
+            if (child.isNodeType(BlogsNodeTypes.Blog.NAME)) {
+                if (!isPublished(child)) {
+                    (canPublish(child) ? blogs : denied).add(child.getPath());
+                }
+            } else if (child.isNodeType(NodeTypes.Folder.NAME)) {
+                if (!canPublish(child)) {
+                    denied.add(child.getPath());
+                    continue;
+                }
+                if (!isPublished(child)) {
+                    folders.add(child.getPath());
+                }
+                collect(child, folders, blogs, denied);
+            }
+        }
+    }
+
+    private int getEffectiveBatchSize() {
+        return Math.max(1, batchSize);
+    }
+
+    private static boolean isPublished(Node node) throws RepositoryException {
+        return NodeTypes.Activatable.getActivationStatus(node) == NodeTypes.Activatable.ACTIVATION_STATUS_ACTIVATED;
+    }
+
+    /**
+     * Publishing marks the node as activated, so it requires permission to modify the node.
+     */
+    private static boolean canPublish(Node node) throws RepositoryException {
+        return node.getSession().hasPermission(node.getPath(), Session.ACTION_SET_PROPERTY);
+    }
+
+    /**
+     * Publish the given sub-batches on a bounded pool of workers. Worker threads have no context of their own, so
+     * every worker publishes in the system context and records the editor as publisher afterwards; the nodes were
+     * checked against the permissions of the editor while collecting. Waits for all sub-batches, failing with the
+     * first error.
+     */
+    private void publishConcurrently(List<List<String>> batches, final String publisher) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, batches.size())));
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(batches.size());
+            for (final List<String> batch : batches) {
+                futures.add(executor.submit(() -> MgnlContext.doInSystemContext(new MgnlContext.Op<Void, Exception>() {
+                    @Override
+                    public Void exec() throws Exception {
+                        publishBatch(batch, publisher);
+                        return null;
+                    }
+                }, true)));
+            }
+
+            Exception failure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Unable to publish a batch of blogs", e.getCause());
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Set the initial activation date of the blogs in the batch and publish them. When publishing fails, the dates set
+     * on the blogs which were not published are removed, so no blog is left dated but unpublished.
+     */
+    private void publishBatch(List<String> batch, String publisher) throws Exception {
+        final Session session = MgnlContext.getJCRSession(getRepository());
+        final Calendar now = Calendar.getInstance();
+        final Set<String> dated = new HashSet<>();
+        for (String path : batch) {
+            final Node blog = session.getNode(path);
+            if (!blog.hasProperty(BlogsNodeTypes.Blog.PROPERTY_INITIALACTIVATIONDATE)) {
+                blog.setProperty(BlogsNodeTypes.Blog.PROPERTY_INITIALACTIVATIONDATE, now);
+                dated.add(path);
+            }
+        }
+        session.save();
+
+        int published = 0;
+        try {
+            for (String path : batch) {
+                publish(path);
+                published++;
+            }
+        } catch (Exception e) {
+            final List<String> unpublished = batch.subList(published, batch.size());
+            LOGGER.error("Unable to publish {}, leaving unpublished: {}", batch.get(published), unpublished);
+            for (String path : unpublished) {
+                if (dated.contains(path)) {
+                    session.getNode(path).setProperty(BlogsNodeTypes.Blog.PROPERTY_INITIALACTIVATIONDATE, (Calendar) null);
+                }
+            }
+            throw e;
+        } finally {
+            if (publisher != null) {
+                for (String path : batch.subList(0, published)) {
+                    NodeTypes.Activatable.update(session.getNode(path), publisher, true);
+                }
+            }
+            session.save();
+        }
+    }
+
+    private void publish(String path) throws Exception {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(Context.ATTRIBUTE_REPOSITORY, getRepository());
+        params.put(Context.ATTRIBUTE_PATH, path);
+        params.put(ATTRIBUTE_RECURSIVE, Boolean.FALSE);
+        Components.getComponent(CommandsManager.class).executeCommand(activationCatalog, activationCommand, params);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public String getActivationCatalog() {
+        return activationCatalog;
+    }
+
+    public void setActivationCatalog(String activationCatalog) {
+        this.activationCatalog = activationCatalog;
+    }
+
+    public String getActivationCommand() {
+        return activationCommand;
+    }
+
+    public void setActivationCommand(String activationCommand) {
+        this.activationCommand = activationCommand;
+    }
+}
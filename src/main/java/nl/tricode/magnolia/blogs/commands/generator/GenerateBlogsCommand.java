@@ -0,0 +1,188 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.commands.generator;
+
+import info.magnolia.commands.MgnlCommand;
+import info.magnolia.context.Context;
+import nl.tricode.magnolia.blogs.generator.DatasetGenerator;
+import nl.tricode.magnolia.blogs.generator.DatasetWriter;
+import nl.tricode.magnolia.blogs.generator.SessionDatasetWriter;
+import nl.tricode.magnolia.blogs.generator.XmlDatasetWriter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+
+/**
+ * Generates a synthetic dataset of blogs, categories and authors with the {@link DatasetGenerator}.
+ * The nodes are added to the repository in batches, or written as bootstrap files when <code>outputDirectory</code>
+ * is set. All properties can be set in the command configuration or passed as command parameters, e.g.
+ * <code>cm.executeCommand("generator", "generateBlogs", ["blogCount": 100000])</code> in the Groovy console.
+ */
+public class GenerateBlogsCommand extends MgnlCommand {
+
+    private int blogCount = 1000;
+    private int blogsPerFolder = 100;
+    private int foldersPerFolder = 100;
+    private int categoryCount = 50;
+    private int authorCount = 20;
+    private int maxCategoriesPerBlog = 3;
+    private double exponent = 1.0;
+    private int daySpread = 5 * 365;
+    private int minMessageLength = 500;
+    private int maxMessageLength = 5000;
+    private long seed = 42L;
+    private String name = "generated";
+    private int batchSize = 1000;
+    private String outputDirectory;
+
+    @Override
+    public boolean execute(final Context context) throws Exception {
+        final DatasetGenerator generator = new DatasetGenerator();
+        generator.setBlogCount(blogCount);
+        generator.setBlogsPerFolder(blogsPerFolder);
+        generator.setFoldersPerFolder(foldersPerFolder);
+        generator.setCategoryCount(categoryCount);
+        generator.setAuthorCount(authorCount);
+        generator.setMaxCategoriesPerBlog(maxCategoriesPerBlog);
+        generator.setExponent(exponent);
+        generator.setDaySpread(daySpread);
+        generator.setMinMessageLength(minMessageLength);
+        generator.setMaxMessageLength(maxMessageLength);
+        generator.setSeed(seed);
+        generator.setName(name);
+
+        try (DatasetWriter writer = StringUtils.isBlank(outputDirectory)
+                ? new SessionDatasetWriter(batchSize) : new XmlDatasetWriter(new File(outputDirectory))) {
+            generator.generate(writer);
+        }
+        return true;
+    }
+
+    public int getBlogCount() {
+        return blogCount;
+    }
+
+    public void setBlogCount(int blogCount) {
+        this.blogCount = blogCount;
+    }
+
+    public int getBlogsPerFolder() {
+        return blogsPerFolder;
+    }
+
+    public void setBlogsPerFolder(int blogsPerFolder) {
+        this.blogsPerFolder = blogsPerFolder;
+    }
+
+    public int getFoldersPerFolder() {
+        return foldersPerFolder;
+    }
+
+    public void setFoldersPerFolder(int foldersPerFolder) {
+        this.foldersPerFolder = foldersPerFolder;
+    }
+
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    public void setCategoryCount(int categoryCount) {
+        this.categoryCount = categoryCount;
+    }
+
+    public int getAuthorCount() {
+        return authorCount;
+    }
+
+    public void setAuthorCount(int authorCount) {
+        this.authorCount = authorCount;
+    }
+
+    public int getMaxCategoriesPerBlog() {
+        return maxCategoriesPerBlog;
+    }
+
+    public void setMaxCategoriesPerBlog(int maxCategoriesPerBlog) {
+        this.maxCategoriesPerBlog = maxCategoriesPerBlog;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    public void setExponent(double exponent) {
+        this.exponent = exponent;
+    }
+
+    public int getDaySpread() {
+        return daySpread;
+    }
+
+    public void setDaySpread(int daySpread) {
+        this.daySpread = daySpread;
+    }
+
+    public int getMinMessageLength() {
+        return minMessageLength;
+    }
+
+    public void setMinMessageLength(int minMessageLength) {
+        this.minMessageLength = minMessageLength;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public void setMaxMessageLength(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(String outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+}
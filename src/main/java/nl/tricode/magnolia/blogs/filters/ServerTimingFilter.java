@@ -0,0 +1,73 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.filters;
+
+import info.magnolia.cms.filters.AbstractMgnlFilter;
+import info.magnolia.objectfactory.Components;
+import nl.tricode.magnolia.blogs.metrics.RenderMetrics;
+import nl.tricode.magnolia.blogs.metrics.RenderTimings;
+
+import javax.inject.Inject;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times the rendering of the blog components and reports the breakdown of every request in a
+ * <code>Server-Timing</code> response header, and aggregated over all requests in the {@link RenderMetrics}.
+ * Sections report their own time without nested sections, the <code>total</code> section is the time of the whole
+ * request. HTML responses are buffered so the header can be added after rendering. The filter is installed disabled; when
+ * disabled the timing points of the blog components cost a request attribute lookup only.
+ */
+public class ServerTimingFilter extends AbstractMgnlFilter {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final String TOTAL = "total";
+
+    private final RenderMetrics renderMetrics;
+
+    public ServerTimingFilter() {
+        this(Components.getComponent(RenderMetrics.class));
+    }
+
+    @Inject
+    public ServerTimingFilter(RenderMetrics renderMetrics) {
+        this.renderMetrics = renderMetrics;
+    }
+
+    @Override
+    public void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        final RenderTimings timings = RenderTimings.begin();
+        final ServerTimingResponseWrapper wrapper = new ServerTimingResponseWrapper(response);
+        final long start = System.nanoTime();
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            final boolean rendered = !timings.getNames().isEmpty();
+            timings.add(TOTAL, System.nanoTime() - start);
+            if (rendered && renderMetrics != null) {
+                renderMetrics.record(timings);
+            }
+            wrapper.finish(SERVER_TIMING_HEADER, timings.toServerTiming());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.filters;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Response buffering HTML output, so headers can still be set after the page has been rendered.
+ * Other content types, like resources and the requests of the admin interface, are passed through unbuffered.
+ */
+final class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final String HTML_CONTENT_TYPE = "text/html";
+
+    private ByteArrayOutputStream buffer;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    ServerTimingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            if (!startBuffering()) {
+                return super.getOutputStream();
+            }
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    buffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    buffer.write(bytes, offset, length);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (!startBuffering()) {
+                return super.getWriter();
+            }
+            writer = new PrintWriter(new OutputStreamWriter(buffer, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (buffer == null) {
+            super.flushBuffer();
+        } else if (writer != null) {
+            // Committing the response would make setting headers impossible
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (buffer != null) {
+            flushWriter();
+            buffer.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (buffer != null) {
+            flushWriter();
+            buffer.reset();
+        }
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        resetBuffer();
+        super.sendError(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        resetBuffer();
+        super.sendError(status, message);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        resetBuffer();
+        super.sendRedirect(location);
+    }
+
+    /**
+     * Set the header when the response has not been committed yet, then write the buffered output.
+     *
+     * @param name  Header name
+     * @param value Header value
+     * @throws IOException When writing the output fails
+     */
+    void finish(String name, String value) throws IOException {
+        flushWriter();
+        if (!getResponse().isCommitted() && StringUtils.isNotEmpty(value)) {
+            setHeader(name, value);
+        }
+        if (buffer != null && buffer.size() > 0) {
+            buffer.writeTo(getResponse().getOutputStream());
+        }
+    }
+
+    private boolean startBuffering() {
+        if (buffer == null && StringUtils.startsWith(getContentType(), HTML_CONTENT_TYPE)) {
+            buffer = new ByteArrayOutputStream();
+        }
+        return buffer != null;
+    }
+
+    private void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+}
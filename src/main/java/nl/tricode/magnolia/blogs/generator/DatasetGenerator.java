@@ -0,0 +1,395 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import info.magnolia.contacts.app.ContactsNodeTypes;
+import info.magnolia.jcr.util.NodeTypes;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a synthetic, reproducible dataset of authors (contacts workspace), categories (category workspace) and
+ * blogs (collaboration workspace) for load and performance tests.
+ * <p>
+ * Blogs are streamed into <code>mgnl:blogsFolder</code> trees of two levels: a top level folder per
+ * <code>blogsPerFolder * foldersPerFolder</code> blogs holding folders of <code>blogsPerFolder</code> blogs.
+ * Categories, authors and the words of the texts are assigned with a Zipf distribution, the creation dates are
+ * spread uniformly over the last <code>daySpread</code> days and the message length is uniform between
+ * <code>minMessageLength</code> and <code>maxMessageLength</code> characters. Only the identifiers of the authors
+ * and categories are kept in memory, so the number of blogs is only bounded by the writer.
+ * The same settings and seed always generate the same dataset.
+ */
+public class DatasetGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    /**
+     * Words used for titles, summaries and messages, most frequent first.
+     */
+    public static final List<String> VOCABULARY = Collections.unmodifiableList(Arrays.asList(
+            "magnolia", "content", "java", "template", "component", "page", "website", "editor", "module", "blog",
+            "publishing", "workflow", "search", "cache", "performance", "repository", "query", "index", "author",
+            "category", "release", "upgrade", "security", "personalization", "marketing", "campaign", "headless",
+            "delivery", "frontend", "backend", "cloud", "cluster", "instance", "server", "deployment", "migration",
+            "integration", "commerce", "asset", "image", "video", "language", "translation", "community", "developer",
+            "freemarker", "groovy", "maven", "jackrabbit", "lucene", "tomcat", "docker", "kubernetes", "monitoring",
+            "logging", "testing", "automation", "design", "layout", "navigation", "mobile", "responsive", "analytics",
+            "conversion", "experience", "customer", "journey", "newsletter", "social", "media", "event", "conference",
+            "workshop", "training", "tutorial", "example", "pattern", "architecture", "microservice", "api", "rest",
+            "graphql", "json", "xml", "schema", "model", "dialog", "field", "action", "app", "subscriber", "activation",
+            "version", "rollback", "backup", "restore", "scaling", "latency", "throughput", "benchmark", "profiling",
+            "memory", "garbage", "thread", "concurrency", "transaction", "session", "observation", "listener",
+            "filter", "servlet", "request", "response", "header", "cookie", "redirect", "mapping", "configuration",
+            "bootstrap", "license", "enterprise", "partner", "project", "sprint", "roadmap", "feedback", "support"));
+
+    private static final String[] FIRST_NAMES = {"Anna", "Bram", "Chloe", "Daan", "Emma", "Finn", "Julia", "Lars",
+            "Lotte", "Milan", "Noor", "Ruben", "Sanne", "Thijs", "Eva", "Sem"};
+    private static final String[] LAST_NAMES = {"de Jong", "Jansen", "de Vries", "van den Berg", "van Dijk", "Bakker",
+            "Janssen", "Visser", "Smit", "Meijer", "de Boer", "Mulder", "de Groot", "Bos", "Vos", "Peters"};
+
+    private static final int CATEGORIES_PER_GROUP = 5;
+    private static final int LOG_EVERY = 10000;
+
+    private int blogCount = 1000;
+    private int blogsPerFolder = 100;
+    private int foldersPerFolder = 100;
+    private int categoryCount = 50;
+    private int authorCount = 20;
+    private int maxCategoriesPerBlog = 3;
+    private double exponent = 1.0;
+    private int daySpread = 5 * 365;
+    private int minMessageLength = 500;
+    private int maxMessageLength = 5000;
+    private long seed = 42L;
+    private String name = "generated";
+    private Calendar endDate;
+
+    private final List<String> authorIdentifiers = new ArrayList<>();
+    private final List<String> categoryIdentifiers = new ArrayList<>();
+
+    /**
+     * Write authors, categories and blogs to the given writer.
+     *
+     * @param writer Writer receiving the nodes
+     * @throws IOException         When the nodes can not be written
+     * @throws RepositoryException When the nodes can not be stored
+     */
+    public void generate(DatasetWriter writer) throws IOException, RepositoryException {
+        final long start = System.currentTimeMillis();
+        final Random random = new Random(seed);
+        authorIdentifiers.clear();
+        categoryIdentifiers.clear();
+
+        generateAuthors(writer, random);
+        generateCategories(writer, random);
+        generateBlogs(writer, random);
+
+        LOGGER.info("Generated {} blogs, {} categories and {} authors in {} ms", blogCount, categoryCount, authorCount,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return Identifiers of the generated authors, most frequently assigned first
+     */
+    public List<String> getAuthorIdentifiers() {
+        return Collections.unmodifiableList(authorIdentifiers);
+    }
+
+    /**
+     * @return Identifiers of the generated categories, most frequently assigned first
+     */
+    public List<String> getCategoryIdentifiers() {
+        return Collections.unmodifiableList(categoryIdentifiers);
+    }
+
+    private void generateAuthors(DatasetWriter writer, Random random) throws IOException, RepositoryException {
+        writer.startWorkspace(BlogRepositoryConstants.CONTACTS);
+        writer.startNode(name, NodeTypes.Folder.NAME, nextIdentifier(random), Collections.<String, Object>emptyMap());
+        for (int i = 0; i < authorCount; i++) {
+            final String firstName = FIRST_NAMES[i % FIRST_NAMES.length];
+            final String lastName = LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+            final Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put(ContactsNodeTypes.Contact.PROPERTY_FIRST_NAME, firstName);
+            properties.put(ContactsNodeTypes.Contact.PROPERTY_LAST_NAME, lastName + (i < FIRST_NAMES.length * LAST_NAMES.length ? "" : " " + i));
+            properties.put(ContactsNodeTypes.Contact.PROPERTY_EMAIL, "author" + i + "@example.com");
+
+            authorIdentifiers.add(writer.startNode("author-" + i, ContactsNodeTypes.Contact.NAME, nextIdentifier(random), properties));
+            writer.endNode();
+        }
+        writer.endNode();
+        writer.endWorkspace();
+    }
+
+    /**
+     * Categories are written in groups: the first category of every group is a top level category holding the
+     * others of the group.
+     */
+    private void generateCategories(DatasetWriter writer, Random random) throws IOException, RepositoryException {
+        writer.startWorkspace(BlogRepositoryConstants.CATEGORY);
+        writer.startNode(name, NodeTypes.Folder.NAME, nextIdentifier(random), Collections.<String, Object>emptyMap());
+        for (int i = 0; i < categoryCount; i++) {
+            if (i % CATEGORIES_PER_GROUP == 0 && i > 0) {
+                writer.endNode();
+            }
+            final String categoryName = VOCABULARY.get(i % VOCABULARY.size()) + (i < VOCABULARY.size() ? "" : "-" + i);
+            final Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("name", categoryName);
+            properties.put("displayName", StringUtils.capitalize(categoryName.replace('-', ' ')));
+
+            categoryIdentifiers.add(writer.startNode(categoryName, "mgnl:category", nextIdentifier(random), properties));
+            if (i % CATEGORIES_PER_GROUP != 0) {
+                writer.endNode();
+            }
+        }
+        if (categoryCount > 0) {
+            writer.endNode();
+        }
+        writer.endNode();
+        writer.endWorkspace();
+    }
+
+    private void generateBlogs(DatasetWriter writer, Random random) throws IOException, RepositoryException {
+        final ZipfDistribution authors = authorCount > 0 ? new ZipfDistribution(authorCount, exponent) : null;
+        final ZipfDistribution categories = categoryCount > 0 ? new ZipfDistribution(categoryCount, exponent) : null;
+        final ZipfDistribution words = new ZipfDistribution(VOCABULARY.size(), exponent);
+        final long end = (endDate == null ? Calendar.getInstance() : endDate).getTimeInMillis();
+        final long spread = TimeUnit.DAYS.toMillis(Math.max(1, daySpread));
+        final int blogsPerTopFolder = blogsPerFolder * foldersPerFolder;
+
+        writer.startWorkspace(BlogRepositoryConstants.COLLABORATION);
+        for (int i = 0; i < blogCount; i++) {
+            if (i % blogsPerFolder == 0) {
+                if (i > 0) {
+                    writer.endNode();
+                }
+                if (i % blogsPerTopFolder == 0) {
+                    if (i > 0) {
+                        writer.endNode();
+                    }
+                    writer.startNode(String.format("%s-%04d", name, i / blogsPerTopFolder), BlogsNodeTypes.Folder.NAME,
+                            nextIdentifier(random), Collections.<String, Object>emptyMap());
+                }
+                writer.startNode(String.format("%04d", (i / blogsPerFolder) % foldersPerFolder), BlogsNodeTypes.Folder.NAME,
+                        nextIdentifier(random), Collections.<String, Object>emptyMap());
+            }
+
+            final Calendar created = Calendar.getInstance();
+            created.setTimeInMillis(end - (long) (random.nextDouble() * spread));
+            final Calendar activated = (Calendar) created.clone();
+            activated.add(Calendar.MINUTE, random.nextInt(24 * 60));
+
+            final Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put(BlogsNodeTypes.Blog.PROPERTY_TITLE, StringUtils.capitalize(text(words, random, 3 + random.nextInt(6))));
+            properties.put(BlogsNodeTypes.Blog.PROPERTY_SUMMARY, StringUtils.capitalize(text(words, random, 15 + random.nextInt(25))) + ".");
+            properties.put(BlogsNodeTypes.Blog.PROPERTY_MESSAGE, message(words, random));
+            if (authors != null) {
+                properties.put(BlogsNodeTypes.Blog.PROPERTY_AUTHOR, authorIdentifiers.get(authors.sample(random)));
+            }
+            if (categories != null) {
+                properties.put(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES, pickCategories(categories, random));
+            }
+            properties.put(BlogsNodeTypes.Blog.PROPERTY_COMMENTS_ENABLED, Boolean.FALSE);
+            properties.put(NodeTypes.Created.CREATED, created);
+            properties.put(NodeTypes.LastModified.LAST_MODIFIED, activated);
+            properties.put(BlogsNodeTypes.Blog.PROPERTY_INITIALACTIVATIONDATE, activated);
+
+            writer.startNode("blog-" + i, BlogsNodeTypes.Blog.NAME, nextIdentifier(random), properties);
+            writer.endNode();
+
+            if ((i + 1) % LOG_EVERY == 0) {
+                LOGGER.info("Generated {} of {} blogs", i + 1, blogCount);
+            }
+        }
+        if (blogCount > 0) {
+            writer.endNode();
+            writer.endNode();
+        }
+        writer.endWorkspace();
+    }
+
+    private String[] pickCategories(ZipfDistribution categories, Random random) {
+        final int count = Math.min(1 + random.nextInt(Math.max(1, maxCategoriesPerBlog)), categories.size());
+        final Set<String> picked = new LinkedHashSet<>();
+        // Retrying draws of a popular category is bounded, so a skewed distribution may yield fewer categories
+        for (int attempt = 0; picked.size() < count && attempt < count * 4; attempt++) {
+            picked.add(categoryIdentifiers.get(categories.sample(random)));
+        }
+        return picked.toArray(new String[picked.size()]);
+    }
+
+    private String message(ZipfDistribution words, Random random) {
+        final int length = minMessageLength + random.nextInt(Math.max(1, maxMessageLength - minMessageLength + 1));
+        final StringBuilder message = new StringBuilder(length + 200);
+        while (message.length() < length) {
+            message.append("<p>").append(StringUtils.capitalize(text(words, random, 40 + random.nextInt(80)))).append(".</p>\n");
+        }
+        return message.toString();
+    }
+
+    private static String text(ZipfDistribution words, Random random, int wordCount) {
+        final StringBuilder text = new StringBuilder(wordCount * 10);
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(VOCABULARY.get(words.sample(random)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return Random (version 4) UUID drawn from the seeded random, so identifiers are reproducible
+     */
+    private static String nextIdentifier(Random random) {
+        final long mostSignificant = (random.nextLong() & ~0xF000L) | 0x4000L;
+        final long leastSignificant = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+
+    public int getBlogCount() {
+        return blogCount;
+    }
+
+    public void setBlogCount(int blogCount) {
+        this.blogCount = blogCount;
+    }
+
+    public int getBlogsPerFolder() {
+        return blogsPerFolder;
+    }
+
+    public void setBlogsPerFolder(int blogsPerFolder) {
+        this.blogsPerFolder = Math.max(1, blogsPerFolder);
+    }
+
+    public int getFoldersPerFolder() {
+        return foldersPerFolder;
+    }
+
+    public void setFoldersPerFolder(int foldersPerFolder) {
+        this.foldersPerFolder = Math.max(1, foldersPerFolder);
+    }
+
+    public int getCategoryCount() {
+        return categoryCount;
+    }
+
+    public void setCategoryCount(int categoryCount) {
+        this.categoryCount = categoryCount;
+    }
+
+    public int getAuthorCount() {
+        return authorCount;
+    }
+
+    public void setAuthorCount(int authorCount) {
+        this.authorCount = authorCount;
+    }
+
+    public int getMaxCategoriesPerBlog() {
+        return maxCategoriesPerBlog;
+    }
+
+    public void setMaxCategoriesPerBlog(int maxCategoriesPerBlog) {
+        this.maxCategoriesPerBlog = maxCategoriesPerBlog;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * @param exponent Skew of the Zipf distributions of categories, authors and words, 0 for uniform
+     */
+    public void setExponent(double exponent) {
+        this.exponent = exponent;
+    }
+
+    public int getDaySpread() {
+        return daySpread;
+    }
+
+    public void setDaySpread(int daySpread) {
+        this.daySpread = daySpread;
+    }
+
+    public int getMinMessageLength() {
+        return minMessageLength;
+    }
+
+    public void setMinMessageLength(int minMessageLength) {
+        this.minMessageLength = minMessageLength;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public void setMaxMessageLength(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name Name of the root folders of the generated content
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Calendar getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @param endDate Latest creation date of the blogs, <code>null</code> for now
+     */
+    public void setEndDate(Calendar endDate) {
+        this.endDate = endDate;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import javax.jcr.RepositoryException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives the nodes of a generated dataset as a stream of nested start and end calls, one workspace at a time.
+ * Property values are <code>String</code>, <code>String[]</code>, <code>Calendar</code>, <code>Long</code> or
+ * <code>Boolean</code>.
+ */
+public interface DatasetWriter extends Closeable {
+
+    /**
+     * Start writing nodes below the root of the given workspace.
+     *
+     * @param workspace Workspace name
+     * @throws IOException         When the nodes can not be written
+     * @throws RepositoryException When the nodes can not be stored
+     */
+    void startWorkspace(String workspace) throws IOException, RepositoryException;
+
+    /**
+     * Start a node below the current node. Following nodes are its children until {@link #endNode()} is called.
+     *
+     * @param name       Node name
+     * @param nodeType   Primary node type
+     * @param identifier Proposed identifier of the node
+     * @param properties Property values by name
+     * @return Identifier the node is stored with, to be used in references to the node
+     * @throws IOException         When the node can not be written
+     * @throws RepositoryException When the node can not be stored
+     */
+    String startNode(String name, String nodeType, String identifier, Map<String, Object> properties)
+            throws IOException, RepositoryException;
+
+    /**
+     * End the current node.
+     *
+     * @throws IOException         When the node can not be written
+     * @throws RepositoryException When the node can not be stored
+     */
+    void endNode() throws IOException, RepositoryException;
+
+    /**
+     * End writing nodes in the current workspace.
+     *
+     * @throws IOException         When the nodes can not be written
+     * @throws RepositoryException When the nodes can not be stored
+     */
+    void endWorkspace() throws IOException, RepositoryException;
+}
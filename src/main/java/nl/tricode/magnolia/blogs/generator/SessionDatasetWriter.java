@@ -0,0 +1,104 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import info.magnolia.context.MgnlContext;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Adds the generated nodes to the repository through the session of the current context.
+ * The session is saved every <code>batchSize</code> nodes, so the transient space stays bounded however large the
+ * dataset is. The proposed identifiers are not used; references use the identifiers assigned by the repository.
+ */
+public class SessionDatasetWriter implements DatasetWriter {
+
+    private final int batchSize;
+    private final Deque<Node> parents = new ArrayDeque<>();
+    private Session session;
+    private int unsaved;
+
+    /**
+     * @param batchSize Number of nodes added between saves
+     */
+    public SessionDatasetWriter(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void startWorkspace(String workspace) throws RepositoryException {
+        session = MgnlContext.getJCRSession(workspace);
+        parents.clear();
+        parents.push(session.getRootNode());
+    }
+
+    @Override
+    public String startNode(String name, String nodeType, String identifier, Map<String, Object> properties) throws RepositoryException {
+        final Node node = parents.peek().addNode(name, nodeType);
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            setProperty(node, property.getKey(), property.getValue());
+        }
+        parents.push(node);
+
+        if (++unsaved >= batchSize) {
+            session.save();
+            unsaved = 0;
+        }
+        return node.getIdentifier();
+    }
+
+    @Override
+    public void endNode() {
+        parents.pop();
+    }
+
+    @Override
+    public void endWorkspace() throws RepositoryException {
+        session.save();
+        unsaved = 0;
+        parents.clear();
+        session = null;
+    }
+
+    @Override
+    public void close() {
+        parents.clear();
+        session = null;
+    }
+
+    private static void setProperty(Node node, String name, Object value) throws RepositoryException {
+        if (value instanceof String[]) {
+            node.setProperty(name, (String[]) value);
+        } else if (value instanceof Calendar) {
+            node.setProperty(name, (Calendar) value);
+        } else if (value instanceof Long) {
+            node.setProperty(name, (Long) value);
+        } else if (value instanceof Boolean) {
+            node.setProperty(name, (Boolean) value);
+        } else {
+            node.setProperty(name, String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import org.apache.jackrabbit.util.ISO8601;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Writes the generated nodes as JCR system view XML bootstrap files, one file named
+ * <code>workspace.name.xml</code> for every node directly below the workspace root.
+ * The XML is streamed, so only the path of open nodes is kept in memory.
+ */
+public class XmlDatasetWriter implements DatasetWriter {
+
+    private static final String SV_NAMESPACE = "http://www.jcp.org/jcr/sv/1.0";
+    private static final String INDENT = "    ";
+
+    private final File directory;
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private String workspace;
+    private Writer output;
+    private XMLStreamWriter xml;
+    private int depth;
+
+    /**
+     * @param directory Directory to write the bootstrap files to, created when missing
+     */
+    public XmlDatasetWriter(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void startWorkspace(String workspace) throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.workspace = workspace;
+    }
+
+    @Override
+    public String startNode(String name, String nodeType, String identifier, Map<String, Object> properties) throws IOException {
+        try {
+            if (depth == 0) {
+                output = Files.newBufferedWriter(new File(directory, workspace + "." + name + ".xml").toPath(), StandardCharsets.UTF_8);
+                xml = outputFactory.createXMLStreamWriter(output);
+                xml.writeStartDocument("UTF-8", "1.0");
+                newLine();
+                xml.writeStartElement("sv", "node", SV_NAMESPACE);
+                xml.writeNamespace("sv", SV_NAMESPACE);
+            } else {
+                newLine();
+                xml.writeStartElement("sv", "node", SV_NAMESPACE);
+            }
+            xml.writeAttribute("sv", SV_NAMESPACE, "name", name);
+            depth++;
+
+            writeProperty("jcr:primaryType", "Name", nodeType);
+            writeProperty("jcr:uuid", "String", identifier);
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                writeProperty(property.getKey(), property.getValue());
+            }
+            return identifier;
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write node " + name, e);
+        }
+    }
+
+    @Override
+    public void endNode() throws IOException {
+        try {
+            depth--;
+            newLine();
+            xml.writeEndElement();
+            if (depth == 0) {
+                xml.writeEndDocument();
+                closeFile();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to end node", e);
+        }
+    }
+
+    @Override
+    public void endWorkspace() {
+        workspace = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeFile();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to close bootstrap file", e);
+        }
+    }
+
+    private void writeProperty(String name, Object value) throws XMLStreamException {
+        if (value instanceof String[]) {
+            writeProperty(name, "String", (String[]) value);
+        } else if (value instanceof Calendar) {
+            writeProperty(name, "Date", ISO8601.format((Calendar) value));
+        } else if (value instanceof Long) {
+            writeProperty(name, "Long", String.valueOf(value));
+        } else if (value instanceof Boolean) {
+            writeProperty(name, "Boolean", String.valueOf(value));
+        } else {
+            writeProperty(name, "String", String.valueOf(value));
+        }
+    }
+
+    private void writeProperty(String name, String type, String value) throws XMLStreamException {
+        newLine();
+        xml.writeStartElement("sv", "property", SV_NAMESPACE);
+        xml.writeAttribute("sv", SV_NAMESPACE, "name", name);
+        xml.writeAttribute("sv", SV_NAMESPACE, "type", type);
+        depth++;
+        writeValue(value);
+        depth--;
+        newLine();
+        xml.writeEndElement();
+    }
+
+    private void writeProperty(String name, String type, String[] values) throws XMLStreamException {
+        newLine();
+        xml.writeStartElement("sv", "property", SV_NAMESPACE);
+        xml.writeAttribute("sv", SV_NAMESPACE, "name", name);
+        xml.writeAttribute("sv", SV_NAMESPACE, "type", type);
+        xml.writeAttribute("sv", SV_NAMESPACE, "multiple", "true");
+        depth++;
+        for (String value : values) {
+            writeValue(value);
+        }
+        depth--;
+        newLine();
+        xml.writeEndElement();
+    }
+
+    private void writeValue(String value) throws XMLStreamException {
+        newLine();
+        xml.writeStartElement("sv", "value", SV_NAMESPACE);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private void newLine() throws XMLStreamException {
+        xml.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            xml.writeCharacters(INDENT);
+        }
+    }
+
+    private void closeFile() throws XMLStreamException, IOException {
+        if (xml != null) {
+            xml.close();
+            xml = null;
+        }
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+        depth = 0;
+    }
+}
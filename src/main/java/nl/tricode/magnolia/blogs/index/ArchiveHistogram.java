@@ -0,0 +1,101 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Number of blogs per month of creation.
+ * Months are keyed by a packed int <code>year * 12 + (month - 1)</code>, so the histogram costs O(months) to read
+ * instead of O(blogs).
+ */
+public final class ArchiveHistogram {
+
+    private final NavigableMap<Integer, Integer> counts = new TreeMap<>(Collections.reverseOrder());
+
+    /**
+     * @param year  Year
+     * @param month Month, 1 for January
+     * @return Packed month key
+     */
+    public static int toKey(int year, int month) {
+        return year * 12 + (month - 1);
+    }
+
+    /**
+     * @param millis Date in milliseconds
+     * @return Packed month key of the date in the default time zone
+     */
+    public static int toKey(long millis) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return toKey(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1);
+    }
+
+    /**
+     * @param key Packed month key
+     * @return Year of the key
+     */
+    public static int getYear(int key) {
+        return Math.floorDiv(key, 12);
+    }
+
+    /**
+     * @param key Packed month key
+     * @return Month of the key, 1 for January
+     */
+    public static int getMonth(int key) {
+        return Math.floorMod(key, 12) + 1;
+    }
+
+    /**
+     * Count a blog created in the given month.
+     *
+     * @param key Packed month key
+     */
+    public synchronized void add(int key) {
+        counts.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Stop counting a blog created in the given month.
+     *
+     * @param key Packed month key
+     */
+    public synchronized void remove(int key) {
+        counts.computeIfPresent(key, (month, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return Number of blogs for every month having blogs, most recent month first
+     */
+    public synchronized NavigableMap<Integer, Integer> getCounts() {
+        return Collections.unmodifiableNavigableMap(new TreeMap<>(counts));
+    }
+
+    /**
+     * Remove all counts.
+     */
+    public synchronized void clear() {
+        counts.clear();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Membership bitmaps of a snapshot of the blog index. Blogs are numbered by their position in the sorted snapshot,
+ * and every category, author and month of creation has a bitmap of the blogs it applies to. Bitmaps are read-only
+ * once built.
+ */
+final class BlogBitmaps {
+
+    static final BlogBitmaps EMPTY = new BlogBitmaps(Collections.<BlogIndexEntry>emptyList(), BlogIndexEntry.BY_CREATED_DESC);
+
+    private final List<BlogIndexEntry> entries;
+    private final Comparator<BlogIndexEntry> order;
+    private final Map<String, BitSet> categories = new HashMap<>();
+    private final Map<String, BitSet> authors = new HashMap<>();
+    private final NavigableMap<Integer, BitSet> months = new TreeMap<>();
+
+    /**
+     * @param entries Blogs sorted by the given order
+     * @param order   Order of the blogs, like {@link BlogIndexEntry#BY_CREATED_DESC}
+     */
+    BlogBitmaps(List<BlogIndexEntry> entries, Comparator<BlogIndexEntry> order) {
+        this.entries = entries;
+        this.order = order;
+
+        for (int ordinal = 0; ordinal < entries.size(); ordinal++) {
+            final BlogIndexEntry entry = entries.get(ordinal);
+            for (String categoryId : entry.getCategoryIds()) {
+                categories.computeIfAbsent(categoryId, id -> new BitSet()).set(ordinal);
+            }
+            if (entry.getAuthorId() != null) {
+                authors.computeIfAbsent(entry.getAuthorId(), id -> new BitSet()).set(ordinal);
+            }
+            if (entry.getCreated() != BlogIndexEntry.NO_DATE) {
+                months.computeIfAbsent(ArchiveHistogram.toKey(entry.getCreated()), key -> new BitSet()).set(ordinal);
+            }
+        }
+    }
+
+    /**
+     * @return Blogs by ordinal
+     */
+    List<BlogIndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return Order of the blogs by ordinal
+     */
+    Comparator<BlogIndexEntry> getOrder() {
+        return order;
+    }
+
+    /**
+     * @param categoryId Category identifier
+     * @return Blogs in the category, <code>null</code> when there are none
+     */
+    BitSet getCategory(String categoryId) {
+        return categories.get(categoryId);
+    }
+
+    /**
+     * @param authorId Contact identifier
+     * @return Blogs of the author, <code>null</code> when there are none
+     */
+    BitSet getAuthor(String authorId) {
+        return authors.get(authorId);
+    }
+
+    /**
+     * @return Blogs by packed month key of the date created, see {@link ArchiveHistogram}
+     */
+    NavigableMap<Integer, BitSet> getMonths() {
+        return months;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.PropertyUtil;
+import nl.tricode.magnolia.blogs.cache.AuthorCache;
+import nl.tricode.magnolia.blogs.cache.AuthorSummary;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
+import nl.tricode.magnolia.blogs.util.BlogJcrUtils;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.QueryExecutor;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Search-as-you-type completion of blog titles, category names and author names.
+ * Blogs are ranked by recency, categories and authors by their number of blogs. Only blogs past their publish date
+ * are suggested, and of those only the ones readable for the current user, as the index is built in the system
+ * context. The prefix tree is built from the {@link BlogIndex} on first use and again once the index, the categories
+ * or the authors changed, or the next scheduled blog got published. While one request rebuilds the tree, the others
+ * keep completing from the previous tree; blog suggestions are checked against the index on every request, so a
+ * previous tree never suggests removed or unpublished blogs. Category names are only read again after a change of the
+ * category workspace, author names come from the {@link AuthorCache}.
+ */
+public class BlogCompletion {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlogCompletion.class);
+
+    /**
+     * Maximum number of suggestions returned for a prefix.
+     */
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final String CATEGORY_NODE_TYPE = "mgnl:category";
+    private static final String ALL_CATEGORIES_QUERY = "SELECT p.* FROM [mgnl:category] AS p WHERE ISDESCENDANTNODE(p, '/')";
+    private static final String PROPERTY_DISPLAY_NAME = "displayName";
+
+    private final BlogIndex blogIndex;
+    private final ContentVersionTracker contentVersionTracker;
+    private final AuthorCache authorCache;
+
+    private volatile Map<String, String> categoryNames;
+    private volatile CompletionTrie trie;
+    private volatile long trieVersion = -1;
+    private volatile long trieExpires = Long.MAX_VALUE;
+    private volatile boolean stale;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Inject
+    public BlogCompletion(BlogIndex blogIndex, ContentVersionTracker contentVersionTracker, AuthorCache authorCache) {
+        this.blogIndex = blogIndex;
+        this.contentVersionTracker = contentVersionTracker;
+        this.authorCache = authorCache;
+        contentVersionTracker.addListener(BlogRepositoryConstants.CATEGORY, () -> {
+            categoryNames = null;
+            stale = true;
+        });
+        contentVersionTracker.addListener(BlogRepositoryConstants.CONTACTS, () -> stale = true);
+    }
+
+    /**
+     * @param prefix         Text typed so far
+     * @param maxSuggestions Maximum number of suggestions, at most {@link #MAX_SUGGESTIONS}
+     * @return Best suggestions starting with the prefix, none while the blog index is not ready
+     */
+    public List<Suggestion> complete(String prefix, int maxSuggestions) {
+        if (!blogIndex.isReady() || StringUtils.isBlank(prefix) || maxSuggestions <= 0) {
+            return Collections.emptyList();
+        }
+        final List<Suggestion> suggestions = getTrie().complete(prefix);
+        final long now = System.currentTimeMillis();
+        final List<Suggestion> readable = new ArrayList<>(Math.min(suggestions.size(), maxSuggestions));
+        try {
+            final Predicate<BlogIndexEntry> readableFilter = BlogJcrUtils.createReadableFilter();
+            for (Suggestion suggestion : suggestions) {
+                if (readable.size() == maxSuggestions) {
+                    break;
+                }
+                if (!Suggestion.TYPE_BLOG.equals(suggestion.getType()) || isReadable(suggestion, readableFilter, now)) {
+                    readable.add(suggestion);
+                }
+            }
+        } catch (RepositoryException e) {
+            LOGGER.error("Unable to check the read permissions of suggestions", e);
+            return Collections.emptyList();
+        }
+        return readable;
+    }
+
+    private boolean isReadable(Suggestion suggestion, Predicate<BlogIndexEntry> readableFilter, long now) {
+        final BlogIndexEntry entry = blogIndex.getEntry(suggestion.getIdentifier());
+        return entry != null && entry.isPublished(now) && readableFilter.test(entry);
+    }
+
+    private CompletionTrie getTrie() {
+        final CompletionTrie current = trie;
+        if (current != null && isCurrent()) {
+            return current;
+        }
+        // Only the first tree is waited for, afterwards one request rebuilds while the others use the previous tree
+        if (current != null && !rebuilding.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            synchronized (this) {
+                if (trie == null || !isCurrent()) {
+                    final long now = System.currentTimeMillis();
+                    final long version = blogIndex.getVersion();
+                    stale = false;
+                    final List<BlogIndexEntry> entries = blogIndex.getEntries();
+                    final CompletionTrie built = CompletionTrie.build(createSuggestions(entries, now), MAX_SUGGESTIONS);
+                    trieVersion = version;
+                    trieExpires = blogIndex.getNextPublishDate(now);
+                    trie = built;
+                    LOGGER.debug("Built completion tree of {} suggestions in {} ms", built.size(), System.currentTimeMillis() - now);
+                }
+                return trie;
+            }
+        } finally {
+            if (current != null) {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    private boolean isCurrent() {
+        return !stale && trieVersion == blogIndex.getVersion() && System.currentTimeMillis() < trieExpires;
+    }
+
+    private List<Suggestion> createSuggestions(List<BlogIndexEntry> entries, long now) {
+        final List<Suggestion> suggestions = new ArrayList<>();
+
+        final List<BlogIndexEntry> published = new ArrayList<>(entries.size());
+        for (BlogIndexEntry entry : entries) {
+            if (entry.isPublished(now) && StringUtils.isNotBlank(entry.getTitle())) {
+                published.add(entry);
+            }
+        }
+        for (int i = 0; i < published.size(); i++) {
+            final BlogIndexEntry entry = published.get(i);
+            suggestions.add(new Suggestion(Suggestion.TYPE_BLOG, entry.getIdentifier(), entry.getTitle(), 1d - (double) i / published.size()));
+        }
+
+        final BlogFacets facets = blogIndex.select().withFilter(entry -> entry.isPublished(now)).facets("/");
+        final Map<String, String> names = getCategoryNames();
+        final double maxCategoryCount = facets.getCategories().values().stream().mapToInt(Integer::intValue).max().orElse(1);
+        for (Map.Entry<String, Integer> category : facets.getCategories().entrySet()) {
+            final String name = names.get(category.getKey());
+            if (StringUtils.isNotBlank(name)) {
+                suggestions.add(new Suggestion(Suggestion.TYPE_CATEGORY, category.getKey(), name, category.getValue() / maxCategoryCount));
+            }
+        }
+
+        final double maxAuthorCount = facets.getAuthors().values().stream().mapToInt(Integer::intValue).max().orElse(1);
+        for (Map.Entry<String, Integer> author : facets.getAuthors().entrySet()) {
+            final AuthorSummary summary = authorCache.get(author.getKey());
+            if (summary != null && StringUtils.isNotBlank(summary.getName())) {
+                suggestions.add(new Suggestion(Suggestion.TYPE_AUTHOR, author.getKey(), summary.getName(), author.getValue() / maxAuthorCount));
+            }
+        }
+        return suggestions;
+    }
+
+    private Map<String, String> getCategoryNames() {
+        Map<String, String> names = categoryNames;
+        if (names == null) {
+            final long version = contentVersionTracker.getVersion(BlogRepositoryConstants.CATEGORY);
+            names = readCategoryNames();
+            // Only keep the names when the categories did not change in the meantime
+            if (version == contentVersionTracker.getVersion(BlogRepositoryConstants.CATEGORY)) {
+                categoryNames = names;
+            }
+        }
+        return names;
+    }
+
+    private static Map<String, String> readCategoryNames() {
+        return MgnlContext.doInSystemContext(new MgnlContext.Op<Map<String, String>, RuntimeException>() {
+            @Override
+            public Map<String, String> exec() {
+                final Map<String, String> names = new HashMap<>();
+                try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.CATEGORY,
+                        ALL_CATEGORIES_QUERY, Collections.<String, Object>emptyMap())) {
+                    final NodeIterator categories = execution.getNodes(CATEGORY_NODE_TYPE);
+                    while (categories.hasNext()) {
+                        final Node category = categories.nextNode();
+                        names.put(category.getIdentifier(), PropertyUtil.getString(category, PROPERTY_DISPLAY_NAME, category.getName()));
+                    }
+                } catch (RepositoryException e) {
+                    LOGGER.error("Unable to read the category names", e);
+                }
+                return Collections.unmodifiableMap(names);
+            }
+        }, true);
+    }
+}
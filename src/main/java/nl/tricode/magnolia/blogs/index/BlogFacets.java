@@ -0,0 +1,96 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Number of blogs per category, author and month of creation within a set of blogs, counted in a single pass.
+ */
+public final class BlogFacets {
+
+    private final Map<String, Integer> categories = new HashMap<>();
+    private final Map<String, Integer> authors = new HashMap<>();
+    private final NavigableMap<Integer, Integer> months = new TreeMap<>(Collections.reverseOrder());
+    private int total;
+
+    /**
+     * Count the categories, author and month of the given blog.
+     *
+     * @param entry Blog index entry
+     */
+    public void add(BlogIndexEntry entry) {
+        total++;
+        for (String categoryId : entry.getCategoryIds()) {
+            categories.merge(categoryId, 1, Integer::sum);
+        }
+        if (entry.getAuthorId() != null) {
+            authors.merge(entry.getAuthorId(), 1, Integer::sum);
+        }
+        if (entry.getCreated() != BlogIndexEntry.NO_DATE) {
+            months.merge(ArchiveHistogram.toKey(entry.getCreated()), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * @return Number of blogs counted
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Number of blogs by category identifier, highest count first
+     */
+    public Map<String, Integer> getCategories() {
+        return sortByCount(categories);
+    }
+
+    /**
+     * @return Number of blogs by author (contact) identifier, highest count first
+     */
+    public Map<String, Integer> getAuthors() {
+        return sortByCount(authors);
+    }
+
+    /**
+     * @return Number of blogs by month of creation formatted as <i>yyyy-MM</i>, most recent month first
+     */
+    public Map<String, Integer> getMonths() {
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> month : months.entrySet()) {
+            result.put(String.format("%04d-%02d", ArchiveHistogram.getYear(month.getKey()), ArchiveHistogram.getMonth(month.getKey())),
+                    month.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Map<String, Integer> sortByCount(Map<String, Integer> counts) {
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEachOrdered(count -> result.put(count.getKey(), count.getValue()));
+        return Collections.unmodifiableMap(result);
+    }
+}
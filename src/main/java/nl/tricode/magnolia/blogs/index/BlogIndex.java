@@ -0,0 +1,556 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.cms.util.ObservationUtil;
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.NodeUtil;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.util.BlogCursor;
+import nl.tricode.magnolia.blogs.util.CursorPage;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.QueryExecutor;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of all mgnl:blog nodes in the collaboration workspace.
+ * The index is built when the module starts and kept current through JCR observation, so listings, counts,
+ * archives and clouds can be answered without running a query. Until the first build has finished
+ * {@link #isReady()} returns <code>false</code> and callers should fall back to querying the repository.
+ */
+public class BlogIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlogIndex.class);
+
+    private static final long OBSERVATION_DELAY = 1000;
+    private static final long OBSERVATION_MAX_DELAY = 5000;
+    private static final String ALL_BLOGS_QUERY = "SELECT p.* FROM [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p, '/')";
+
+    private final Map<String, BlogIndexEntry> entries = new ConcurrentHashMap<>();
+    private final ArchiveHistogram archive = new ArchiveHistogram();
+    private final RelatedBlogs related = new RelatedBlogs();
+    private final List<BlogIndexListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile List<BlogIndexEntry> entriesByCreated = Collections.emptyList();
+    private volatile List<BlogIndexEntry> entriesByActivation = Collections.emptyList();
+    private volatile Map<String, BlogIndexEntry> entriesByName = Collections.emptyMap();
+    private volatile NavigableMap<Integer, Integer> archiveCounts = Collections.emptyNavigableMap();
+    private volatile long[] publishDates = new long[0];
+    private volatile BlogBitmaps bitmaps = BlogBitmaps.EMPTY;
+    private volatile BlogBitmaps activationBitmaps = BlogBitmaps.EMPTY;
+    private volatile boolean ready;
+
+    private EventListener listener;
+
+    /**
+     * Register the observation listener and build the index in the background.
+     */
+    public synchronized void start() {
+        if (listener == null) {
+            listener = ObservationUtil.registerDeferredChangeListener(BlogRepositoryConstants.COLLABORATION, "/",
+                    this::onEvents, OBSERVATION_DELAY, OBSERVATION_MAX_DELAY);
+        }
+
+        final Thread builder = new Thread(this::rebuild, "blog-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * @param listener Listener to receive the changes of the index
+     */
+    public void addListener(BlogIndexListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener Listener to stop receiving the changes of the index
+     */
+    public void removeListener(BlogIndexListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Unregister the observation listener and stop answering from the index.
+     */
+    public synchronized void stop() {
+        ready = false;
+        if (listener != null) {
+            ObservationUtil.unregisterChangeListener(BlogRepositoryConstants.COLLABORATION, listener);
+            listener = null;
+        }
+    }
+
+    /**
+     * Read all blogs from the collaboration workspace, replacing the current content of the index.
+     */
+    public synchronized void rebuild() {
+        final long start = System.currentTimeMillis();
+
+        MgnlContext.doInSystemContext(new MgnlContext.VoidOp() {
+            @Override
+            public void doExec() {
+                try {
+                    try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.COLLABORATION,
+                            ALL_BLOGS_QUERY, Collections.<String, Object>emptyMap())) {
+                        final NodeIterator blogs = execution.getNodes(BlogsNodeTypes.Blog.NAME);
+
+                        entries.clear();
+                        archive.clear();
+                        related.clear();
+                        listeners.forEach(BlogIndexListener::rebuilding);
+                        while (blogs.hasNext()) {
+                            put(blogs.nextNode());
+                        }
+                    }
+                    publish();
+                    related.update();
+                    listeners.forEach(listener -> listener.published(true));
+                    ready = true;
+                } catch (RepositoryException e) {
+                    LOGGER.error("Unable to build the blog index", e);
+                }
+            }
+        }, true);
+
+        LOGGER.info("Indexed {} blogs in {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return <code>true</code> when the index has been built and can be used instead of a query
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return Number that is increased on every change of the index
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return All blogs sorted by date created in descending order
+     */
+    public List<BlogIndexEntry> getEntries() {
+        return entriesByCreated;
+    }
+
+    /**
+     * @return All blogs sorted by initial activation date and date created in descending order
+     */
+    public List<BlogIndexEntry> getEntriesByActivation() {
+        return entriesByActivation;
+    }
+
+    /**
+     * @return Number of blogs per packed month key of the date created, most recent month first
+     * @see ArchiveHistogram
+     */
+    public NavigableMap<Integer, Integer> getArchiveCounts() {
+        return archiveCounts;
+    }
+
+    /**
+     * Listings leaving out unpublished blogs change when a publish date passes, without any change of the index.
+     *
+     * @param now Current time in milliseconds
+     * @return First publish date after now, {@link Long#MAX_VALUE} when no blog is scheduled
+     */
+    public long getNextPublishDate(long now) {
+        final long[] dates = publishDates;
+        final int index = searchAfter(dates, now);
+        return index < dates.length ? dates[index] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return Last publish date up to now, {@link BlogIndexEntry#NO_DATE} when no blog has been published by date
+     */
+    public long getLastPublishDate(long now) {
+        final long[] dates = publishDates;
+        final int index = searchAfter(dates, now);
+        return index > 0 ? dates[index - 1] : BlogIndexEntry.NO_DATE;
+    }
+
+    /**
+     * @return Index of the first date after the given time in the sorted dates
+     */
+    private static int searchAfter(long[] dates, long time) {
+        int low = 0;
+        int high = dates.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (dates[middle] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Start a selection of blogs by author, category and month using the membership bitmaps of the index.
+     *
+     * @return Selection of all blogs
+     */
+    public BlogSelection select() {
+        return new BlogSelection(bitmaps);
+    }
+
+    /**
+     * Start a selection of blogs read by initial activation date and date created in descending order.
+     *
+     * @return Selection of all blogs
+     * @see #getAnchorByActivation(BlogCursor)
+     */
+    public BlogSelection selectByActivation() {
+        return new BlogSelection(activationBitmaps);
+    }
+
+    /**
+     * The activation date of the cursor is taken from the blog it refers to; when that blog is no longer indexed the
+     * cursor is positioned as a blog without activation date.
+     *
+     * @param cursor Position in a listing by activation date, may be <code>null</code>
+     * @return Anchor to seek in a selection by activation date, <code>null</code> when there is no cursor
+     */
+    public BlogIndexEntry getAnchorByActivation(BlogCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        final BlogIndexEntry anchor = getEntry(cursor.getIdentifier());
+        return anchor == null ? BlogIndexEntry.probe(cursor.getCreated(), cursor.getIdentifier()) : anchor;
+    }
+
+    /**
+     * @param identifier Blog node identifier
+     * @return Index entry or <code>null</code> when unknown
+     */
+    public BlogIndexEntry getEntry(String identifier) {
+        return identifier == null ? null : entries.get(identifier);
+    }
+
+    /**
+     * The related blogs are kept up to date in the background together with the index, so this is a lookup.
+     *
+     * @param identifier Blog node identifier
+     * @return Most related blogs first, at most {@value RelatedBlogs#MAX_RELATED}
+     */
+    public List<BlogIndexEntry> getRelated(String identifier) {
+        final List<String> identifiers = related.get(identifier);
+        final List<BlogIndexEntry> relatedEntries = new ArrayList<>(identifiers.size());
+        for (String relatedIdentifier : identifiers) {
+            final BlogIndexEntry entry = entries.get(relatedIdentifier);
+            if (entry != null) {
+                relatedEntries.add(entry);
+            }
+        }
+        return relatedEntries;
+    }
+
+    /**
+     * @param name Unique blog name
+     * @return Index entry, the most recently created one when the name is not unique, or <code>null</code> when unknown
+     */
+    public BlogIndexEntry getEntryByName(String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * Find blogs below the given path sorted by date created in descending order.
+     *
+     * @param path   Start node path in hierarchy
+     * @param filter Additional filter, may be <code>null</code>
+     * @return Matching blogs
+     */
+    public List<BlogIndexEntry> find(String path, Predicate<BlogIndexEntry> filter) {
+        return find(entriesByCreated, path, filter);
+    }
+
+    /**
+     * Select the blogs below the given path next to the cursor, sorted by date created in descending order.
+     * The cursor position is found by binary search and only the selected blogs are filtered, so the cost does not
+     * depend on the position in the listing.
+     *
+     * @param path     Start node path in hierarchy
+     * @param filter   Additional filter, may be <code>null</code>
+     * @param cursor   Position to seek, <code>null</code> for the most recent blogs
+     * @param pageSize Number of blogs per page
+     * @return Up to <code>pageSize + 1</code> matching blogs, see {@link CursorPage}
+     */
+    public List<BlogIndexEntry> seek(String path, Predicate<BlogIndexEntry> filter, BlogCursor cursor, int pageSize) {
+        final BlogIndexEntry anchor = cursor == null ? null : BlogIndexEntry.probe(cursor.getCreated(), cursor.getIdentifier());
+        return seek(entriesByCreated, BlogIndexEntry.BY_CREATED_DESC, anchor, cursor != null && cursor.isBefore(), path, filter, pageSize);
+    }
+
+    private static List<BlogIndexEntry> seek(List<BlogIndexEntry> source, Comparator<BlogIndexEntry> order, BlogIndexEntry anchor,
+                                             boolean before, String path, Predicate<BlogIndexEntry> filter, int pageSize) {
+        final List<BlogIndexEntry> selected = new ArrayList<>(Math.min(source.size(), CursorPage.withLookAhead(pageSize)));
+        if (before) {
+            for (int i = anchor == null ? -1 : search(source, order, anchor, false) - 1; i >= 0 && selected.size() <= pageSize; i--) {
+                if (matches(source.get(i), path, filter)) {
+                    selected.add(source.get(i));
+                }
+            }
+            Collections.reverse(selected);
+        } else {
+            for (int i = anchor == null ? 0 : search(source, order, anchor, true); i < source.size() && selected.size() <= pageSize; i++) {
+                if (matches(source.get(i), path, filter)) {
+                    selected.add(source.get(i));
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return Index of the first entry sorted after the anchor, or sorted at or after the anchor when not <code>exclusive</code>
+     */
+    private static int search(List<BlogIndexEntry> source, Comparator<BlogIndexEntry> order, BlogIndexEntry anchor, boolean exclusive) {
+        int low = 0;
+        int high = source.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int compared = order.compare(source.get(middle), anchor);
+            if (compared < 0 || (exclusive && compared == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean matches(BlogIndexEntry entry, String path, Predicate<BlogIndexEntry> filter) {
+        return entry.isDescendantOf(path) && (filter == null || filter.test(entry));
+    }
+
+    private static List<BlogIndexEntry> find(List<BlogIndexEntry> source, String path, Predicate<BlogIndexEntry> filter) {
+        return source.stream()
+                .filter(entry -> entry.isDescendantOf(path))
+                .filter(filter == null ? entry -> true : filter)
+                .collect(Collectors.toList());
+    }
+
+    private void onEvents(EventIterator events) {
+        final Set<String> removedPaths = new HashSet<>();
+        final Set<String> addedPaths = new HashSet<>();
+        final Set<String> changedPaths = new HashSet<>();
+
+        while (events.hasNext()) {
+            final Event event = events.nextEvent();
+            try {
+                switch (event.getType()) {
+                    case Event.NODE_REMOVED:
+                        removedPaths.add(event.getPath());
+                        break;
+                    case Event.NODE_ADDED:
+                    case Event.NODE_MOVED:
+                        addedPaths.add(event.getPath());
+                        break;
+                    default:
+                        changedPaths.add(StringUtils.defaultIfEmpty(StringUtils.substringBeforeLast(event.getPath(), "/"), "/"));
+                }
+            } catch (RepositoryException e) {
+                LOGGER.warn("Unable to read observation event", e);
+            }
+        }
+
+        if (!removedPaths.isEmpty() || !addedPaths.isEmpty() || !changedPaths.isEmpty()) {
+            update(removedPaths, addedPaths, changedPaths);
+        }
+    }
+
+    private synchronized void update(final Collection<String> removedPaths,
+                                     final Collection<String> addedPaths,
+                                     final Collection<String> changedPaths) {
+        MgnlContext.doInSystemContext(new MgnlContext.VoidOp() {
+            @Override
+            public void doExec() {
+                remove(removedPaths);
+                try {
+                    final Session session = MgnlContext.getJCRSession(BlogRepositoryConstants.COLLABORATION);
+                    for (String path : addedPaths) {
+                        if (session.nodeExists(path)) {
+                            putAll(session.getNode(path));
+                        }
+                    }
+                    for (String path : changedPaths) {
+                        if (session.nodeExists(path)) {
+                            putNearest(session.getNode(path));
+                        }
+                    }
+                } catch (RepositoryException e) {
+                    LOGGER.error("Unable to update the blog index", e);
+                }
+            }
+        }, true);
+
+        publish();
+        related.update();
+        listeners.forEach(listener -> listener.published(false));
+        LOGGER.debug("Updated blog index: {} removed, {} added and {} changed paths", removedPaths.size(), addedPaths.size(), changedPaths.size());
+    }
+
+    /**
+     * Index the node when it is (part of) a blog, or every blog below it otherwise.
+     */
+    private void putAll(Node node) throws RepositoryException {
+        if (putNearest(node)) {
+            return;
+        }
+        for (Node child : NodeUtil.asIterable(node.getNodes())) {
+            putAll(child);
+        }
+    }
+
+    /**
+     * Index the node when it is a blog or when it is stored below a blog.
+     */
+    private boolean putNearest(Node node) throws RepositoryException {
+        if (node.isNodeType(BlogsNodeTypes.Blog.NAME)) {
+            put(node);
+            return true;
+        }
+        final Node blog = node.getDepth() > 0 ? NodeUtil.getNearestAncestorOfType(node, BlogsNodeTypes.Blog.NAME) : null;
+        if (blog != null) {
+            put(blog);
+            return true;
+        }
+        return false;
+    }
+
+    private void put(Node blog) throws RepositoryException {
+        final BlogIndexEntry entry = BlogIndexEntry.create(blog);
+        put(entry);
+        related.put(blog, entry);
+        for (BlogIndexListener listener : listeners) {
+            listener.indexed(blog, entry);
+        }
+    }
+
+    /**
+     * Add or replace the entry. Readers see the change after the next {@link #publish()}.
+     *
+     * @param entry Index entry of the blog
+     */
+    void put(BlogIndexEntry entry) {
+        uncount(entries.put(entry.getIdentifier(), entry));
+        if (entry.getCreated() != BlogIndexEntry.NO_DATE) {
+            archive.add(ArchiveHistogram.toKey(entry.getCreated()));
+        }
+    }
+
+    /**
+     * Remove the blogs stored at or below the removed paths. Readers see the change after the next {@link #publish()}.
+     *
+     * @param removedPaths Paths of the removed nodes
+     */
+    void remove(Collection<String> removedPaths) {
+        final Iterator<BlogIndexEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final BlogIndexEntry entry = iterator.next();
+            if (isRemoved(entry.getPath(), removedPaths)) {
+                iterator.remove();
+                uncount(entry);
+                related.remove(entry.getIdentifier());
+                listeners.forEach(listener -> listener.removed(entry));
+            }
+        }
+    }
+
+    private void uncount(BlogIndexEntry entry) {
+        if (entry != null && entry.getCreated() != BlogIndexEntry.NO_DATE) {
+            archive.remove(ArchiveHistogram.toKey(entry.getCreated()));
+        }
+    }
+
+    /**
+     * Replace the snapshot read by the listings with the current entries. A snapshot is never changed, so readers
+     * holding one keep a consistent view while the index is updated.
+     */
+    void publish() {
+        final List<BlogIndexEntry> byCreated = new ArrayList<>(entries.values());
+        byCreated.sort(BlogIndexEntry.BY_CREATED_DESC);
+
+        final List<BlogIndexEntry> byActivation = new ArrayList<>(byCreated);
+        byActivation.sort(BlogIndexEntry.BY_ACTIVATION_DESC);
+
+        final Map<String, BlogIndexEntry> byName = new HashMap<>(byCreated.size() * 4 / 3 + 1);
+        final long[] dates = new long[byCreated.size()];
+        int dateCount = 0;
+        for (BlogIndexEntry entry : byCreated) {
+            byName.putIfAbsent(entry.getName(), entry);
+            if (entry.getPublishDate() != BlogIndexEntry.NO_DATE) {
+                dates[dateCount++] = entry.getPublishDate();
+            }
+        }
+        final long[] sortedDates = Arrays.copyOf(dates, dateCount);
+        Arrays.sort(sortedDates);
+
+        entriesByCreated = Collections.unmodifiableList(byCreated);
+        entriesByActivation = Collections.unmodifiableList(byActivation);
+        entriesByName = Collections.unmodifiableMap(byName);
+        bitmaps = new BlogBitmaps(entriesByCreated, BlogIndexEntry.BY_CREATED_DESC);
+        activationBitmaps = new BlogBitmaps(entriesByActivation, BlogIndexEntry.BY_ACTIVATION_DESC);
+        archiveCounts = archive.getCounts();
+        publishDates = sortedDates;
+        version.incrementAndGet();
+    }
+
+    private static boolean isRemoved(String path, Collection<String> removedPaths) {
+        for (String removedPath : removedPaths) {
+            if (path.equals(removedPath) || path.startsWith(removedPath + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.jcr.util.NodeTypes;
+import info.magnolia.jcr.util.PropertyUtil;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable summary of a single mgnl:blog node as kept by the {@link BlogIndex}.
+ */
+public final class BlogIndexEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Date value used when a blog does not have the date property set.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Orders entries like <code>ORDER BY p.[mgnl:created] desc</code>.
+     */
+    public static final Comparator<BlogIndexEntry> BY_CREATED_DESC = Comparator
+            .comparingLong(BlogIndexEntry::getCreated).reversed()
+            .thenComparing(BlogIndexEntry::getIdentifier);
+
+    /**
+     * Orders entries like <code>ORDER BY p.initialActivationDate desc, p.[mgnl:created] desc</code>.
+     */
+    public static final Comparator<BlogIndexEntry> BY_ACTIVATION_DESC = Comparator
+            .comparingLong(BlogIndexEntry::getInitialActivationDate).reversed()
+            .thenComparing(BY_CREATED_DESC);
+
+    private final String identifier;
+    private final String name;
+    private final String title;
+    private final String path;
+    private final long created;
+    private final long initialActivationDate;
+    private final long publishDate;
+    private final String authorId;
+    private final Set<String> categoryIds;
+
+    BlogIndexEntry(String identifier, String name, String title, String path, long created, long initialActivationDate,
+                   long publishDate, String authorId, Set<String> categoryIds) {
+        this.identifier = identifier;
+        this.name = name;
+        this.title = title;
+        this.path = path;
+        this.created = created;
+        this.initialActivationDate = initialActivationDate;
+        this.publishDate = publishDate;
+        this.authorId = authorId;
+        this.categoryIds = categoryIds;
+    }
+
+    /**
+     * Read the indexed properties of the given blog node.
+     *
+     * @param blog Blog node
+     * @return Index entry
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    public static BlogIndexEntry create(Node blog) throws RepositoryException {
+        final Set<String> categoryIds = new LinkedHashSet<>();
+        if (blog.hasProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES)) {
+            final Property categories = blog.getProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+            if (categories.isMultiple()) {
+                for (Value value : categories.getValues()) {
+                    categoryIds.add(value.getString());
+                }
+            } else {
+                categoryIds.add(categories.getString());
+            }
+        }
+
+        return new BlogIndexEntry(
+                blog.getIdentifier(),
+                blog.getName(),
+                PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_TITLE),
+                blog.getPath(),
+                toMillis(PropertyUtil.getDate(blog, NodeTypes.Created.CREATED)),
+                toMillis(PropertyUtil.getDate(blog, BlogsNodeTypes.Blog.PROPERTY_INITIALACTIVATIONDATE)),
+                toMillis(PropertyUtil.getDate(blog, BlogsNodeTypes.Blog.PROPERTY_PUBLISHDATE)),
+                PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_AUTHOR),
+                Collections.unmodifiableSet(categoryIds));
+    }
+
+    /**
+     * Create an entry only holding the date created and identifier, for positioning in a list sorted by
+     * {@link #BY_CREATED_DESC}.
+     *
+     * @param created    Date created in milliseconds
+     * @param identifier Blog node identifier
+     * @return Index entry
+     */
+    public static BlogIndexEntry probe(long created, String identifier) {
+        return new BlogIndexEntry(identifier, identifier, null, "/" + identifier, created, NO_DATE, NO_DATE, null,
+                Collections.<String>emptySet());
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Title of the blog, <code>null</code> when not set
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getInitialActivationDate() {
+        return initialActivationDate;
+    }
+
+    public long getPublishDate() {
+        return publishDate;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public Set<String> getCategoryIds() {
+        return categoryIds;
+    }
+
+    /**
+     * @param ancestorPath Path in repository
+     * @return <code>true</code> when this blog is stored below the given path (<code>ISDESCENDANTNODE</code>)
+     */
+    public boolean isDescendantOf(String ancestorPath) {
+        if (ancestorPath == null || "/".equals(ancestorPath) || ancestorPath.isEmpty()) {
+            return true;
+        }
+        return path.startsWith(ancestorPath.endsWith("/") ? ancestorPath : ancestorPath + "/");
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return <code>true</code> when the blog has no publish date or the publish date has passed
+     */
+    public boolean isPublished(long now) {
+        return publishDate == NO_DATE || publishDate <= now;
+    }
+
+    private static long toMillis(Calendar calendar) {
+        return calendar == null ? NO_DATE : calendar.getTimeInMillis();
+    }
+}
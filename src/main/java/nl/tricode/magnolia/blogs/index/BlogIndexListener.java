@@ -0,0 +1,53 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+/**
+ * Receives the changes of the {@link BlogIndex}, so other in-memory structures can be kept current without
+ * observing the repository themselves. Methods are called while the index is being updated, in system context.
+ */
+public interface BlogIndexListener {
+
+    /**
+     * A full rebuild starts, every blog is indexed again before {@link #published(boolean)} is called.
+     */
+    void rebuilding();
+
+    /**
+     * @param blog  Blog node that was added or changed
+     * @param entry Its new index entry
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    void indexed(Node blog, BlogIndexEntry entry) throws RepositoryException;
+
+    /**
+     * @param entry Index entry of the removed blog
+     */
+    void removed(BlogIndexEntry entry);
+
+    /**
+     * The changes are visible in the index.
+     *
+     * @param rebuilt <code>true</code> after a full rebuild
+     */
+    void published(boolean rebuilt);
+}
@@ -0,0 +1,369 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.cms.core.Path;
+import info.magnolia.jcr.util.NodeTypes;
+import info.magnolia.jcr.util.PropertyUtil;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Optional in-memory inverted index for full-text search of blogs, as an alternative to fuzzy <code>contains()</code>
+ * queries. Title, summary and message are indexed with boosts of 10, 5 and 2. Query terms match indexed terms
+ * exactly or, with half the weight, as prefix. Hits are scored by boosted term frequency and inverse document
+ * frequency, and only the requested page is kept in a bounded heap.
+ * The index follows the changes of the {@link BlogIndex} and is written to the Magnolia cache directory, so after a
+ * restart it answers searches right away and blogs that did not change since are not tokenized again. The file is
+ * written in the background at most once per {@value #SAVE_DELAY_SECONDS} seconds, and when the index is stopped.
+ */
+public class BlogSearchIndex implements BlogIndexListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlogSearchIndex.class);
+
+    private static final float TITLE_BOOST = 10f;
+    private static final float SUMMARY_BOOST = 5f;
+    private static final float MESSAGE_BOOST = 2f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    /**
+     * Version of the index file, written before the documents and checked on load. Increase it on every change of
+     * the file layout or of {@link SearchDocument}, so files of other versions are ignored and rebuilt.
+     */
+    private static final int FORMAT_VERSION = 2;
+    private static final String INDEX_FILE = "blogs" + File.separator + "search-index.ser";
+    private static final long SAVE_DELAY_SECONDS = 60;
+
+    private final BlogIndex blogIndex;
+    private final Map<String, SearchDocument> documents = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+
+    private Set<String> rebuiltIdentifiers;
+    private boolean started;
+    private volatile boolean ready;
+    private ScheduledExecutorService saver;
+    private ScheduledFuture<?> pendingSave;
+
+    @Inject
+    public BlogSearchIndex(BlogIndex blogIndex) {
+        this.blogIndex = blogIndex;
+    }
+
+    /**
+     * Load the index file when present and start following the blog index.
+     * Must be called before the blog index is started, so the first build of the blog index reaches this index.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        load();
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "blog-search-index-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        blogIndex.addListener(this);
+        started = true;
+    }
+
+    /**
+     * Stop following the blog index and stop answering searches. Changes not written yet are saved.
+     */
+    public synchronized void stop() {
+        blogIndex.removeListener(this);
+        started = false;
+        ready = false;
+        if (saver != null) {
+            if (pendingSave != null && pendingSave.cancel(false)) {
+                save();
+            }
+            pendingSave = null;
+            saver.shutdown();
+            saver = null;
+        }
+    }
+
+    /**
+     * @return <code>true</code> when the index has been loaded or built and can be used instead of a query
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @param path   Start node path in hierarchy
+     * @param query  Search text
+     * @param offset Number of best hits to skip
+     * @param limit  Maximum number of hits returned
+     * @return Page of hits by descending score, and the total number of hits
+     */
+    public SearchHits search(String path, String query, int offset, int limit) {
+        return search(path, query, null, offset, limit);
+    }
+
+    /**
+     * The path filter is applied before paging and counting, so it can leave out the blogs the user may not read
+     * without leaving pages short.
+     *
+     * @param path       Start node path in hierarchy
+     * @param query      Search text
+     * @param pathFilter Condition on the path of the hits, <code>null</code> to keep every hit
+     * @param offset     Number of best hits to skip
+     * @param limit      Maximum number of hits returned
+     * @return Page of hits by descending score, and the total number of hits
+     */
+    public SearchHits search(String path, String query, Predicate<String> pathFilter, int offset, int limit) {
+        final Map<String, Float> scores = new HashMap<>();
+        for (String term : new HashSet<>(Tokenizer.tokenize(query))) {
+            for (Map.Entry<String, Map<String, Float>> posting : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                final Map<String, Float> weights = posting.getValue();
+                final float factor = (posting.getKey().equals(term) ? 1f : PREFIX_MATCH_FACTOR) *
+                        (float) Math.log(1d + (double) documents.size() / Math.max(1, weights.size()));
+                for (Map.Entry<String, Float> weight : weights.entrySet()) {
+                    scores.merge(weight.getKey(), factor * weight.getValue(), Float::sum);
+                }
+            }
+        }
+
+        final Comparator<Map.Entry<String, Float>> byScore = Map.Entry.<String, Float>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        final int heapSize = (int) Math.min(Integer.MAX_VALUE - 1L, (long) Math.max(0, offset) + Math.max(0, limit));
+        final PriorityQueue<Map.Entry<String, Float>> best = new PriorityQueue<>(Math.min(heapSize, 1024) + 1, byScore);
+        int total = 0;
+        for (Map.Entry<String, Float> score : scores.entrySet()) {
+            final SearchDocument document = documents.get(score.getKey());
+            if (document == null || !isDescendantOf(document.path, path) || (pathFilter != null && !pathFilter.test(document.path))) {
+                continue;
+            }
+            total++;
+            if (heapSize > 0) {
+                best.add(score);
+                if (best.size() > heapSize) {
+                    best.poll();
+                }
+            }
+        }
+
+        final List<String> identifiers = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            identifiers.add(best.poll().getKey());
+        }
+        Collections.reverse(identifiers);
+        return new SearchHits(identifiers.subList(Math.min(identifiers.size(), Math.max(0, offset)), identifiers.size()), total);
+    }
+
+    @Override
+    public synchronized void rebuilding() {
+        rebuiltIdentifiers = new HashSet<>();
+    }
+
+    @Override
+    public synchronized void indexed(Node blog, BlogIndexEntry entry) throws RepositoryException {
+        if (rebuiltIdentifiers != null) {
+            rebuiltIdentifiers.add(entry.getIdentifier());
+        }
+
+        final Calendar lastModified = NodeTypes.LastModified.getLastModified(blog);
+        final long lastModifiedMillis = lastModified == null ? BlogIndexEntry.NO_DATE : lastModified.getTimeInMillis();
+        final SearchDocument current = documents.get(entry.getIdentifier());
+        if (current != null && lastModifiedMillis != BlogIndexEntry.NO_DATE && current.lastModified == lastModifiedMillis
+                && current.path.equals(entry.getPath())) {
+            return;
+        }
+
+        final Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_TITLE), TITLE_BOOST);
+        addTerms(weights, PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_SUMMARY), SUMMARY_BOOST);
+        addTerms(weights, PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_MESSAGE), MESSAGE_BOOST);
+        put(entry.getIdentifier(), new SearchDocument(entry.getPath(), lastModifiedMillis, weights));
+    }
+
+    @Override
+    public synchronized void removed(BlogIndexEntry entry) {
+        remove(entry.getIdentifier());
+    }
+
+    @Override
+    public synchronized void published(boolean rebuilt) {
+        if (rebuilt && rebuiltIdentifiers != null) {
+            for (String identifier : new ArrayList<>(documents.keySet())) {
+                if (!rebuiltIdentifiers.contains(identifier)) {
+                    remove(identifier);
+                }
+            }
+            rebuiltIdentifiers = null;
+        }
+        ready = true;
+        scheduleSave();
+    }
+
+    /**
+     * Save the index after a delay, so the changes of many observation batches are written at once and the file is not
+     * written while holding the lock of the index.
+     */
+    private void scheduleSave() {
+        if (saver != null && (pendingSave == null || pendingSave.isDone())) {
+            pendingSave = saver.schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Weigh each term by the boost of the field times the logarithm of its frequency in the field.
+     */
+    private static void addTerms(Map<String, Float> weights, String text, float boost) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : Tokenizer.tokenize(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            weights.merge(frequency.getKey(), boost * (1f + (float) Math.log(frequency.getValue())), Float::sum);
+        }
+    }
+
+    private void put(String identifier, SearchDocument document) {
+        remove(identifier);
+        documents.put(identifier, document);
+        for (Map.Entry<String, Float> weight : document.weights.entrySet()) {
+            postings.computeIfAbsent(weight.getKey(), term -> new ConcurrentHashMap<>()).put(identifier, weight.getValue());
+        }
+    }
+
+    private void remove(String identifier) {
+        final SearchDocument document = documents.remove(identifier);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.weights.keySet()) {
+            final Map<String, Float> weights = postings.get(term);
+            if (weights != null) {
+                weights.remove(identifier);
+                if (weights.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static boolean isDescendantOf(String path, String ancestorPath) {
+        if (ancestorPath == null || ancestorPath.isEmpty() || "/".equals(ancestorPath)) {
+            return true;
+        }
+        return path.startsWith(ancestorPath.endsWith("/") ? ancestorPath : ancestorPath + "/");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        final File file = getIndexFile();
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            final int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                LOGGER.info("Ignoring search index file of version {} instead of {}: {}", formatVersion, FORMAT_VERSION, file);
+                return;
+            }
+            final Map<String, SearchDocument> loaded = (Map<String, SearchDocument>) in.readObject();
+            for (Map.Entry<String, SearchDocument> document : loaded.entrySet()) {
+                put(document.getKey(), document.getValue());
+            }
+            ready = true;
+            LOGGER.info("Loaded search index of {} blogs from {}", documents.size(), file);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.warn("Unable to load the search index from {}, it will be rebuilt", file, e);
+            documents.clear();
+            postings.clear();
+        }
+    }
+
+    private void save() {
+        final File file = getIndexFile();
+        if (file == null || (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())) {
+            return;
+        }
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeObject(new HashMap<>(documents));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save the search index to {}", file, e);
+            return;
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to replace the search index file {}", file, e);
+        }
+    }
+
+    private static File getIndexFile() {
+        final File cacheDirectory = Path.getCacheDirectory();
+        return cacheDirectory == null ? null : new File(cacheDirectory, INDEX_FILE);
+    }
+
+    /**
+     * Indexed terms of a single blog.
+     */
+    private static final class SearchDocument implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final long lastModified;
+        private final Map<String, Float> weights;
+
+        private SearchDocument(String path, long lastModified, Map<String, Float> weights) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.weights = weights;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import nl.tricode.magnolia.blogs.util.CursorPage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Selection of blogs from the {@link BlogIndex} by author, categories and months of creation.
+ * Every criterion intersects the selection with the membership bitmaps of the index, so combining filters costs a
+ * few bitmap operations. Selected blogs are read in the order of the index snapshot, by date created or by activation
+ * date, most recent first, stopping as soon as the requested page is complete.
+ * A selection is not thread safe and is meant to be used for a single request.
+ */
+public final class BlogSelection {
+
+    private final BlogBitmaps bitmaps;
+    private BitSet selected;
+    private Predicate<BlogIndexEntry> filter;
+
+    BlogSelection(BlogBitmaps bitmaps) {
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * @param authorId Contact identifier, <code>null</code> to select any author
+     * @return This selection, limited to the blogs of the author
+     */
+    public BlogSelection withAuthor(String authorId) {
+        return authorId == null ? this : and(bitmaps.getAuthor(authorId));
+    }
+
+    /**
+     * @param categoryIds Category identifiers, <code>null</code> to select any category
+     * @return This selection, limited to the blogs in at least one of the categories
+     */
+    public BlogSelection withAnyCategory(Collection<String> categoryIds) {
+        if (categoryIds == null) {
+            return this;
+        }
+        final BitSet union = new BitSet();
+        for (String categoryId : categoryIds) {
+            final BitSet category = bitmaps.getCategory(categoryId);
+            if (category != null) {
+                union.or(category);
+            }
+        }
+        return and(union);
+    }
+
+    /**
+     * @param fromMonth First month, as packed month key
+     * @param toMonth   Last month, as packed month key
+     * @return This selection, limited to the blogs created in the months
+     * @see ArchiveHistogram#toKey(long)
+     */
+    public BlogSelection withMonths(int fromMonth, int toMonth) {
+        final BitSet union = new BitSet();
+        for (BitSet month : bitmaps.getMonths().subMap(fromMonth, true, toMonth, true).values()) {
+            union.or(month);
+        }
+        return and(union);
+    }
+
+    /**
+     * @param predicate Condition that has no bitmap, like the publish date, checked for every blog read
+     * @return This selection, limited to the blogs matching the predicate
+     */
+    public BlogSelection withFilter(Predicate<BlogIndexEntry> predicate) {
+        filter = filter == null ? predicate : filter.and(predicate);
+        return this;
+    }
+
+    /**
+     * @param path Start node path in hierarchy
+     * @return Number of selected blogs below the path
+     */
+    public int count(String path) {
+        final boolean root = isRoot(path);
+        if (root && filter == null) {
+            return selected == null ? bitmaps.getEntries().size() : selected.cardinality();
+        }
+        int count = 0;
+        for (int ordinal = next(0); ordinal >= 0; ordinal = next(ordinal + 1)) {
+            if (matches(bitmaps.getEntries().get(ordinal), root, path)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param path   Start node path in hierarchy
+     * @param offset Number of selected blogs to skip
+     * @param limit  Maximum number of blogs returned
+     * @return Selected blogs below the path, in the order of the selection
+     */
+    public List<BlogIndexEntry> get(String path, long offset, int limit) {
+        final List<BlogIndexEntry> page = new ArrayList<>(Math.min(limit, 64));
+        final boolean root = isRoot(path);
+        long skipped = 0;
+        for (int ordinal = next(0); ordinal >= 0 && page.size() < limit; ordinal = next(ordinal + 1)) {
+            final BlogIndexEntry entry = bitmaps.getEntries().get(ordinal);
+            if (matches(entry, root, path)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page.add(entry);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Select the blogs next to the anchor. The anchor position is found by binary search, so the cost does not depend
+     * on the position in the listing.
+     *
+     * @param path     Start node path in hierarchy
+     * @param anchor   Blog to position at, <code>null</code> for the first blogs
+     * @param before   <code>true</code> to select the blogs sorted before the anchor
+     * @param pageSize Number of blogs per page
+     * @return Up to <code>pageSize + 1</code> selected blogs below the path, see {@link CursorPage}
+     */
+    public List<BlogIndexEntry> seek(String path, BlogIndexEntry anchor, boolean before, int pageSize) {
+        final List<BlogIndexEntry> page = new ArrayList<>(Math.min(CursorPage.withLookAhead(pageSize), 64));
+        final boolean root = isRoot(path);
+        if (before) {
+            for (int ordinal = anchor == null ? -1 : previous(search(anchor, false) - 1); ordinal >= 0 && page.size() <= pageSize;
+                 ordinal = previous(ordinal - 1)) {
+                final BlogIndexEntry entry = bitmaps.getEntries().get(ordinal);
+                if (matches(entry, root, path)) {
+                    page.add(entry);
+                }
+            }
+            Collections.reverse(page);
+        } else {
+            for (int ordinal = next(anchor == null ? 0 : search(anchor, true)); ordinal >= 0 && page.size() <= pageSize;
+                 ordinal = next(ordinal + 1)) {
+                final BlogIndexEntry entry = bitmaps.getEntries().get(ordinal);
+                if (matches(entry, root, path)) {
+                    page.add(entry);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @param path Start node path in hierarchy
+     * @return Number of selected blogs below the path per category, author and month
+     */
+    public BlogFacets facets(String path) {
+        final BlogFacets facets = new BlogFacets();
+        final boolean root = isRoot(path);
+        for (int ordinal = next(0); ordinal >= 0; ordinal = next(ordinal + 1)) {
+            final BlogIndexEntry entry = bitmaps.getEntries().get(ordinal);
+            if (matches(entry, root, path)) {
+                facets.add(entry);
+            }
+        }
+        return facets;
+    }
+
+    private boolean matches(BlogIndexEntry entry, boolean root, String path) {
+        return (root || entry.isDescendantOf(path)) && (filter == null || filter.test(entry));
+    }
+
+    private BlogSelection and(BitSet bits) {
+        if (bits == null) {
+            selected = new BitSet();
+        } else if (selected == null) {
+            selected = (BitSet) bits.clone();
+        } else {
+            selected.and(bits);
+        }
+        return this;
+    }
+
+    /**
+     * @return First selected ordinal at or after the given one, <code>-1</code> when there is none
+     */
+    private int next(int ordinal) {
+        if (selected == null) {
+            return ordinal < bitmaps.getEntries().size() ? ordinal : -1;
+        }
+        return selected.nextSetBit(ordinal);
+    }
+
+    /**
+     * @return Last selected ordinal at or before the given one, <code>-1</code> when there is none
+     */
+    private int previous(int ordinal) {
+        if (ordinal < 0 || selected == null) {
+            return ordinal < 0 ? -1 : Math.min(ordinal, bitmaps.getEntries().size() - 1);
+        }
+        return selected.previousSetBit(ordinal);
+    }
+
+    /**
+     * @return Ordinal of the first blog sorted after the anchor, or sorted at or after the anchor when not <code>exclusive</code>
+     */
+    private int search(BlogIndexEntry anchor, boolean exclusive) {
+        final List<BlogIndexEntry> entries = bitmaps.getEntries();
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int compared = bitmaps.getOrder().compare(entries.get(middle), anchor);
+            if (compared < 0 || (exclusive && compared == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isRoot(String path) {
+        return path == null || path.isEmpty() || "/".equals(path);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.context.MgnlContext;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.QueryExecutor;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Closure table of the category hierarchy: every category identifier mapped to the identifiers of the category
+ * itself and all categories below it. The table is built on first use and dropped whenever the category workspace
+ * changes, so filtering on a category including its subcategories is a single set lookup.
+ */
+public class CategoryClosure {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryClosure.class);
+
+    private static final String CATEGORY_NODE_TYPE = "mgnl:category";
+    private static final String ALL_CATEGORIES_QUERY = "SELECT p.* FROM [mgnl:category] AS p WHERE ISDESCENDANTNODE(p, '/')";
+
+    private final ContentVersionTracker contentVersionTracker;
+
+    private volatile Map<String, Set<String>> closure;
+
+    @Inject
+    public CategoryClosure(ContentVersionTracker contentVersionTracker) {
+        this.contentVersionTracker = contentVersionTracker;
+        contentVersionTracker.addListener(BlogRepositoryConstants.CATEGORY, this::invalidate);
+    }
+
+    /**
+     * @param categoryId Category identifier
+     * @return Identifiers of the category and all its subcategories, only the given identifier when the category is unknown
+     */
+    public Set<String> getDescendants(String categoryId) {
+        if (StringUtils.isEmpty(categoryId)) {
+            return Collections.emptySet();
+        }
+        final Set<String> descendants = getClosure().get(categoryId);
+        return descendants == null ? Collections.singleton(categoryId) : descendants;
+    }
+
+    /**
+     * Drop the closure table, it is built again on next use.
+     */
+    public void invalidate() {
+        closure = null;
+    }
+
+    private Map<String, Set<String>> getClosure() {
+        Map<String, Set<String>> current = closure;
+        if (current == null) {
+            final long version = contentVersionTracker.getVersion(BlogRepositoryConstants.CATEGORY);
+            current = build();
+            // Only keep the table when changes are being tracked and the categories did not change in the meantime
+            if (current != null && contentVersionTracker.isStarted()
+                    && version == contentVersionTracker.getVersion(BlogRepositoryConstants.CATEGORY)) {
+                closure = current;
+            }
+        }
+        return current == null ? Collections.<String, Set<String>>emptyMap() : current;
+    }
+
+    /**
+     * Read all categories, adding each category to its own set and to the set of every category above it.
+     *
+     * @return Closure table or <code>null</code> when the categories could not be read
+     */
+    private static Map<String, Set<String>> build() {
+        final long start = System.currentTimeMillis();
+
+        final Map<String, Set<String>> table = MgnlContext.doInSystemContext(new MgnlContext.Op<Map<String, Set<String>>, RuntimeException>() {
+            @Override
+            public Map<String, Set<String>> exec() {
+                try {
+                    final Map<String, Set<String>> descendants = new HashMap<>();
+                    try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.CATEGORY,
+                            ALL_CATEGORIES_QUERY, Collections.<String, Object>emptyMap())) {
+                        final NodeIterator categories = execution.getNodes(CATEGORY_NODE_TYPE);
+                        while (categories.hasNext()) {
+                            final Node category = categories.nextNode();
+                            final String identifier = category.getIdentifier();
+
+                            Node node = category;
+                            do {
+                                descendants.computeIfAbsent(node.getIdentifier(), id -> new LinkedHashSet<>()).add(identifier);
+                                node = node.getDepth() > 0 ? node.getParent() : null;
+                            } while (node != null && node.isNodeType(CATEGORY_NODE_TYPE));
+                        }
+                    }
+
+                    descendants.replaceAll((id, ids) -> Collections.unmodifiableSet(ids));
+                    return descendants;
+                } catch (RepositoryException e) {
+                    LOGGER.error("Unable to read the category hierarchy", e);
+                    return null;
+                }
+            }
+        }, true);
+
+        LOGGER.debug("Built category closure in {} ms", System.currentTimeMillis() - start);
+        return table;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix tree of suggestions for search-as-you-type.
+ * Suggestions are found by the start of any of their first words, ignoring case, accents and punctuation. Every
+ * node of the tree holds its best suggestions, so completing a prefix only walks the characters of the prefix.
+ * Keys are cut off at {@link #MAX_KEY_LENGTH} characters to keep the tree small.
+ */
+public final class CompletionTrie {
+
+    /**
+     * Longest prefix that is told apart, longer prefixes are completed as their first characters.
+     */
+    public static final int MAX_KEY_LENGTH = 24;
+
+    private static final int MAX_WORDS = 8;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Comparator<Suggestion> BY_RANK = Comparator.comparingDouble(Suggestion::getWeight).reversed()
+            .thenComparing(Suggestion::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final Suggestion[] suggestions;
+    private final TrieNode root;
+
+    private CompletionTrie(Suggestion[] suggestions, TrieNode root) {
+        this.suggestions = suggestions;
+        this.root = root;
+    }
+
+    /**
+     * @param suggestions    All suggestions
+     * @param maxSuggestions Maximum number of suggestions returned for a prefix
+     * @return Prefix tree of the suggestions
+     */
+    public static CompletionTrie build(Collection<Suggestion> suggestions, int maxSuggestions) {
+        final Suggestion[] ranked = suggestions.toArray(new Suggestion[suggestions.size()]);
+        Arrays.sort(ranked, BY_RANK);
+
+        final BuildNode root = new BuildNode();
+        for (int i = 0; i < ranked.length; i++) {
+            for (String key : keys(ranked[i].getText())) {
+                BuildNode node = root;
+                for (int c = 0; c < key.length(); c++) {
+                    node = node.children.computeIfAbsent(key.charAt(c), character -> new BuildNode());
+                    node.add(i, maxSuggestions);
+                }
+            }
+        }
+        return new CompletionTrie(ranked, root.freeze());
+    }
+
+    /**
+     * @param prefix Text typed so far
+     * @return Best suggestions starting with the prefix, best first; none for an empty prefix
+     */
+    public List<Suggestion> complete(String prefix) {
+        final String key = StringUtils.left(normalize(prefix), MAX_KEY_LENGTH);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        TrieNode node = root;
+        for (int c = 0; c < key.length() && node != null; c++) {
+            node = node.getChild(key.charAt(c));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Suggestion> completions = new ArrayList<>(node.best.length);
+        for (int index : node.best) {
+            completions.add(suggestions[index]);
+        }
+        return completions;
+    }
+
+    /**
+     * @return Number of suggestions in the tree
+     */
+    public int size() {
+        return suggestions.length;
+    }
+
+    /**
+     * @param text Any text, may be <code>null</code>
+     * @return Lower case text without accents, with words separated by a single space
+     */
+    public static String normalize(String text) {
+        if (StringUtils.isBlank(text)) {
+            return StringUtils.EMPTY;
+        }
+        final String withoutAccents = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return The normalized text from the start of each of its first words
+     */
+    private static List<String> keys(String text) {
+        final String normalized = normalize(text);
+        final List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start >= 0 && start < normalized.length() && keys.size() < MAX_WORDS) {
+            keys.add(StringUtils.left(normalized.substring(start), MAX_KEY_LENGTH));
+            final int space = normalized.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+    private static final class BuildNode {
+        private final Map<Character, BuildNode> children = new TreeMap<>();
+        private final List<Integer> best = new ArrayList<>(1);
+
+        /**
+         * Suggestions are added in order of rank, so the first ones added are the best.
+         */
+        private void add(int index, int maxSuggestions) {
+            if (best.size() < maxSuggestions && (best.isEmpty() || best.get(best.size() - 1) != index)) {
+                best.add(index);
+            }
+        }
+
+        private TrieNode freeze() {
+            final char[] labels = new char[children.size()];
+            final TrieNode[] nodes = new TrieNode[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, BuildNode> child : children.entrySet()) {
+                labels[i] = child.getKey();
+                nodes[i] = child.getValue().freeze();
+                i++;
+            }
+            final int[] bestIndexes = new int[best.size()];
+            for (int b = 0; b < bestIndexes.length; b++) {
+                bestIndexes[b] = best.get(b);
+            }
+            return new TrieNode(labels, nodes, bestIndexes);
+        }
+    }
+
+    private static final class TrieNode {
+        private final char[] labels;
+        private final TrieNode[] children;
+        private final int[] best;
+
+        private TrieNode(char[] labels, TrieNode[] children, int[] best) {
+            this.labels = labels;
+            this.children = children;
+            this.best = best;
+        }
+
+        private TrieNode getChild(char label) {
+            final int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import info.magnolia.jcr.util.PropertyUtil;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of related blogs: for every blog the {@link #MAX_RELATED} most similar other blogs.
+ * Similarity is the Jaccard overlap of the categories plus, with a lower weight, the Jaccard overlap of the terms in
+ * title and summary. Candidates are found through posting lists of categories and terms, so a blog is only compared
+ * with the blogs it has something in common with.
+ * The table is maintained by the {@link BlogIndex}: blogs are put and removed while the index is updated, after which
+ * {@link #update()} recomputes only the blogs affected by those changes.
+ */
+final class RelatedBlogs {
+
+    /**
+     * Maximum number of related blogs kept per blog.
+     */
+    static final int MAX_RELATED = 20;
+
+    private static final double CATEGORY_WEIGHT = 0.7;
+    private static final double TERM_WEIGHT = 0.3;
+
+    /**
+     * Terms used by more blogs are too common to relate blogs by, and are not used to find candidates.
+     */
+    private static final int MAX_TERM_POSTINGS = 1000;
+
+    private static final String CATEGORY_PREFIX = "c:";
+    private static final String TERM_PREFIX = "t:";
+
+    private final Map<String, Profile> profiles = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+    private final Set<String> affected = new HashSet<>();
+    private final Map<String, List<String>> related = new ConcurrentHashMap<>();
+
+    private boolean recomputeAll;
+
+    /**
+     * @param identifier Blog node identifier
+     * @return Identifiers of the related blogs, most related first
+     */
+    List<String> get(String identifier) {
+        final List<String> identifiers = identifier == null ? null : related.get(identifier);
+        return identifiers == null ? Collections.<String>emptyList() : identifiers;
+    }
+
+    /**
+     * Forget all blogs, the table is recomputed completely on the next update.
+     */
+    synchronized void clear() {
+        profiles.clear();
+        postings.clear();
+        changed.clear();
+        affected.clear();
+        recomputeAll = true;
+    }
+
+    /**
+     * Add or replace the blog's categories and terms.
+     *
+     * @param blog  Blog node
+     * @param entry Index entry of the blog
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    synchronized void put(Node blog, BlogIndexEntry entry) throws RepositoryException {
+        final Set<String> terms = Tokenizer.distinctTerms(PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_TITLE));
+        terms.addAll(Tokenizer.distinctTerms(PropertyUtil.getString(blog, BlogsNodeTypes.Blog.PROPERTY_SUMMARY)));
+
+        put(entry.getIdentifier(), entry.getCategoryIds(), terms);
+    }
+
+    /**
+     * Add or replace the blog's categories and terms.
+     *
+     * @param identifier  Blog node identifier
+     * @param categoryIds Category identifiers of the blog
+     * @param terms       Distinct terms of the blog
+     */
+    synchronized void put(String identifier, Set<String> categoryIds, Set<String> terms) {
+        remove(identifier);
+        final Profile profile = new Profile(categoryIds, terms);
+        profiles.put(identifier, profile);
+        for (String feature : profile.getFeatures()) {
+            postings.computeIfAbsent(feature, key -> new HashSet<>()).add(identifier);
+        }
+    }
+
+    /**
+     * Remove the blog, the blogs it had something in common with are recomputed on the next update.
+     *
+     * @param identifier Blog node identifier
+     */
+    synchronized void remove(String identifier) {
+        changed.add(identifier);
+        final Profile profile = profiles.remove(identifier);
+        if (profile == null) {
+            return;
+        }
+        for (String feature : profile.getFeatures()) {
+            final Set<String> blogs = postings.get(feature);
+            if (blogs != null) {
+                addCandidates(feature, blogs, affected);
+                blogs.remove(identifier);
+                if (blogs.isEmpty()) {
+                    postings.remove(feature);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompute the related blogs of the changed blogs, of the blogs they had or have something in common with, and
+     * of the blogs which listed one of them as related.
+     */
+    synchronized void update() {
+        final Set<String> recompute;
+        if (recomputeAll) {
+            recompute = new HashSet<>(profiles.keySet());
+            related.keySet().retainAll(recompute);
+        } else {
+            recompute = new HashSet<>(affected);
+            for (String identifier : changed) {
+                recompute.add(identifier);
+                final Profile profile = profiles.get(identifier);
+                if (profile != null) {
+                    for (String feature : profile.getFeatures()) {
+                        addCandidates(feature, postings.get(feature), recompute);
+                    }
+                }
+            }
+            for (Map.Entry<String, List<String>> relatedBlogs : related.entrySet()) {
+                if (!Collections.disjoint(relatedBlogs.getValue(), changed)) {
+                    recompute.add(relatedBlogs.getKey());
+                }
+            }
+        }
+
+        for (String identifier : recompute) {
+            if (profiles.containsKey(identifier)) {
+                related.put(identifier, compute(identifier));
+            } else {
+                related.remove(identifier);
+            }
+        }
+
+        changed.clear();
+        affected.clear();
+        recomputeAll = false;
+    }
+
+    private List<String> compute(String identifier) {
+        final Profile profile = profiles.get(identifier);
+        final Map<String, int[]> overlaps = new HashMap<>();
+        for (String feature : profile.getFeatures()) {
+            final Set<String> blogs = postings.get(feature);
+            if (blogs == null || isTooCommon(feature, blogs)) {
+                continue;
+            }
+            final int type = feature.startsWith(CATEGORY_PREFIX) ? 0 : 1;
+            for (String blog : blogs) {
+                if (!blog.equals(identifier)) {
+                    overlaps.computeIfAbsent(blog, key -> new int[2])[type]++;
+                }
+            }
+        }
+
+        final Map<String, Double> scores = new HashMap<>(overlaps.size());
+        for (Map.Entry<String, int[]> overlap : overlaps.entrySet()) {
+            final Profile other = profiles.get(overlap.getKey());
+            scores.put(overlap.getKey(),
+                    CATEGORY_WEIGHT * jaccard(overlap.getValue()[0], profile.categoryCount, other.categoryCount) +
+                    TERM_WEIGHT * jaccard(overlap.getValue()[1], profile.termCount, other.termCount));
+        }
+
+        final List<String> relatedBlogs = new ArrayList<>(scores.keySet());
+        relatedBlogs.sort(Comparator.comparing((String blog) -> scores.get(blog)).reversed().thenComparing(Comparator.naturalOrder()));
+        return Collections.unmodifiableList(new ArrayList<>(relatedBlogs.subList(0, Math.min(MAX_RELATED, relatedBlogs.size()))));
+    }
+
+    private static void addCandidates(String feature, Set<String> blogs, Set<String> candidates) {
+        if (blogs != null && !isTooCommon(feature, blogs)) {
+            candidates.addAll(blogs);
+        }
+    }
+
+    private static boolean isTooCommon(String feature, Set<String> blogs) {
+        return feature.startsWith(TERM_PREFIX) && blogs.size() > MAX_TERM_POSTINGS;
+    }
+
+    private static double jaccard(int intersection, int size, int otherSize) {
+        final int union = size + otherSize - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    /**
+     * Categories and distinct terms of a blog.
+     */
+    private static final class Profile {
+        private final Set<String> features = new HashSet<>();
+        private final int categoryCount;
+        private final int termCount;
+
+        private Profile(Set<String> categoryIds, Set<String> terms) {
+            for (String categoryId : categoryIds) {
+                features.add(CATEGORY_PREFIX + categoryId);
+            }
+            for (String term : terms) {
+                features.add(TERM_PREFIX + term);
+            }
+            this.categoryCount = categoryIds.size();
+            this.termCount = terms.size();
+        }
+
+        private Set<String> getFeatures() {
+            return features;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page of hits found by the {@link BlogSearchIndex}.
+ */
+public final class SearchHits {
+
+    private final List<String> identifiers;
+    private final int total;
+
+    SearchHits(List<String> identifiers, int total) {
+        this.identifiers = Collections.unmodifiableList(identifiers);
+        this.total = total;
+    }
+
+    /**
+     * @return Blog node identifiers of the hits on the page, best hit first
+     */
+    public List<String> getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * @return Number of hits on all pages
+     */
+    public int getTotal() {
+        return total;
+    }
+}
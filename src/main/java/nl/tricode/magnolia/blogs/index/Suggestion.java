@@ -0,0 +1,68 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+/**
+ * Immutable completion of a search prefix: a blog title, category name or author name.
+ */
+public final class Suggestion {
+
+    public static final String TYPE_BLOG = "blog";
+    public static final String TYPE_CATEGORY = "category";
+    public static final String TYPE_AUTHOR = "author";
+
+    private final String type;
+    private final String identifier;
+    private final String text;
+    private final double weight;
+
+    /**
+     * @param type       One of the TYPE constants
+     * @param identifier Identifier of the blog, category or contact node
+     * @param text       Text to display
+     * @param weight     Rank of the suggestion, higher first
+     */
+    public Suggestion(String type, String identifier, String text, double weight) {
+        this.type = type;
+        this.identifier = identifier;
+        this.text = text;
+        this.weight = weight;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + text;
+    }
+}
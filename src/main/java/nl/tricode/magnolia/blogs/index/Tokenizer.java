@@ -0,0 +1,77 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits blog text into lower case terms, shared by the in-memory indexes so they agree on what a term is.
+ * Markup is removed, and stop words and single characters are left out.
+ */
+public final class Tokenizer {
+
+    private static final Pattern MARKUP = Pattern.compile("<[^>]*>|&[a-zA-Z#0-9]+;");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MINIMUM_TERM_LENGTH = 2;
+
+    private static final Set<String> STOP_WORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have", "how", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "we", "what", "when", "with", "you", "your",
+            "de", "het", "een", "en", "van", "voor", "met", "op", "te", "dat", "die", "is", "zijn", "niet", "ook", "om")));
+
+    private Tokenizer() {
+        // Prevent instantiating this class
+    }
+
+    /**
+     * @param text Plain text or HTML, may be <code>null</code>
+     * @return Terms in order of appearance, including duplicates
+     */
+    public static List<String> tokenize(String text) {
+        if (StringUtils.isBlank(text)) {
+            return Collections.emptyList();
+        }
+        final String plainText = MARKUP.matcher(text).replaceAll(" ").toLowerCase(Locale.ROOT);
+        final List<String> terms = new ArrayList<>();
+        for (String term : SEPARATOR.split(plainText)) {
+            if (term.length() >= MINIMUM_TERM_LENGTH && !STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * @param text Plain text or HTML, may be <code>null</code>
+     * @return Distinct terms in order of appearance
+     */
+    public static Set<String> distinctTerms(String text) {
+        return new LinkedHashSet<>(tokenize(text));
+    }
+}
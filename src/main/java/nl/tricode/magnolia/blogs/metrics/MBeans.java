@@ -0,0 +1,72 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registration of the module metrics with the platform MBean server.
+ */
+final class MBeans {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MBeans.class);
+
+    private MBeans() {
+        // Util class, prevent instantiating
+    }
+
+    /**
+     * Register the given bean, replacing a bean registered with the same name by an earlier start of the module.
+     *
+     * @param bean Metrics bean
+     * @param name Object name
+     * @return Registered object name, <code>null</code> when registering failed
+     */
+    static ObjectName register(Object bean, String name) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register {} with JMX", name, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param objectName Object name returned by {@link #register(Object, String)}
+     */
+    static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.debug("Unable to unregister {} from JMX", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Count, latency histogram and rows returned versus used of every JCR query executed by the module, per query shape.
+ * Queries taking longer than the slow query threshold are logged with the module method that issued them.
+ * The metrics are available through JMX once {@link #start()} has been called.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+
+    /**
+     * Default threshold for logging a query as slow.
+     */
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD = 500;
+
+    private static final int MAX_SHAPES = 500;
+    private static final String OTHER_SHAPES = "(other)";
+    private static final String MODULE_PACKAGE = "nl.tricode.magnolia.blogs.";
+    private static final String[] INFRASTRUCTURE_PACKAGES = {MODULE_PACKAGE + "util.", MODULE_PACKAGE + "metrics."};
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentMap<String, QueryStatistics> statistics = new ConcurrentHashMap<>();
+    private volatile long slowQueryThresholdMillis = DEFAULT_SLOW_QUERY_THRESHOLD;
+    private ObjectName objectName;
+
+    /**
+     * Register the metrics with the platform MBean server.
+     */
+    public synchronized void start() {
+        if (objectName == null) {
+            objectName = MBeans.register(this, OBJECT_NAME);
+        }
+    }
+
+    /**
+     * Unregister the metrics from the platform MBean server.
+     */
+    public synchronized void stop() {
+        if (objectName != null) {
+            MBeans.unregister(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Record one query execution.
+     *
+     * @param workspace    Workspace the query was executed in
+     * @param statement    JCR-SQL2 statement
+     * @param nanos        Time taken to execute the query and read its results
+     * @param rowsReturned Number of rows the query returned
+     * @param rowsUsed     Number of rows the caller used
+     */
+    public void record(String workspace, String statement, long nanos, long rowsReturned, long rowsUsed) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        final boolean slow = micros >= TimeUnit.MILLISECONDS.toMicros(slowQueryThresholdMillis);
+        getStatistics(workspace, normalize(statement)).record(micros, rowsReturned, rowsUsed, slow);
+
+        if (slow) {
+            LOGGER.warn("Slow query of {} ms in {} from {}, {} rows returned, {} used: {}", TimeUnit.NANOSECONDS.toMillis(nanos),
+                    workspace, findCaller(), rowsReturned, rowsUsed, statement);
+        }
+    }
+
+    @Override
+    public List<QueryStatistics> getQueries() {
+        final List<QueryStatistics> queries = new ArrayList<>(statistics.values());
+        queries.sort(Comparator.comparingLong(QueryStatistics::getCount).reversed());
+        return queries;
+    }
+
+    @Override
+    public long getExecutionCount() {
+        return statistics.values().stream().mapToLong(QueryStatistics::getCount).sum();
+    }
+
+    @Override
+    public long getSlowCount() {
+        return statistics.values().stream().mapToLong(QueryStatistics::getSlowCount).sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    @Override
+    public void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * @param statement JCR-SQL2 statement
+     * @return Shape of the statement: string and number literals replaced by <code>?</code> and whitespace collapsed
+     */
+    public static String normalize(String statement) {
+        if (statement == null) {
+            return StringUtils.EMPTY;
+        }
+        String shape = STRING_LITERAL.matcher(statement).replaceAll("'?'");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    private QueryStatistics getStatistics(String workspace, String shape) {
+        final String key = workspace + ':' + shape;
+        final QueryStatistics existing = statistics.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (statistics.size() >= MAX_SHAPES) {
+            // Statements built from unexpected input should not grow the metrics without bounds
+            return statistics.computeIfAbsent(OTHER_SHAPES, k -> new QueryStatistics(StringUtils.EMPTY, OTHER_SHAPES));
+        }
+        return statistics.computeIfAbsent(key, k -> new QueryStatistics(workspace, shape));
+    }
+
+    /**
+     * @return Class and method of the module code outside the query infrastructure that executed the query
+     */
+    private static String findCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            final String className = element.getClassName();
+            if (className.startsWith(MODULE_PACKAGE) && !StringUtils.startsWithAny(className, INFRASTRUCTURE_PACKAGES)) {
+                return StringUtils.substringAfterLast(className, ".") + "." + element.getMethodName() + ":" + element.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
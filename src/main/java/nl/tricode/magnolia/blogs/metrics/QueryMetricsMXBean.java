@@ -0,0 +1,56 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link QueryMetrics}, registered as {@value #OBJECT_NAME}.
+ */
+public interface QueryMetricsMXBean {
+
+    /**
+     * Object name the metrics are registered with.
+     */
+    String OBJECT_NAME = "nl.tricode.magnolia.blogs:type=QueryMetrics";
+
+    /**
+     * @return Statistics per query shape, most executed first
+     */
+    List<QueryStatistics> getQueries();
+
+    /**
+     * @return Number of query executions of all shapes
+     */
+    long getExecutionCount();
+
+    /**
+     * @return Number of executions that took longer than the slow query threshold
+     */
+    long getSlowCount();
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long slowQueryThresholdMillis);
+
+    /**
+     * Remove all statistics.
+     */
+    void reset();
+}
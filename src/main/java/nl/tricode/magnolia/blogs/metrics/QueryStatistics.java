@@ -0,0 +1,102 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of all executions of one query shape: a JCR-SQL2 statement with its literals normalized.
+ * Exposed through JMX as one row per query shape.
+ */
+public final class QueryStatistics {
+
+    private final String workspace;
+    private final String query;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder rowsUsed = new LongAdder();
+    private final LongAdder slowCount = new LongAdder();
+
+    QueryStatistics(String workspace, String query) {
+        this.workspace = workspace;
+        this.query = query;
+    }
+
+    void record(long micros, long returned, long used, boolean slow) {
+        latency.record(micros);
+        rowsReturned.add(returned);
+        rowsUsed.add(used);
+        if (slow) {
+            slowCount.increment();
+        }
+    }
+
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * @return Statement with literals replaced by <code>?</code>
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    public long getMeanMicros() {
+        return latency.getMean();
+    }
+
+    public long getP50Micros() {
+        return latency.getPercentile(50);
+    }
+
+    public long getP90Micros() {
+        return latency.getPercentile(90);
+    }
+
+    public long getP99Micros() {
+        return latency.getPercentile(99);
+    }
+
+    public long getMaxMicros() {
+        return latency.getMax();
+    }
+
+    /**
+     * @return Total number of rows the executions returned, as reported by the result or as read
+     */
+    public long getRowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    /**
+     * @return Total number of rows the callers actually used
+     */
+    public long getRowsUsed() {
+        return rowsUsed.sum();
+    }
+}
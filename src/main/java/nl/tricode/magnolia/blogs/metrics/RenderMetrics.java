@@ -0,0 +1,89 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram per rendering section of the blog components, aggregated from the {@link RenderTimings} of the
+ * timed requests. The metrics are available through JMX once {@link #start()} has been called.
+ */
+public class RenderMetrics implements RenderMetricsMXBean {
+
+    private final ConcurrentMap<String, RenderStatistics> statistics = new ConcurrentHashMap<>();
+    private final LongAdder requestCount = new LongAdder();
+    private ObjectName objectName;
+
+    /**
+     * Register the metrics with the platform MBean server.
+     */
+    public synchronized void start() {
+        if (objectName == null) {
+            objectName = MBeans.register(this, OBJECT_NAME);
+        }
+    }
+
+    /**
+     * Unregister the metrics from the platform MBean server.
+     */
+    public synchronized void stop() {
+        if (objectName != null) {
+            MBeans.unregister(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Record the timings of one request.
+     *
+     * @param timings Timings of the request
+     */
+    public void record(RenderTimings timings) {
+        requestCount.increment();
+        for (String name : timings.getNames()) {
+            statistics.computeIfAbsent(name, RenderStatistics::new)
+                    .record(TimeUnit.NANOSECONDS.toMicros(timings.getNanos(name)), timings.getCalls(name));
+        }
+    }
+
+    @Override
+    public List<RenderStatistics> getSections() {
+        final List<RenderStatistics> sections = new ArrayList<>(statistics.values());
+        sections.sort(Comparator.comparing(RenderStatistics::getName));
+        return sections;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    @Override
+    public void reset() {
+        statistics.clear();
+        requestCount.reset();
+    }
+}
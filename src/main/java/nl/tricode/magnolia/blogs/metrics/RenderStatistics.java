@@ -0,0 +1,79 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of one rendering section over all timed requests, the time per request being the sum of all calls.
+ * Exposed through JMX as one row per section.
+ */
+public final class RenderStatistics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+
+    RenderStatistics(String name) {
+        this.name = name;
+    }
+
+    void record(long micros, long callCount) {
+        latency.record(micros);
+        calls.add(callCount);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Number of requests timing this section
+     */
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return Number of times the section was timed in all requests
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getMeanMicros() {
+        return latency.getMean();
+    }
+
+    public long getP50Micros() {
+        return latency.getPercentile(50);
+    }
+
+    public long getP90Micros() {
+        return latency.getPercentile(90);
+    }
+
+    public long getP99Micros() {
+        return latency.getPercentile(99);
+    }
+
+    public long getMaxMicros() {
+        return latency.getMax();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import info.magnolia.context.Context;
+import info.magnolia.context.MgnlContext;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Time spent per section of rendering the blog components for the current request: the model constructor, the model
+ * methods called by the templates and the template rendering itself.
+ * Timings are only collected for requests started with {@link #begin()}, which the ServerTimingFilter does when it is
+ * enabled. Otherwise {@link #start(String)} returns a split doing nothing, costing a request attribute lookup only.
+ * Sections timed more than once in a request, like the categories of every blog in a listing, are summed.
+ * Every section reports its own (exclusive) time: the time of the sections nested in it, like the model methods
+ * called while the <code>render</code> section renders the template, is left out, so the durations add up.
+ */
+public final class RenderTimings {
+
+    private static final String REQUEST_ATTRIBUTE = RenderTimings.class.getName();
+    private static final Split NOOP = () -> {
+    };
+
+    private final Map<String, long[]> sections = new LinkedHashMap<>();
+    private OpenSection open;
+
+    /**
+     * Timing of one section, ended by closing it.
+     * Usage: <code>try (RenderTimings.Split ignored = RenderTimings.start("blogs")) {...}</code>
+     */
+    @FunctionalInterface
+    public interface Split extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Start collecting timings for the current request.
+     *
+     * @return Timings of the current request
+     */
+    public static RenderTimings begin() {
+        final RenderTimings timings = new RenderTimings();
+        MgnlContext.setAttribute(REQUEST_ATTRIBUTE, timings, Context.LOCAL_SCOPE);
+        return timings;
+    }
+
+    /**
+     * @param name Section name, a token as allowed in a <code>Server-Timing</code> header
+     * @return Split to close when the section ends
+     */
+    public static Split start(String name) {
+        final RenderTimings timings = current();
+        if (timings == null) {
+            return NOOP;
+        }
+        return timings.open(name);
+    }
+
+    /**
+     * @param name Section name
+     * @return Split to close when the section ends, nested in the section open at the moment
+     */
+    synchronized Split open(String name) {
+        open = new OpenSection(name, open);
+        return open;
+    }
+
+    private synchronized void close(OpenSection section) {
+        final long elapsed = System.nanoTime() - section.start;
+        if (open == section) {
+            open = section.parent;
+        }
+        if (section.parent != null) {
+            section.parent.nestedNanos += elapsed;
+        }
+        add(section.name, elapsed - section.nestedNanos);
+    }
+
+    private static RenderTimings current() {
+        if (!MgnlContext.isWebContext()) {
+            return null;
+        }
+        return (RenderTimings) MgnlContext.getAttribute(REQUEST_ATTRIBUTE, Context.LOCAL_SCOPE);
+    }
+
+    /**
+     * @param name  Section name
+     * @param nanos Own time spent in the section
+     */
+    public synchronized void add(String name, long nanos) {
+        final long[] section = sections.computeIfAbsent(name, key -> new long[2]);
+        section[0] += nanos;
+        section[1]++;
+    }
+
+    /**
+     * @return Names of the timed sections, in order of first completion
+     */
+    public synchronized Set<String> getNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(sections.keySet()));
+    }
+
+    /**
+     * @param name Section name
+     * @return Own time spent in the section in nanoseconds, without its nested sections
+     */
+    public synchronized long getNanos(String name) {
+        final long[] section = sections.get(name);
+        return section == null ? 0 : section[0];
+    }
+
+    /**
+     * @param name Section name
+     * @return Number of times the section was timed
+     */
+    public synchronized long getCalls(String name) {
+        final long[] section = sections.get(name);
+        return section == null ? 0 : section[1];
+    }
+
+    /**
+     * @return Timings as <code>Server-Timing</code> header value, durations in milliseconds
+     */
+    public synchronized String toServerTiming() {
+        final StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, long[]> section : sections.entrySet()) {
+            if (header.length() > 0) {
+                header.append(", ");
+            }
+            header.append(section.getKey()).append(";dur=")
+                    .append(String.format(Locale.ROOT, "%.1f", section.getValue()[0] / 1000000.0));
+            if (section.getValue()[1] > 1) {
+                header.append(";desc=\"").append(section.getValue()[1]).append(" calls\"");
+            }
+        }
+        return header.toString();
+    }
+
+    /**
+     * Section being timed, collecting the time of the sections nested in it.
+     */
+    private final class OpenSection implements Split {
+        private final String name;
+        private final OpenSection parent;
+        private final long start = System.nanoTime();
+        private long nestedNanos;
+        private boolean closed;
+
+        private OpenSection(String name, OpenSection parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                RenderTimings.this.close(this);
+            }
+        }
+    }
+}
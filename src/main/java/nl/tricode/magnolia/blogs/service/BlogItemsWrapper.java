@@ -31,6 +31,8 @@ public final class BlogItemsWrapper implements Serializable {
     private int totalCount;
     private int numPages;
     private List<Node> results;
+    private String olderCursor;
+    private String newerCursor;
 
     private BlogItemsWrapper() {
         // Enforce using the Builder
@@ -48,10 +50,26 @@ public final class BlogItemsWrapper implements Serializable {
         return results;
     }
 
+    /**
+     * @return Cursor of the next page of older blogs when paged by cursor, <code>null</code> otherwise
+     */
+    public String getOlderCursor() {
+        return olderCursor;
+    }
+
+    /**
+     * @return Cursor of the previous page of newer blogs when paged by cursor, <code>null</code> otherwise
+     */
+    public String getNewerCursor() {
+        return newerCursor;
+    }
+
     public static final class Builder {
         private final int totalCount;
         private int numPages;
         private List<Node> results = new ArrayList<>();
+        private String olderCursor;
+        private String newerCursor;
 
         private Builder(int totalCount) {
             this.totalCount = totalCount;
@@ -67,11 +85,19 @@ public final class BlogItemsWrapper implements Serializable {
             return this;
         }
 
+        public Builder withCursors(String olderCursor, String newerCursor) {
+            this.olderCursor = olderCursor;
+            this.newerCursor = newerCursor;
+            return this;
+        }
+
         public BlogItemsWrapper createInstance() {
             final BlogItemsWrapper instance = new BlogItemsWrapper();
             instance.totalCount = totalCount;
             instance.numPages = numPages;
             instance.results = results;
+            instance.olderCursor = olderCursor;
+            instance.newerCursor = newerCursor;
             return instance;
         }
 
@@ -20,6 +20,8 @@ package nl.tricode.magnolia.blogs.service;
 
 import nl.tricode.magnolia.blogs.exception.UnableToGetBlogException;
 import nl.tricode.magnolia.blogs.exception.UnableToGetLatestBlogsException;
+import nl.tricode.magnolia.blogs.index.BlogFacets;
+import nl.tricode.magnolia.blogs.util.BlogCursor;
 
 import javax.jcr.Node;
 
@@ -56,6 +58,32 @@ public interface BlogService {
     BlogItemsWrapper getLatestBlogItems(String searchRootPath, int pageNumber, int maxResultsPerPage, String categoryName, String categoryWorkspace)
             throws UnableToGetLatestBlogsException;
 
+    /**
+     * Returns the blog entries starting from given path next to the given cursor, filtered by given category identifier.
+     * Pages are selected by seeking to the cursor instead of skipping the preceding pages.
+     *
+     * @param searchRootPath    Start path to return blog items from
+     * @param cursor            Cursor from a previous page, <code>null</code> for the first page
+     * @param maxResultsPerPage Maximum results returned per page
+     * @param categoryUuid      Category (mgnl:category) identifier
+     * @return BlogItemsWrapper wrapper object holding the cursors of the neighbouring pages
+     * @throws UnableToGetLatestBlogsException When there was an error fetching the latest blog items
+     */
+    BlogItemsWrapper getLatestBlogItems(String searchRootPath, BlogCursor cursor, int maxResultsPerPage, String categoryUuid)
+            throws UnableToGetLatestBlogsException;
+
+    /**
+     * Returns the number of blogs per category, author and month of creation within the blogs starting from given
+     * path, filtered by given category and author identifier. Only blogs readable for the current user are counted.
+     *
+     * @param searchRootPath Start path to count blog items from
+     * @param categoryUuid   Category (mgnl:category) identifier, empty for any category
+     * @param authorId       Author (mgnl:contact) identifier, empty for any author
+     * @return Facet counts
+     * @throws UnableToGetLatestBlogsException When there was an error reading the blog items
+     */
+    BlogFacets getFacets(String searchRootPath, String categoryUuid, String authorId) throws UnableToGetLatestBlogsException;
+
     /**
      * Return the blog node for given identifier.
      *
@@ -75,7 +103,11 @@ public interface BlogService {
     Node getBlogByName(String name) throws UnableToGetBlogException;
 
     /**
-     * Get related blog items for given blog id. Match will be made based on blog categories
+     * Get related blog items for given blog id. Match will be made based on blog categories and on the terms in title
+     * and summary. Only blogs readable for the current user are returned.
+     * The total count is the number of related blogs found. While the blog index is ready only the most related blogs
+     * of every blog are kept, so the total count is limited to those; otherwise every blog mentioning one of the
+     * category names in its title, summary or message is counted.
      *
      * @param id                 Blog Node identifier
      * @param maxResultsReturned Maximum returned blog items
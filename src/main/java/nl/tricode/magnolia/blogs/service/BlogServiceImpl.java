@@ -18,30 +18,46 @@
  */
 package nl.tricode.magnolia.blogs.service;
 
-import info.magnolia.cms.util.QueryUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import info.magnolia.context.MgnlContext;
 import info.magnolia.jcr.util.NodeUtil;
 import info.magnolia.jcr.util.PropertyUtil;
-import info.magnolia.jcr.wrapper.I18nNodeWrapper;
 import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
 import nl.tricode.magnolia.blogs.exception.UnableToGetBlogException;
 import nl.tricode.magnolia.blogs.exception.UnableToGetLatestBlogsException;
+import nl.tricode.magnolia.blogs.index.BlogFacets;
+import nl.tricode.magnolia.blogs.index.BlogIndex;
+import nl.tricode.magnolia.blogs.index.BlogIndexEntry;
+import nl.tricode.magnolia.blogs.index.BlogSelection;
+import nl.tricode.magnolia.blogs.util.BlogCursor;
+import nl.tricode.magnolia.blogs.util.BlogJcrUtils;
 import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.CursorPage;
+import nl.tricode.magnolia.blogs.util.PreparedQueries;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import javax.jcr.Node;
-import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
-import javax.jcr.query.Query;
-import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * Blog content service implementation.
+ * Listings by page number are cached as blog identifiers and totals, so repeated listings only read the nodes of
+ * the page. Totals of listings from the blog index are cached separately, so paging through a listing counts its
+ * blogs once. The caches are bounded by size and age, and cleared when the collaboration workspace changes.
  */
 public class BlogServiceImpl implements BlogService {
 
@@ -51,8 +67,42 @@ public class BlogServiceImpl implements BlogService {
     private static final String SEARCH_BOOST_MEDIUM_IMPORTANT_FACTOR = "^5";
     private static final String SEARCH_BOOST_LESS_IMPORTANT_FACTOR = "^2";
 
+    private static final String VARIABLE_TITLE_TERMS = "titleTerms";
+    private static final String VARIABLE_SUMMARY_TERMS = "summaryTerms";
+    private static final String VARIABLE_MESSAGE_TERMS = "messageTerms";
+
     private static final String BASE_QUERY = "SELECT p.* FROM [%s] AS p WHERE ISDESCENDANTNODE(p, '%s') %s ";
     private static final String BASE_QUERY_ORDERBY = BASE_QUERY + " ORDER BY %s";
+    private static final String ACTIVATION_ORDER_BY = "p.initialActivationDate desc, p.[mgnl:created] desc, p.[jcr:uuid]";
+
+    /**
+     * Maximum number of listings kept in the listing cache.
+     */
+    private static final long MAXIMUM_CACHED_LISTINGS = 1000;
+
+    /**
+     * Minutes a listing is kept, as a safety net for changes that are not observed.
+     */
+    private static final long CACHED_LISTING_MINUTES = 10;
+
+    private final BlogIndex blogIndex;
+    private final ContentVersionTracker contentVersionTracker;
+    private final Cache<String, CachedListing> listings = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_LISTINGS)
+            .expireAfterWrite(CACHED_LISTING_MINUTES, TimeUnit.MINUTES)
+            .build();
+    private final Cache<String, Integer> totals = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_LISTINGS)
+            .expireAfterWrite(CACHED_LISTING_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    @Inject
+    public BlogServiceImpl(BlogIndex blogIndex, ContentVersionTracker contentVersionTracker) {
+        this.blogIndex = blogIndex;
+        this.contentVersionTracker = contentVersionTracker;
+        contentVersionTracker.addListener(BlogRepositoryConstants.COLLABORATION, listings::invalidateAll);
+        contentVersionTracker.addListener(BlogRepositoryConstants.COLLABORATION, totals::invalidateAll);
+    }
 
     @Override
     public BlogItemsWrapper getLatestBlogItems(final String searchRootPath,
@@ -60,15 +110,107 @@ public class BlogServiceImpl implements BlogService {
                                                final int maxResultsPerPage,
                                                final String categoryUuid)
             throws UnableToGetLatestBlogsException {
+        final String listingKey = getListingKey(searchRootPath, pageNumber, maxResultsPerPage, categoryUuid);
+        if (listingKey == null) {
+            return findLatestBlogItems(searchRootPath, pageNumber, maxResultsPerPage, categoryUuid);
+        }
+
+        try {
+            final CachedListing cachedListing = listings.getIfPresent(listingKey);
+            if (cachedListing != null) {
+                LOGGER.debug("Listing served from cache: {}", listingKey);
+                return cachedListing.toBlogItems();
+            }
+
+            final BlogItemsWrapper blogItems = findLatestBlogItems(searchRootPath, pageNumber, maxResultsPerPage, categoryUuid);
+            listings.put(listingKey, new CachedListing(blogItems));
+            return blogItems;
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception during fetch of blog items", e);
+            throw new UnableToGetLatestBlogsException("Unable to read blogs for the given criteria.", e);
+        }
+    }
+
+    private BlogItemsWrapper findLatestBlogItems(final String searchRootPath,
+                                                 final int pageNumber,
+                                                 final int maxResultsPerPage,
+                                                 final String categoryUuid)
+            throws UnableToGetLatestBlogsException {
+        if (isIndexReady()) {
+            final String path = StringUtils.defaultString(searchRootPath, "/");
+            try {
+                final BlogSelection selection = selectByActivation(categoryUuid);
+                final int totalCount = count(selection, path, categoryUuid);
+                final long offset = Math.max(0L, (long) maxResultsPerPage * (pageNumber - 1));
+
+                return BlogItemsWrapper.Builder
+                        .withTotalCount(totalCount)
+                        .withNumPages(determineNumberOfPages(totalCount, maxResultsPerPage))
+                        .withResults(BlogJcrUtils.getWrappedNodesFromIndex(selection.get(path, offset, maxResultsPerPage), maxResultsPerPage, 1))
+                        .createInstance();
+            } catch (RepositoryException e) {
+                LOGGER.error("Exception during fetch of blog items", e);
+                throw new UnableToGetLatestBlogsException("Unable to read blogs for the given criteria.", e);
+            }
+        }
+
         // jcr filter on category Uuid
         String customJcrFilter = "";
+        Map<String, Object> bindings = Collections.emptyMap();
         if (StringUtils.isNotBlank(categoryUuid)) {
-            customJcrFilter = "AND p.categories like '%" + categoryUuid + "%' ";
+            customJcrFilter = "AND p.categories = $" + PreparedQueries.CATEGORY + " ";
+            bindings = Collections.singletonMap(PreparedQueries.CATEGORY, categoryUuid);
         }
 
-        final String orderBy = "p.initialActivationDate desc, p.[mgnl:created] desc";
+        return findBlogItems(searchRootPath, pageNumber, maxResultsPerPage, customJcrFilter, bindings, ACTIVATION_ORDER_BY);
+    }
+
+    @Override
+    public BlogItemsWrapper getLatestBlogItems(final String searchRootPath,
+                                               final BlogCursor cursor,
+                                               final int maxResultsPerPage,
+                                               final String categoryUuid)
+            throws UnableToGetLatestBlogsException {
+        final String path = StringUtils.defaultString(searchRootPath, "/");
 
-        return findBlogItems(searchRootPath, pageNumber, maxResultsPerPage, customJcrFilter, orderBy);
+        try {
+            if (isIndexReady()) {
+                final BlogSelection selection = selectByActivation(categoryUuid);
+                final List<BlogIndexEntry> entries = selection.seek(path, blogIndex.getAnchorByActivation(cursor),
+                        cursor != null && cursor.isBefore(), maxResultsPerPage);
+                final CursorPage<BlogIndexEntry> page = CursorPage.create(entries, cursor, maxResultsPerPage, BlogCursor::valueOf);
+                final int totalCount = count(selection, path, categoryUuid);
+
+                return BlogItemsWrapper.Builder
+                        .withTotalCount(totalCount)
+                        .withNumPages(determineNumberOfPages(totalCount, maxResultsPerPage))
+                        .withResults(BlogJcrUtils.getWrappedNodesFromIndex(page.getItems(), maxResultsPerPage, 1))
+                        .withCursors(page.getOlderCursor(), page.getNewerCursor())
+                        .createInstance();
+            }
+
+            String customJcrFilter = "";
+            Map<String, Object> bindings = Collections.emptyMap();
+            if (StringUtils.isNotBlank(categoryUuid)) {
+                customJcrFilter = "AND p.categories = $" + PreparedQueries.CATEGORY + " ";
+                bindings = Collections.singletonMap(PreparedQueries.CATEGORY, categoryUuid);
+            }
+            final String jcrQuery = buildQuery(BlogsNodeTypes.Blog.NAME, path, customJcrFilter, ACTIVATION_ORDER_BY);
+
+            final int totalCount = BlogJcrUtils.countQueryResults(BlogRepositoryConstants.COLLABORATION, jcrQuery, bindings);
+            final CursorPage<Node> page = BlogJcrUtils.getWrappedNodesNextTo(BlogRepositoryConstants.COLLABORATION, jcrQuery, bindings,
+                    cursor, maxResultsPerPage);
+
+            return BlogItemsWrapper.Builder
+                    .withTotalCount(totalCount)
+                    .withNumPages(determineNumberOfPages(totalCount, maxResultsPerPage))
+                    .withResults(page.getItems())
+                    .withCursors(page.getOlderCursor(), page.getNewerCursor())
+                    .createInstance();
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception during fetch of blog items", e);
+            throw new UnableToGetLatestBlogsException("Unable to read blogs for the given criteria.", e);
+        }
     }
 
     @Override
@@ -83,6 +225,51 @@ public class BlogServiceImpl implements BlogService {
         return getLatestBlogItems(searchRootPath, pageNumber, maxResultsPerPage, categoryUuid);
     }
 
+    @Override
+    public BlogFacets getFacets(final String searchRootPath,
+                                final String categoryUuid,
+                                final String authorId)
+            throws UnableToGetLatestBlogsException {
+        final String path = StringUtils.defaultString(searchRootPath, "/");
+
+        if (isIndexReady()) {
+            try {
+                final BlogSelection selection = blogIndex.select().withAuthor(StringUtils.defaultIfBlank(authorId, null))
+                        .withFilter(BlogJcrUtils.createReadableFilter());
+                if (StringUtils.isNotBlank(categoryUuid)) {
+                    selection.withAnyCategory(Collections.singleton(categoryUuid));
+                }
+                return selection.facets(path);
+            } catch (RepositoryException e) {
+                LOGGER.error("Exception during counting of blog facets", e);
+                throw new UnableToGetLatestBlogsException("Unable to count blogs for the given criteria.", e);
+            }
+        }
+
+        final StringBuilder customJcrFilter = new StringBuilder();
+        final Map<String, Object> bindings = new LinkedHashMap<>();
+        if (StringUtils.isNotBlank(categoryUuid)) {
+            customJcrFilter.append("AND p.categories = $").append(PreparedQueries.CATEGORY).append(' ');
+            bindings.put(PreparedQueries.CATEGORY, categoryUuid);
+        }
+        if (StringUtils.isNotBlank(authorId)) {
+            customJcrFilter.append("AND p.author = $").append(PreparedQueries.AUTHOR).append(' ');
+            bindings.put(PreparedQueries.AUTHOR, authorId);
+        }
+        final String jcrQuery = buildQuery(BlogsNodeTypes.Blog.NAME, path, customJcrFilter.toString(), "");
+
+        try {
+            final BlogFacets facets = new BlogFacets();
+            for (Node blog : BlogJcrUtils.getWrappedNodesFromQuery(jcrQuery, bindings, Integer.MAX_VALUE, 1, BlogsNodeTypes.Blog.NAME)) {
+                facets.add(BlogIndexEntry.create(blog));
+            }
+            return facets;
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception during counting of blog facets", e);
+            throw new UnableToGetLatestBlogsException("Unable to count blogs for the given criteria.", e);
+        }
+    }
+
     @Override
     public Node getBlogById(final String id) throws UnableToGetBlogException {
         if (StringUtils.isBlank(id)) {
@@ -107,13 +294,18 @@ public class BlogServiceImpl implements BlogService {
     @Override
     public BlogItemsWrapper getRelatedBlogItemsById(final String id, final int maxResultsReturned)
             throws UnableToGetBlogException, UnableToGetLatestBlogsException {
+        if (isIndexReady() && StringUtils.isNotBlank(id)) {
+            return findBlogItems(getReadableRelated(id), maxResultsReturned, 1);
+        }
+
         final String searchRootPath = "/";
         final int pageNumber = 1;
         final String orderBy = "score() desc";
         final Node blog = getBlogById(id);
-        final String filterPredicate = getBlogRelatedSearchPredicate(blog);
+        final Map<String, Object> bindings = new LinkedHashMap<>();
+        final String filterPredicate = getBlogRelatedSearchPredicate(blog, bindings);
 
-        return findBlogItems(searchRootPath, pageNumber, maxResultsReturned, filterPredicate, orderBy);
+        return findBlogItems(searchRootPath, pageNumber, maxResultsReturned, filterPredicate, bindings, orderBy);
     }
 
     @Override
@@ -123,20 +315,124 @@ public class BlogServiceImpl implements BlogService {
         return getRelatedBlogItemsById(blogId, maxResultsReturned);
     }
 
+    /**
+     * Unreadable blogs are left out before paging, so the page is filled with readable related blogs.
+     */
+    private List<BlogIndexEntry> getReadableRelated(final String id) throws UnableToGetLatestBlogsException {
+        try {
+            final Predicate<BlogIndexEntry> readableFilter = BlogJcrUtils.createReadableFilter();
+            final List<BlogIndexEntry> related = new ArrayList<>();
+            for (BlogIndexEntry entry : blogIndex.getRelated(id)) {
+                if (readableFilter.test(entry)) {
+                    related.add(entry);
+                }
+            }
+            return related;
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception during fetch of related blog items", e);
+            throw new UnableToGetLatestBlogsException("Unable to read related blogs.", e);
+        }
+    }
+
+    private boolean isIndexReady() {
+        return blogIndex != null && blogIndex.isReady();
+    }
+
+    /**
+     * Select the readable blogs by initial activation date, so the totals match the blogs listed.
+     *
+     * @param categoryUuid Category identifier, blank for all blogs
+     * @return Selection of the blogs in the category readable for the current user
+     */
+    private BlogSelection selectByActivation(final String categoryUuid) throws RepositoryException {
+        final BlogSelection selection = blogIndex.selectByActivation().withFilter(BlogJcrUtils.createReadableFilter());
+        if (StringUtils.isNotBlank(categoryUuid)) {
+            selection.withAnyCategory(Collections.singleton(categoryUuid));
+        }
+        return selection;
+    }
+
+    /**
+     * Counting checks the read permission of every selected blog, so the total is kept until blogs change.
+     *
+     * @return Number of selected blogs below the path
+     */
+    private int count(final BlogSelection selection, final String path, final String categoryUuid) {
+        final String totalKey = getSelectionKey(path, categoryUuid);
+        if (totalKey == null) {
+            return selection.count(path);
+        }
+        Integer total = totals.getIfPresent(totalKey);
+        if (total == null) {
+            total = selection.count(path);
+            totals.put(totalKey, total);
+        }
+        return total;
+    }
+
+    /**
+     * @return Key of the listing in the listing cache, <code>null</code> when changes are not tracked
+     */
+    private String getListingKey(final String searchRootPath,
+                                 final int pageNumber,
+                                 final int maxResultsPerPage,
+                                 final String categoryUuid) {
+        final String selectionKey = getSelectionKey(searchRootPath, categoryUuid);
+        return selectionKey == null ? null : selectionKey + "|" + pageNumber + "|" + maxResultsPerPage;
+    }
+
+    /**
+     * The key holds the collaboration version, so a listing read while blogs changed is never served afterwards,
+     * and the user, as blogs that are not readable are left out of the listing.
+     *
+     * @return Key of the blogs listed below the path in the category, <code>null</code> when changes are not tracked
+     */
+    private String getSelectionKey(final String searchRootPath, final String categoryUuid) {
+        if (!contentVersionTracker.isStarted()) {
+            return null;
+        }
+        try {
+            final String userId = MgnlContext.getJCRSession(BlogRepositoryConstants.COLLABORATION).getUserID();
+            return contentVersionTracker.getVersion(BlogRepositoryConstants.COLLABORATION) + "|" + userId + "|" +
+                    StringUtils.defaultString(searchRootPath, "/") + "|" + StringUtils.trimToEmpty(categoryUuid);
+        } catch (RepositoryException e) {
+            LOGGER.debug("Unable to determine listing cache key", e);
+            return null;
+        }
+    }
+
+    private static BlogItemsWrapper findBlogItems(final List<BlogIndexEntry> entries,
+                                                  final int pageNumber,
+                                                  final int maxResultsPerPage) throws UnableToGetLatestBlogsException {
+        try {
+            return BlogItemsWrapper.Builder
+                    .withTotalCount(entries.size())
+                    .withNumPages(determineNumberOfPages(entries.size(), maxResultsPerPage))
+                    .withResults(BlogJcrUtils.getWrappedNodesFromIndex(entries, maxResultsPerPage, pageNumber))
+                    .createInstance();
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception during fetch of blog items", e);
+            throw new UnableToGetLatestBlogsException("Unable to read blogs for the given criteria.", e);
+        }
+    }
+
     private static BlogItemsWrapper findBlogItems(final String searchRootPath,
                                                   final int pageNumber,
                                                   final int maxResultsPerPage,
                                                   final String filter,
+                                                  final Map<String, ?> bindings,
                                                   final String orderBy) throws UnableToGetLatestBlogsException {
         final String jcrQuery = buildQuery(BlogsNodeTypes.Blog.NAME, StringUtils.defaultString(searchRootPath, "/"), filter, orderBy);
 
         try {
-            final List<Node> allBlogResults = executeQuery(jcrQuery, BlogRepositoryConstants.COLLABORATION, BlogsNodeTypes.Blog.NAME);
+            final int totalCount = BlogJcrUtils.countQueryResults(BlogRepositoryConstants.COLLABORATION, jcrQuery, bindings);
+            final List<Node> pagedResults = totalCount == 0 ? new ArrayList<>(0) :
+                    BlogJcrUtils.getWrappedNodesFromPagedQuery(BlogRepositoryConstants.COLLABORATION, jcrQuery, bindings, maxResultsPerPage, pageNumber);
 
             return BlogItemsWrapper.Builder
-                    .withTotalCount(allBlogResults.size())
-                    .withNumPages(determineNumberOfPages(allBlogResults.size(), maxResultsPerPage))
-                    .withResults(getPagedResults(allBlogResults, pageNumber, maxResultsPerPage))
+                    .withTotalCount(totalCount)
+                    .withNumPages(determineNumberOfPages(totalCount, maxResultsPerPage))
+                    .withResults(pagedResults)
                     .createInstance();
 
         } catch (RepositoryException e) {
@@ -145,41 +441,21 @@ public class BlogServiceImpl implements BlogService {
         }
     }
 
-    /**
-     * Execute JCR query returning Nodes matching given statement and return node type
-     *
-     * @param statement      JCR query string
-     * @param workspace      Search in JCR workspace like website
-     * @param returnItemType Return nodes based on primary node type
-     * @return List<Node>
-     * @throws javax.jcr.RepositoryException
-     */
-    private static List<Node> executeQuery(final String statement,
-                                           final String workspace,
-                                           final String returnItemType) throws RepositoryException {
-        List<Node> nodeList = new ArrayList<>(0);
-
-        NodeIterator items = QueryUtil.search(workspace, statement, Query.JCR_SQL2, returnItemType);
-
-        LOGGER.debug("Query Executed: {}", statement);
-
-        while (items.hasNext()) {
-            Node node = items.nextNode();
-            nodeList.add(new I18nNodeWrapper(node));
-        }
-        return nodeList;
-    }
-
-    private static String findBlogIdByName(final String blogName) throws UnableToGetBlogException {
+    private String findBlogIdByName(final String blogName) throws UnableToGetBlogException {
         if (StringUtils.isBlank(blogName)) {
             return "";
         }
-        final String blogFilter = String.format(" and name(p) = '%s'", blogName);
+        if (isIndexReady()) {
+            final BlogIndexEntry entry = blogIndex.getEntryByName(blogName);
+            return entry == null ? "" : entry.getIdentifier();
+        }
+        final String blogFilter = " and name(p) = $" + PreparedQueries.NAME;
         final String jcrQuery = buildQuery(BlogsNodeTypes.Blog.NAME, StringUtils.defaultString("/"), blogFilter, "");
         try {
-            List<Node> allBlogResults = executeQuery(jcrQuery, BlogRepositoryConstants.COLLABORATION, BlogsNodeTypes.Blog.NAME);
-            if (allBlogResults.size() > 0) {
-                return allBlogResults.get(0).getIdentifier();
+            List<Node> blogResults = BlogJcrUtils.getWrappedNodesFromPagedQuery(BlogRepositoryConstants.COLLABORATION, jcrQuery,
+                    Collections.singletonMap(PreparedQueries.NAME, blogName), 1, 1);
+            if (blogResults.size() > 0) {
+                return blogResults.get(0).getIdentifier();
             }
         } catch (RepositoryException e) {
             LOGGER.error("Exception during fetch of blog by it's name.", e);
@@ -193,13 +469,14 @@ public class BlogServiceImpl implements BlogService {
             return "";
         }
 
-        final String catFilter = String.format(" and p.name = '%s'", categoryName);
+        final String catFilter = " and p.name = $" + PreparedQueries.NAME;
         final String jcrQuery = buildQuery("mgnl:category", StringUtils.defaultString("/"), catFilter, "");
 
         try {
-            List<Node> allCategoriesResults = executeQuery(jcrQuery, workspace, "mgnl:category");
-            if (allCategoriesResults.size() > 0) {
-                return allCategoriesResults.get(0).getIdentifier();
+            List<Node> categoriesResults = BlogJcrUtils.getWrappedNodesFromPagedQuery(workspace, jcrQuery,
+                    Collections.singletonMap(PreparedQueries.NAME, categoryName), 1, 1);
+            if (categoriesResults.size() > 0) {
+                return categoriesResults.get(0).getIdentifier();
             }
         } catch (RepositoryException e) {
             LOGGER.error("Exception during fetch of category items.", e);
@@ -207,25 +484,29 @@ public class BlogServiceImpl implements BlogService {
         return "";
     }
 
-    private static String getBlogRelatedSearchPredicate(final Node blog) {
+    /**
+     * Create the related blogs predicate, adding the values of its bind variables to the given bindings.
+     */
+    private static String getBlogRelatedSearchPredicate(final Node blog, final Map<String, Object> bindings) {
         String searchTermPredicate = StringUtils.EMPTY;
 
         try {
             final List<String> categoryNames = convertCategoryValuesToNamesList(blog.getProperty("categories"));
 
+            bindings.put(PreparedQueries.NAME, blog.getName());
+            bindings.put(VARIABLE_TITLE_TERMS, getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_VERY_IMPORTANT_FACTOR));
+            bindings.put(VARIABLE_SUMMARY_TERMS, getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_MEDIUM_IMPORTANT_FACTOR));
+            bindings.put(VARIABLE_MESSAGE_TERMS, getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_LESS_IMPORTANT_FACTOR));
+
             // Start with excluding the origin blog node
-            StringBuilder predicate = new StringBuilder(MessageFormat.format(" AND name(p) <> ''{0}'' ", new Object[]{blog.getName()}));
-            // Start fuzzy match group
-            predicate.append(" AND (");
-            predicate.append(MessageFormat.format(" contains(p.title, ''{0}'')", new Object[]{getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_VERY_IMPORTANT_FACTOR)}));
-            predicate.append(MessageFormat.format(" OR contains(p.summary, ''{0}'') ", new Object[]{getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_MEDIUM_IMPORTANT_FACTOR)}));
-            predicate.append(MessageFormat.format(" OR contains(p.message, ''{0}'')", new Object[]{getCategoriesLucenePredicate(categoryNames, SEARCH_BOOST_LESS_IMPORTANT_FACTOR)}));
-            // End fuzzy match group
-            predicate.append(" )");
-
-            searchTermPredicate = predicate.toString();
+            searchTermPredicate = " AND name(p) <> $" + PreparedQueries.NAME +
+                    // Fuzzy match group
+                    " AND ( contains(p.title, $" + VARIABLE_TITLE_TERMS + ")" +
+                    " OR contains(p.summary, $" + VARIABLE_SUMMARY_TERMS + ") " +
+                    " OR contains(p.message, $" + VARIABLE_MESSAGE_TERMS + ") )";
         } catch (RepositoryException e) {
             LOGGER.debug("An error occurred when getting blog data", e);
+            bindings.clear();
         }
 
         return searchTermPredicate;
@@ -276,24 +557,6 @@ public class BlogServiceImpl implements BlogService {
         return calcNumPages;
     }
 
-    private static List<Node> getPagedResults(final List<Node> results,
-                                              final int pageNumber,
-                                              final int maxResultsPerPage) {
-        List<Node> nodeListPaged = new ArrayList<>(0);
-        final int total = results.size();
-        final int startRow = maxResultsPerPage * (pageNumber - 1);
-        int newLimit = maxResultsPerPage;
-
-        if (total > startRow) {
-            if (total < startRow + maxResultsPerPage) {
-                newLimit = total - startRow;
-            }
-            nodeListPaged = results.subList(startRow, startRow + newLimit);
-        }
-
-        return nodeListPaged;
-    }
-
     private static List<String> convertCategoryValuesToNamesList(final Property categories)
             throws RepositoryException {
         List<String> categoryNames = new ArrayList<>(0);
@@ -320,4 +583,31 @@ public class BlogServiceImpl implements BlogService {
         }
         return categoryNames;
     }
+
+    /**
+     * Listing result without live nodes: the identifiers of the blogs on the page and the totals.
+     */
+    private static final class CachedListing {
+        private final int totalCount;
+        private final int numPages;
+        private final List<String> identifiers;
+
+        private CachedListing(BlogItemsWrapper blogItems) throws RepositoryException {
+            this.totalCount = blogItems.getTotalCount();
+            this.numPages = blogItems.getNumPages();
+            final List<String> resultIdentifiers = new ArrayList<>(blogItems.getResults().size());
+            for (Node blog : blogItems.getResults()) {
+                resultIdentifiers.add(blog.getIdentifier());
+            }
+            this.identifiers = Collections.unmodifiableList(resultIdentifiers);
+        }
+
+        private BlogItemsWrapper toBlogItems() throws RepositoryException {
+            return BlogItemsWrapper.Builder
+                    .withTotalCount(totalCount)
+                    .withNumPages(numPages)
+                    .withResults(BlogJcrUtils.getWrappedNodesByIdentifier(identifiers))
+                    .createInstance();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.servlets;
+
+import info.magnolia.cms.security.User;
+import info.magnolia.cms.security.UserManager;
+import info.magnolia.context.MgnlContext;
+import nl.tricode.magnolia.blogs.index.BlogCompletion;
+import nl.tricode.magnolia.blogs.index.Suggestion;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * JSON endpoint for search-as-you-type, mapped to <code>/.blogs/suggest</code>.
+ * Takes the typed text as parameter <code>q</code> and optionally the number of suggestions as <code>max</code>, and
+ * answers an array of objects having <i>type</i>, <i>identifier</i> and <i>text</i>. Suggestions depend on the blogs
+ * the user can read, so only the answers for anonymous users may be cached publicly.
+ */
+public class BlogSuggestServlet extends HttpServlet {
+
+    private static final String PARAM_QUERY = "q";
+    private static final String PARAM_MAX = "max";
+    private static final int MAX_AGE_SECONDS = 60;
+
+    private final BlogCompletion blogCompletion;
+
+    @Inject
+    public BlogSuggestServlet(BlogCompletion blogCompletion) {
+        this.blogCompletion = blogCompletion;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final int max = Math.min(NumberUtils.toInt(request.getParameter(PARAM_MAX), BlogCompletion.MAX_SUGGESTIONS),
+                BlogCompletion.MAX_SUGGESTIONS);
+        final List<Suggestion> suggestions = blogCompletion.complete(StringUtils.left(request.getParameter(PARAM_QUERY), 100), max);
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", (isAnonymous() ? "public" : "private") + ", max-age=" + MAX_AGE_SECONDS);
+
+        final PrintWriter writer = response.getWriter();
+        writer.write('[');
+        for (int i = 0; i < suggestions.size(); i++) {
+            final Suggestion suggestion = suggestions.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write("{\"type\":\"" + StringEscapeUtils.escapeJson(suggestion.getType()) +
+                    "\",\"identifier\":\"" + StringEscapeUtils.escapeJson(suggestion.getIdentifier()) +
+                    "\",\"text\":\"" + StringEscapeUtils.escapeJson(suggestion.getText()) + "\"}");
+        }
+        writer.write(']');
+    }
+
+    private static boolean isAnonymous() {
+        final User user = MgnlContext.getUser();
+        return user == null || UserManager.ANONYMOUS_USER.equals(user.getName());
+    }
+}
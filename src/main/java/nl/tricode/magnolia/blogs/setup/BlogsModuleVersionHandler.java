@@ -23,7 +23,9 @@ import info.magnolia.module.InstallContext;
 import info.magnolia.module.delta.BootstrapSingleModuleResource;
 import info.magnolia.module.delta.BootstrapSingleResource;
 import info.magnolia.module.delta.DeltaBuilder;
+import info.magnolia.module.delta.FilterOrderingTask;
 import info.magnolia.module.delta.ModuleBootstrapTask;
+import info.magnolia.module.delta.RegisterModuleServletsTask;
 import info.magnolia.module.delta.RemoveNodeTask;
 import info.magnolia.module.delta.Task;
 
@@ -37,6 +39,8 @@ import java.util.List;
 public class BlogsModuleVersionHandler extends DefaultModuleVersionHandler {
 
     private static final String MODULE_NAME = "magnolia-blogs-module";
+    private static final String SERVER_TIMING_FILTER = "blogServerTiming";
+    private static final String CONDITIONAL_GET_FILTER = "blogConditionalGet";
 
     /**
      * Constructor.
@@ -71,6 +75,20 @@ public class BlogsModuleVersionHandler extends DefaultModuleVersionHandler {
                 .addTask(new BootstrapSingleModuleResource("Update config", "Add new CurrentDateField definition",
                         "/config/config.modules.ui-framework.fieldTypes.currentDateField.xml", ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING))
         );
+
+        register(DeltaBuilder.update("1.1.11", "Add blog search suggestions, dataset generator, render timing, conditional GET filter and batched folder publishing")
+                .addTask(new RegisterModuleServletsTask())
+                .addTask(new BootstrapSingleModuleResource("Commands config", "Installing the command generating a synthetic blog dataset",
+                        "/commands/config.modules.magnolia-blogs-module.commands.generator.xml", ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING))
+                .addTask(new BootstrapSingleModuleResource("Filter config", "Installing the disabled Server-Timing filter of the blog components",
+                        "/config/config.server.filters." + SERVER_TIMING_FILTER + ".xml", ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING))
+                .addTask(createServerTimingFilterOrderingTask())
+                .addTask(new BootstrapSingleModuleResource("Filter config", "Installing the filter answering conditional requests for blog pages",
+                        "/config/config.server.filters." + CONDITIONAL_GET_FILTER + ".xml", ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING))
+                .addTask(createConditionalGetFilterOrderingTask())
+                .addTask(new BootstrapSingleResource("Commands config", "Installing the command publishing a blog folder in batches",
+                        "/mgnl-bootstrap/updates/config.modules.magnolia-blogs-module.commands.activation.activateBlogFolder.xml", ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING))
+        );
     }
 
     /**
@@ -83,10 +101,26 @@ public class BlogsModuleVersionHandler extends DefaultModuleVersionHandler {
     protected List<Task> getExtraInstallTasks(final InstallContext installContext) {
         final List<Task> tasks = new ArrayList<>();
         tasks.addAll(super.getExtraInstallTasks(installContext));
+        tasks.add(createServerTimingFilterOrderingTask());
+        tasks.add(createConditionalGetFilterOrderingTask());
 
         return tasks;
     }
 
+    /**
+     * The Server-Timing filter has to run within the context filter and before the content is rendered.
+     */
+    private static Task createServerTimingFilterOrderingTask() {
+        return new FilterOrderingTask(SERVER_TIMING_FILTER, new String[]{"context", "contentType"});
+    }
+
+    /**
+     * The conditional GET filter answers before anything is rendered, but only after the request passed security.
+     */
+    private static Task createConditionalGetFilterOrderingTask() {
+        return new FilterOrderingTask(CONDITIONAL_GET_FILTER, new String[]{"context", "contentType", "uriSecurity"});
+    }
+
     @Override
     protected List<Task> getStartupTasks(final InstallContext installContext) {
         final List<Task> startupTasks = new ArrayList<>(0);
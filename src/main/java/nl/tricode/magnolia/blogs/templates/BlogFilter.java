@@ -0,0 +1,227 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import info.magnolia.context.Context;
+import info.magnolia.context.WebContext;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable filter of the blog components, read from the request parameters once per request and shared by all
+ * components on the page through the request context. The request parameters themselves are left untouched.
+ * Numeric parameters are validated and normalized when parsed; invalid values, like a month outside 1 to 12, are ignored.
+ */
+public final class BlogFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlogFilter.class);
+
+    public static final String CATEGORY = "category";
+    public static final String AUTHOR = "author";
+    public static final String PAGE = "page";
+    public static final String YEAR = "year";
+    public static final String MONTH = "month";
+    public static final String AFTER = "after";
+    public static final String BEFORE = "before";
+    public static final String SEARCH_TERM = "s";
+    public static final String SEARCH_PAGE = "p";
+
+    /**
+     * Request parameters the blog components filter on.
+     */
+    public static final List<String> PARAMETERS = Collections.unmodifiableList(Arrays.asList(
+            CATEGORY, AUTHOR, PAGE, YEAR, MONTH, AFTER, BEFORE, SEARCH_TERM, SEARCH_PAGE));
+
+    private static final List<String> NUMERIC_PARAMETERS = Arrays.asList(PAGE, YEAR, MONTH, SEARCH_PAGE);
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+    private static final String REQUEST_ATTRIBUTE = BlogFilter.class.getName();
+
+    private final SortedMap<String, String> values;
+    private final String key;
+
+    private BlogFilter(SortedMap<String, String> values) {
+        this.values = Collections.unmodifiableSortedMap(values);
+        this.key = createKey(values);
+    }
+
+    /**
+     * @param webContext Current web context
+     * @return Filter of the current request
+     */
+    public static BlogFilter get(WebContext webContext) {
+        BlogFilter filter = (BlogFilter) webContext.getAttribute(REQUEST_ATTRIBUTE, Context.LOCAL_SCOPE);
+        if (filter == null) {
+            filter = parse(webContext.getParameters());
+            webContext.setAttribute(REQUEST_ATTRIBUTE, filter, Context.LOCAL_SCOPE);
+        }
+        return filter;
+    }
+
+    /**
+     * @param parameters Request parameters
+     * @return Filter holding the non-empty and valid filter parameters
+     */
+    public static BlogFilter parse(Map<String, String> parameters) {
+        final SortedMap<String, String> values = new TreeMap<>();
+        if (parameters != null) {
+            for (String parameter : PARAMETERS) {
+                String value = StringUtils.trimToNull(parameters.get(parameter));
+                if (value != null && NUMERIC_PARAMETERS.contains(parameter)) {
+                    value = normalizeInteger(parameter, value);
+                }
+                if (value != null) {
+                    values.put(parameter, value);
+                }
+            }
+        }
+        return new BlogFilter(values);
+    }
+
+    /**
+     * @param parameter Filter parameter
+     * @return <code>true</code> when the parameter is set
+     */
+    public boolean has(String parameter) {
+        return values.containsKey(parameter);
+    }
+
+    /**
+     * @param parameter Filter parameter
+     * @return Value of the parameter or <code>null</code> when not set
+     */
+    public String get(String parameter) {
+        return values.get(parameter);
+    }
+
+    /**
+     * @return Requested page number, <code>1</code> when not set
+     */
+    public int getPage() {
+        return getInt(PAGE, 1);
+    }
+
+    /**
+     * @return Requested search results page number, <code>1</code> when not set
+     */
+    public int getSearchPage() {
+        return getInt(SEARCH_PAGE, 1);
+    }
+
+    /**
+     * @return Requested year or <code>null</code> when not set
+     */
+    public Integer getYear() {
+        return has(YEAR) ? getInt(YEAR, 0) : null;
+    }
+
+    /**
+     * @return Requested month, 1 for January, or <code>null</code> when not set
+     */
+    public Integer getMonth() {
+        return has(MONTH) ? getInt(MONTH, 0) : null;
+    }
+
+    /**
+     * @return Filter parameters by name, sorted by name
+     */
+    public SortedMap<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return Canonical form of the filter, equal for equal filters regardless of the order or presence of other
+     * request parameters, to be used as cache key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BlogFilter && key.equals(((BlogFilter) other).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    private int getInt(String parameter, int defaultValue) {
+        final String value = values.get(parameter);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * @return Integer value without leading zeros or sign, <code>null</code> when invalid, out of range or when it is
+     * the first page
+     */
+    private static String normalizeInteger(String parameter, String value) {
+        final boolean page = PAGE.equals(parameter) || SEARCH_PAGE.equals(parameter);
+        try {
+            final int number = Integer.parseInt(value);
+            if (!isInRange(parameter, number)) {
+                LOGGER.debug("Ignoring out of range value of parameter {}: {}", parameter, value);
+                return null;
+            }
+            return page && number == 1 ? null : Integer.toString(number);
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring invalid value of parameter {}: {}", parameter, value);
+            return null;
+        }
+    }
+
+    /**
+     * Out of range dates are rejected, as a lenient calendar would roll them over into another year.
+     */
+    private static boolean isInRange(String parameter, int number) {
+        switch (parameter) {
+            case YEAR:
+                return number >= MIN_YEAR && number <= MAX_YEAR;
+            case MONTH:
+                return number >= 1 && number <= 12;
+            default:
+                return number >= 1;
+        }
+    }
+
+    private static String createKey(SortedMap<String, String> values) {
+        final StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            if (key.length() > 0) {
+                key.append('&');
+            }
+            key.append(value.getKey()).append('=').append(value.getValue().replace("%", "%25").replace("&", "%26"));
+        }
+        return key.toString();
+    }
+}
@@ -18,20 +18,34 @@
  */
 package nl.tricode.magnolia.blogs.templates;
 
-import com.google.common.collect.Maps;
-import info.magnolia.cms.util.QueryUtil;
+import freemarker.template.TemplateDirectiveModel;
 import info.magnolia.context.MgnlContext;
 import info.magnolia.context.WebContext;
 import info.magnolia.jcr.util.ContentMap;
+import info.magnolia.jcr.util.NodeTypes;
 import info.magnolia.jcr.util.NodeUtil;
+import info.magnolia.objectfactory.Components;
 import info.magnolia.rendering.model.RenderingModel;
 import info.magnolia.rendering.model.RenderingModelImpl;
 import info.magnolia.rendering.template.RenderableDefinition;
 import info.magnolia.templating.functions.TemplatingFunctions;
 import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.cache.ConditionalGet;
+import nl.tricode.magnolia.blogs.cache.FragmentCache;
+import nl.tricode.magnolia.blogs.index.ArchiveHistogram;
+import nl.tricode.magnolia.blogs.index.BlogFacets;
+import nl.tricode.magnolia.blogs.index.BlogIndex;
+import nl.tricode.magnolia.blogs.index.BlogIndexEntry;
+import nl.tricode.magnolia.blogs.index.BlogSelection;
+import nl.tricode.magnolia.blogs.index.CategoryClosure;
+import nl.tricode.magnolia.blogs.metrics.RenderTimings;
+import nl.tricode.magnolia.blogs.util.BlogCursor;
 import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
 import nl.tricode.magnolia.blogs.util.BlogJcrUtils;
-import org.apache.commons.collections.IteratorUtils;
+import nl.tricode.magnolia.blogs.util.CursorPage;
+import nl.tricode.magnolia.blogs.util.PreparedQueries;
+import nl.tricode.magnolia.blogs.util.QueryExecutor;
+import nl.tricode.magnolia.blogs.util.RoundTrips;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,23 +55,19 @@ import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
-import javax.jcr.query.Query;
-import java.text.DateFormat;
 import java.text.DateFormatSymbols;
-import java.text.SimpleDateFormat;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Magnolia {@link RenderableDefinition} for blog items.
@@ -68,41 +78,67 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
 
     private static final int DEFAULT_LATEST_COUNT = 5;
     private static final String DEFAULT_LANGUAGE = "en";
-    private static final String PARAM_CATEGORY = "category";
-    private static final String PARAM_AUTHOR = "author";
-    private static final String PARAM_PAGE = "page";
-    private static final String PARAM_YEAR = "year";
-    private static final String PARAM_MONTH = "month";
-    private static final List<String> WHITELISTED_PARAMETERS = Arrays.asList(PARAM_CATEGORY, PARAM_AUTHOR, PARAM_PAGE, PARAM_YEAR, PARAM_MONTH);
 
     private final WebContext webContext = MgnlContext.getWebContext();
     private final TemplatingFunctions templatingFunctions;
-    private final Map<String, String> filter;
+    private final BlogIndex blogIndex;
+    private final FragmentCache fragmentCache;
+    private final CategoryClosure categoryClosure;
+    private final CategoryResolver categoryResolver;
+    private final BlogFilter filter;
+    private final Map<String, Object> memo = new HashMap<>();
+    private Map<String, Object> filterBindings;
+    private CursorPage<Node> blogsPage;
+    private List<Node> pagedBlogs;
+    private int pagedSize;
+    private Computation<Integer> pagedCount;
 
-    @Inject
     public BlogRenderableDefinition(Node content, RD definition, RenderingModel<?> parent, TemplatingFunctions templatingFunctions) {
+        this(content, definition, parent, templatingFunctions, Components.getComponent(BlogIndex.class), Components.getComponent(FragmentCache.class),
+                Components.getComponent(CategoryClosure.class));
+    }
+
+    @Inject
+    public BlogRenderableDefinition(Node content, RD definition, RenderingModel<?> parent, TemplatingFunctions templatingFunctions,
+                                    BlogIndex blogIndex, FragmentCache fragmentCache, CategoryClosure categoryClosure) {
         super(content, definition, parent);
         this.templatingFunctions = templatingFunctions;
+        this.blogIndex = blogIndex;
+        this.fragmentCache = fragmentCache;
+        this.categoryClosure = categoryClosure;
 
-        filter = Maps.newHashMap();
-
-        final Iterator<Entry<String, String>> it = MgnlContext.getWebContext().getParameters().entrySet().iterator();
-        while (it.hasNext()) {
-            final Map.Entry<String, String> pairs = it.next();
-            if (WHITELISTED_PARAMETERS.contains(pairs.getKey()) && StringUtils.isNotEmpty(pairs.getValue())) {
-                filter.put(pairs.getKey(), pairs.getValue());
-                LOGGER.debug("Added to filter: {}", pairs.getKey());
-            }
-            it.remove(); // avoids a ConcurrentModificationException
+        try (RenderTimings.Split ignored = RenderTimings.start("model")) {
+            this.categoryResolver = new CategoryResolver(templatingFunctions);
+            this.filter = BlogFilter.get(webContext);
         }
     }
 
     @Override
     public String execute() {
-        webContext.getResponse().setHeader("Cache-Control", "no-cache");
+        ConditionalGet.register(webContext);
         return super.execute();
     }
 
+    /**
+     * Directive caching the rendered output of its body for this component, the current filter and page.
+     * Fragments are not cached until the blog index is ready, as listings of published blogs change at the next
+     * publish date the index holds.
+     * Usage: <code>[@model.fragmentCache]...[/@model.fragmentCache]</code>
+     *
+     * @return FreeMarker directive
+     */
+    @SuppressWarnings("unused") //Used in freemarker components.
+    public TemplateDirectiveModel getFragmentCache() {
+        final TemplateDirectiveModel directive = fragmentCache == null || !isIndexReady()
+                ? (env, params, loopVars, body) -> body.render(env.getOut())
+                : fragmentCache.createDirective(getFragmentKey());
+        return (env, params, loopVars, body) -> {
+            try (RenderTimings.Split ignored = RenderTimings.start("render")) {
+                directive.execute(env, params, loopVars, body);
+            }
+        };
+    }
+
     /**
      * Get all available nodes of type mgnl:blog.
      *
@@ -113,13 +149,32 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      */
     @SuppressWarnings("unused") //Used in freemarker components.
     public List<ContentMap> getBlogs(String path, String maxResultSize) throws RepositoryException {
+        return memoize("blogs|" + path + "|" + maxResultSize, () -> findBlogs(path, maxResultSize));
+    }
+
+    private List<ContentMap> findBlogs(String path, String maxResultSize) throws RepositoryException {
         int resultSize = Integer.MAX_VALUE;
         if (StringUtils.isNumeric(maxResultSize)) {
             resultSize = Integer.parseInt(maxResultSize);
         }
-        final String customFilters = constructAuthorPredicate() + constructCategoryPredicate(filter) + constructDateCreatedPredicate();
-        final String sqlBlogItems = BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, true, customFilters);
-        return templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, resultSize, getPageNumber(), BlogsNodeTypes.Blog.NAME));
+        final BlogCursor cursor = getCursor();
+        final List<Node> blogs;
+        if (cursor != null) {
+            final String customFilters = constructAuthorPredicate() + constructCategoryPredicate() + constructDateCreatedPredicate();
+            blogs = seekBlogs(path, createIndexFilter(), customFilters, getFilterBindings(), cursor, resultSize);
+        } else if (isIndexReady()) {
+            final BlogSelection selection = createIndexSelection();
+            final List<BlogIndexEntry> entries = selection.get(path, (long) resultSize * (getPageNumber() - 1), resultSize);
+            blogs = BlogJcrUtils.getWrappedNodesFromIndex(entries, resultSize, 1);
+            setPaged(blogs, resultSize, () -> selection.count(path));
+        } else {
+            final String customFilters = constructAuthorPredicate() + constructCategoryPredicate() + constructDateCreatedPredicate();
+            final String sqlBlogItems = BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, true, customFilters);
+            blogs = BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, getFilterBindings(), resultSize, getPageNumber(), BlogsNodeTypes.Blog.NAME);
+            setPaged(blogs, resultSize, () -> getBlogCount(path, true));
+        }
+        categoryResolver.addAll(blogs);
+        return templatingFunctions.asContentMapList(blogs);
     }
 
     /**
@@ -132,26 +187,109 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      */
     @SuppressWarnings("unused") //Used in freemarker components.
     public List<ContentMap> getLatestBlogs(String path, String maxResultSize, boolean publishedBlogsOnly) throws RepositoryException {
-        return getLatest(path, maxResultSize, BlogsNodeTypes.Blog.NAME, getPageNumber(), BlogsNodeTypes.Blog.NAME, publishedBlogsOnly);
+        return memoize("latest|" + path + "|" + maxResultSize + "|" + publishedBlogsOnly,
+                () -> getLatest(path, maxResultSize, BlogsNodeTypes.Blog.NAME, getPageNumber(), BlogsNodeTypes.Blog.NAME, publishedBlogsOnly));
     }
 
     /**
      * @param path          Repository path
      * @param maxResultSize the result size that is returned
-     * @param categoryUuid  the category uuid to take only the blogs from this category
+     * @param categoryUuid  the category uuid to take only the blogs from this category or one of its subcategories
      * @throws RepositoryException Handling RepositoryException.
      * @return a list of blog nodes sorted by date created in descending order for the specified maxResultSize parameter
      */
     public List<ContentMap> getLatestBlogs(String path, String maxResultSize, String categoryUuid, boolean publishedBlogsOnly) throws RepositoryException {
+        return memoize("latest|" + path + "|" + maxResultSize + "|" + categoryUuid + "|" + publishedBlogsOnly,
+                () -> findLatestInCategory(path, maxResultSize, categoryUuid, publishedBlogsOnly));
+    }
+
+    private List<ContentMap> findLatestInCategory(String path, String maxResultSize, String categoryUuid, boolean publishedBlogsOnly) throws RepositoryException {
         int resultSize = DEFAULT_LATEST_COUNT;
         if (StringUtils.isNumeric(maxResultSize)) {
             resultSize = Integer.parseInt(maxResultSize);
         }
-        StringBuilder queryString = formQueryString(new StringBuilder(), categoryUuid, publishedBlogsOnly);
-        return templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesFromQuery(
-                "SELECT p.* from [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p,'/') AND CONTAINS(p.categories, '" +
-                        categoryUuid + "') " + queryString + " ORDER BY p.[mgnl:created] desc",
-                resultSize, 1, BlogsNodeTypes.Blog.NAME));
+        if (StringUtils.isEmpty(categoryUuid)) {
+            return Collections.emptyList();
+        }
+        final Set<String> categoryIds = categoryClosure == null ? Collections.singleton(categoryUuid) : categoryClosure.getDescendants(categoryUuid);
+
+        if (isIndexReady()) {
+            final long now = System.currentTimeMillis();
+            final BlogSelection selection = blogIndex.select().withAnyCategory(categoryIds).withFilter(BlogJcrUtils.createReadableFilter());
+            if (publishedBlogsOnly) {
+                selection.withFilter(entry -> entry.isPublished(now));
+            }
+            return templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesFromIndex(selection.get(path, 0, resultSize), resultSize, 1));
+        }
+
+        final Map<String, Object> bindings = new LinkedHashMap<>();
+        final StringBuilder categoryPredicate = new StringBuilder();
+        for (String categoryId : categoryIds) {
+            final String variable = PreparedQueries.CATEGORY + bindings.size();
+            categoryPredicate.append(bindings.isEmpty() ? "AND (" : " OR ").append("p.categories = $").append(variable);
+            bindings.put(variable, categoryId);
+        }
+        categoryPredicate.append(bindings.isEmpty() ? StringUtils.EMPTY : ") ");
+        if (publishedBlogsOnly) {
+            bindings.put(PreparedQueries.NOW, Calendar.getInstance());
+            categoryPredicate.append(constructPublishDatePredicate(true));
+        }
+
+        final String sqlBlogItems = BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, true, categoryPredicate.toString());
+        return templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, bindings, resultSize, 1, BlogsNodeTypes.Blog.NAME));
+    }
+
+    /**
+     * Get the number of blogs per category, author and month of creation within the blogs matching the current
+     * filters, for faceted navigation. All counts are determined in one pass over the matching blogs.
+     *
+     * @param path Start node path in hierarchy
+     * @return Facet counts
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    @SuppressWarnings("unused") //Used in freemarker components.
+    public BlogFacets getFacets(String path) throws RepositoryException {
+        return memoize("facets|" + path, () -> countFacets(path));
+    }
+
+    private BlogFacets countFacets(String path) throws RepositoryException {
+        if (isIndexReady()) {
+            return createIndexSelection().facets(path);
+        }
+        final String customFilters = constructAuthorPredicate() + constructCategoryPredicate() + constructDateCreatedPredicate();
+        final String sqlBlogItems = BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, true, customFilters);
+
+        final BlogFacets facets = new BlogFacets();
+        for (Node blog : BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, getFilterBindings(), Integer.MAX_VALUE, 1, BlogsNodeTypes.Blog.NAME)) {
+            facets.add(BlogIndexEntry.create(blog));
+        }
+        return facets;
+    }
+
+    /**
+     * Cursor of the next page of older blogs, following the last blog returned by {@link #getBlogs(String, String)}
+     * or {@link #getLatestBlogs(String, String, boolean)}. Use it as value of the <code>after</code> parameter.
+     *
+     * @return Cursor or <code>null</code> when there are no older blogs
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    @SuppressWarnings("unused") //Used in freemarker components.
+    public String getOlderCursor() throws RepositoryException {
+        final CursorPage<Node> page = getBlogsPage();
+        return page == null ? null : page.getOlderCursor();
+    }
+
+    /**
+     * Cursor of the previous page of newer blogs, preceding the first blog returned by {@link #getBlogs(String, String)}
+     * or {@link #getLatestBlogs(String, String, boolean)}. Use it as value of the <code>before</code> parameter.
+     *
+     * @return Cursor or <code>null</code> when there are no newer blogs
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    @SuppressWarnings("unused") //Used in freemarker components.
+    public String getNewerCursor() throws RepositoryException {
+        final CursorPage<Node> page = getBlogsPage();
+        return page == null ? null : page.getNewerCursor();
     }
 
     /**
@@ -164,9 +302,17 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      * @return long Number of blog posts
      */
     public int getBlogCount(String path, boolean useFilters) throws RepositoryException {
-        final String customFilters = constructAuthorPredicate() + constructCategoryPredicate(filter) + constructDateCreatedPredicate();
+        return memoize("count|" + path + "|" + useFilters, () -> countBlogs(path, useFilters));
+    }
+
+    private int countBlogs(String path, boolean useFilters) throws RepositoryException {
+        if (isIndexReady()) {
+            return (useFilters ? createIndexSelection() : blogIndex.select().withFilter(BlogJcrUtils.createReadableFilter())).count(path);
+        }
+        final String customFilters = constructAuthorPredicate() + constructCategoryPredicate() + constructDateCreatedPredicate();
         final String sqlBlogItems = BlogJcrUtils.buildQuery(path, BlogsNodeTypes.Blog.NAME, useFilters, customFilters);
-        return IteratorUtils.toList(QueryUtil.search(BlogRepositoryConstants.COLLABORATION, sqlBlogItems, Query.JCR_SQL2, BlogsNodeTypes.Blog.NAME)).size();
+        return BlogJcrUtils.countQueryResults(BlogRepositoryConstants.COLLABORATION, sqlBlogItems,
+                useFilters ? getFilterBindings() : Collections.<String, Object>emptyMap());
     }
 
     /**
@@ -176,8 +322,9 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      * @throws RepositoryException Handling RepositoryException.
      */
     public int getRelatedBlogCount(String filterProperty, String filterIdentifier) throws RepositoryException {
-        final String sqlBlogItems = BlogJcrUtils.buildBlogCountQuery(filterProperty, filterIdentifier);
-        return IteratorUtils.toList(QueryUtil.search(BlogRepositoryConstants.COLLABORATION, sqlBlogItems, Query.JCR_SQL2, BlogsNodeTypes.Blog.NAME)).size();
+        final String sqlBlogItems = BlogJcrUtils.buildBlogCountQuery(filterProperty);
+        return BlogJcrUtils.countQueryResults(BlogRepositoryConstants.COLLABORATION, sqlBlogItems,
+                Collections.singletonMap(PreparedQueries.IDENTIFIER, filterIdentifier));
     }
 
     /**
@@ -242,7 +389,7 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
     public List<ContentMap> getBlogCategories(final ContentMap blog) {
         final List<ContentMap> categories = new ArrayList<>(0);
 
-        try {
+        try (RenderTimings.Split ignored = RenderTimings.start("categories")) {
             final Value[] values = blog.getJCRNode().getProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES).getValues();
             if (values != null) {
                 for (Value value : values) {
@@ -255,15 +402,32 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         return categories;
     }
 
+    /**
+     * Get categories for given blog. Categories of all blogs returned by {@link #getBlogs(String, String)} are
+     * resolved at once and shared between the blogs of the page.
+     *
+     * @param blog Blog item
+     * @return List of categories
+     */
+    @SuppressWarnings("unused") //Used in freemarker components.
+    public List<ContentMap> getPageCategories(final ContentMap blog) {
+        try (RenderTimings.Split ignored = RenderTimings.start("categories")) {
+            return categoryResolver.getCategories(blog.getJCRNode());
+        }
+    }
+
     /**
      * Get category cloud items having a score based on total blogs and referenced categories.
      *
      * @return Collection of categories with relative score
      */
     public List<CloudMap> getCategoryCloud() {
-        try {
-            final Iterable<Node> nodes = NodeUtil.asIterable(QueryUtil.search(BlogRepositoryConstants.COLLABORATION, "SELECT p.* from [mgnl:category] AS p WHERE ISDESCENDANTNODE(p,'/')"));
-            return getCloudData(nodes, BlogsNodeTypes.Blog.PROPERTY_CATEGORIES, false);
+        try (RenderTimings.Split ignored = RenderTimings.start("categoryCloud")) {
+            final CloudAggregator aggregator = aggregateBlogReferences(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+            try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.COLLABORATION,
+                    "SELECT p.* from [mgnl:category] AS p WHERE ISDESCENDANTNODE(p,'/')", Collections.<String, Object>emptyMap())) {
+                return aggregator.createCloud(NodeUtil.asIterable(execution.getNodes()), false);
+            }
         } catch (RepositoryException e) {
             LOGGER.error("Exception while getting category cloud", e);
             return Collections.emptyList();
@@ -276,9 +440,12 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      * @return Collection of categories with relative score
      */
     public List<CloudMap> getAuthorCloud() {
-        try {
-            final Iterable<Node> nodes = NodeUtil.asIterable(QueryUtil.search(BlogRepositoryConstants.CONTACTS, "SELECT p.* from [mgnl:contact] AS p WHERE ISDESCENDANTNODE(p,'/')"));
-            return getCloudData(nodes, BlogsNodeTypes.Blog.PROPERTY_AUTHOR, true);
+        try (RenderTimings.Split ignored = RenderTimings.start("authorCloud")) {
+            final CloudAggregator aggregator = aggregateBlogReferences(BlogsNodeTypes.Blog.PROPERTY_AUTHOR);
+            try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.CONTACTS,
+                    "SELECT p.* from [mgnl:contact] AS p WHERE ISDESCENDANTNODE(p,'/')", Collections.<String, Object>emptyMap())) {
+                return aggregator.createCloud(NodeUtil.asIterable(execution.getNodes()), true);
+            }
         } catch (RepositoryException e) {
             LOGGER.error("Exception while getting author cloud", e);
             return Collections.emptyList();
@@ -286,28 +453,41 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
     }
 
     /**
-     * Get distinct year and month list for all available blogs
+     * Get distinct year and month list for all available blogs, most recent month first
      *
-     * @return A list containing properties <i>year</i> and <i>month</i>
+     * @return A list containing properties <i>year</i>, <i>month</i> and <i>count</i>
      */
     public List<Map<String, Object>> getArchivedDates() {
-        final Set<Map<String, Object>> set = new HashSet<>();
-
-        for (Node blog : getAllBlogs()) {
-            try {
-                final Calendar dateCreated = blog.getProperty("mgnl:created").getDate();
-                final int year = dateCreated.get(Calendar.YEAR);
-                final int month = dateCreated.get(Calendar.MONTH) + 1;
-
-                final Map<String, Object> map = new HashMap<>();
-                map.put("year", Integer.toString(year));
-                map.put("month", String.format("%02d", month));
-                set.add(map);
-            } catch (RepositoryException e) {
-                LOGGER.debug("Exception getting created date", e);
+        try (RenderTimings.Split ignored = RenderTimings.start("archive")) {
+            final ArchiveHistogram archive = new ArchiveHistogram();
+            if (isIndexReady()) {
+                // The counts kept by the index include the blogs the user may not read
+                final Predicate<BlogIndexEntry> readableFilter = BlogJcrUtils.createReadableFilter();
+                for (BlogIndexEntry entry : blogIndex.getEntries()) {
+                    if (entry.getCreated() != BlogIndexEntry.NO_DATE && readableFilter.test(entry)) {
+                        archive.add(ArchiveHistogram.toKey(entry.getCreated()));
+                    }
+                }
+            } else {
+                for (Node blog : getAllBlogs()) {
+                    try {
+                        archive.add(ArchiveHistogram.toKey(blog.getProperty("mgnl:created").getDate().getTimeInMillis()));
+                    } catch (RepositoryException e) {
+                        LOGGER.debug("Exception getting created date", e);
+                    }
+                }
             }
+
+            final NavigableMap<Integer, Integer> counts = archive.getCounts();
+            final List<Map<String, Object>> archivedDates = new ArrayList<>(counts.size());
+            for (Entry<Integer, Integer> month : counts.entrySet()) {
+                archivedDates.add(createArchivedDate(month.getKey(), month.getValue()));
+            }
+            return archivedDates;
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception while getting archived dates", e);
+            return Collections.emptyList();
         }
-        return new ArrayList<>(set);
     }
 
     /**
@@ -317,54 +497,103 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
      */
     public List<Node> getAllBlogs() {
         final String sqlBlogItems = BlogJcrUtils.buildQuery("/", BlogsNodeTypes.Blog.NAME);
-        try {
-            final NodeIterator items = QueryUtil.search(BlogRepositoryConstants.COLLABORATION, sqlBlogItems, Query.JCR_SQL2, BlogsNodeTypes.Blog.NAME);
-            return NodeUtil.asList(NodeUtil.asIterable(items));
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.COLLABORATION, sqlBlogItems,
+                Collections.<String, Object>emptyMap())) {
+            return NodeUtil.asList(NodeUtil.asIterable(execution.getNodes(BlogsNodeTypes.Blog.NAME)));
         } catch (RepositoryException e) {
             LOGGER.error("Exception getting all blogs", e);
             return Collections.emptyList();
         }
     }
 
-    public int getPageNumber() {
-        int pageNumber = 1;
-        if (filter.containsKey(PARAM_PAGE)) {
-            pageNumber = Integer.parseInt(filter.get(PARAM_PAGE));
+    private String getFragmentKey() {
+        String component;
+        try {
+            final Calendar lastModified = NodeTypes.LastModified.getLastModified(content);
+            component = content.getIdentifier() + "@" + (lastModified == null ? 0L : lastModified.getTimeInMillis());
+        } catch (RepositoryException e) {
+            LOGGER.debug("Exception getting component identity", e);
+            component = StringUtils.EMPTY;
         }
-        return pageNumber;
+        return component + "|" + webContext.getLocale() + "|" + filter.getKey() + "|" + blogIndex.getNextPublishDate(System.currentTimeMillis());
+    }
+
+    /**
+     * @return Keyset paging cursor of the <code>after</code> or <code>before</code> parameter, <code>null</code> when not given
+     */
+    public BlogCursor getCursor() {
+        if (filter.has(BlogFilter.AFTER)) {
+            return BlogCursor.after(filter.get(BlogFilter.AFTER));
+        }
+        if (filter.has(BlogFilter.BEFORE)) {
+            return BlogCursor.before(filter.get(BlogFilter.BEFORE));
+        }
+        return null;
+    }
+
+    public int getPageNumber() {
+        return filter.getPage();
     }
 
     protected String constructAuthorPredicate() {
         // todo ENHANCEMENT: this method should be private, but us still accessed directly by a test
 
-        if (!filter.containsKey(PARAM_AUTHOR)) {
-            return StringUtils.EMPTY;
+        if (getFilterBindings().containsKey(PreparedQueries.AUTHOR)) {
+            return "AND p.author = $" + PreparedQueries.AUTHOR + " ";
         }
 
-        final ContentMap contentMap = templatingFunctions.contentByPath(filter.get(PARAM_AUTHOR), BlogRepositoryConstants.CONTACTS);
-
-        if (contentMap == null) {
-            LOGGER.debug("Author '{}' does not exist", filter.get(PARAM_AUTHOR));
-            return StringUtils.EMPTY;
-        }
+        return StringUtils.EMPTY;
+    }
 
-        final String authorId = (String) contentMap.get("@id");
+    protected String constructDateCreatedPredicate() {
+        // todo ENHANCEMENT: this method should be private, but us still accessed directly by a test
 
-        if (StringUtils.isNotEmpty(authorId)) {
-            return "AND p.author = '" + authorId + "' ";
+        if (getFilterBindings().containsKey(PreparedQueries.FROM)) {
+            return "AND p.[mgnl:created] >= $" + PreparedQueries.FROM + " " +
+                    "AND p.[mgnl:created] <= $" + PreparedQueries.TO + " ";
         }
 
         return StringUtils.EMPTY;
     }
 
-    protected String constructDateCreatedPredicate() {
+    /**
+     * Get the values of the author, category and date created filters by bind variable name,
+     * as used by the filter predicates.
+     *
+     * @return Filter values, see {@link PreparedQueries}
+     */
+    protected Map<String, Object> getFilterBindings() {
         // todo ENHANCEMENT: this method should be private, but us still accessed directly by a test
 
-        if (!filter.containsKey(PARAM_YEAR)) {
-            return StringUtils.EMPTY;
+        if (filterBindings == null) {
+            final Map<String, Object> bindings = new LinkedHashMap<>();
+
+            final String authorId = getFilterAuthorId();
+            if (authorId != null) {
+                bindings.put(PreparedQueries.AUTHOR, authorId);
+            }
+            final String categoryId = getFilterCategoryId();
+            if (categoryId != null) {
+                bindings.put(PreparedQueries.CATEGORY, categoryId);
+            }
+            final Calendar[] range = getFilterDateCreatedRange();
+            if (range != null) {
+                bindings.put(PreparedQueries.FROM, range[0]);
+                bindings.put(PreparedQueries.TO, range[1]);
+            }
+            filterBindings = Collections.unmodifiableMap(bindings);
         }
+        return filterBindings;
+    }
 
-        final int year = Integer.parseInt(filter.get(PARAM_YEAR));
+    /**
+     * @return Start and end of the date created range selected by the year and month filters, <code>null</code> when not filtered
+     */
+    private Calendar[] getFilterDateCreatedRange() {
+        final Integer year = filter.getYear();
+        if (year == null) {
+            return null;
+        }
 
         final Calendar start = Calendar.getInstance();
         start.set(year, Calendar.JANUARY, 1, 0, 0, 0);
@@ -374,8 +603,8 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         end.set(year, Calendar.DECEMBER, 1, 23, 59, 59);
         end.set(Calendar.MILLISECOND, 999);
 
-        if (filter.containsKey(PARAM_MONTH)) {
-            final int month = Integer.parseInt(filter.get(PARAM_MONTH)) - 1;
+        if (filter.getMonth() != null) {
+            final int month = filter.getMonth() - 1;
             start.set(Calendar.MONTH, month);
             end.set(Calendar.MONTH, month);
         }
@@ -383,10 +612,7 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         // Determine last day of the end month
         end.set(Calendar.DAY_OF_MONTH, end.getActualMaximum(Calendar.DAY_OF_MONTH));
 
-        final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        // Format start date and end data for use in jcr sql predicate
-        return "AND p.[mgnl:created] >= CAST('" + dateFormat.format(start.getTime()) + "' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('" + dateFormat.format(end.getTime()) + "' AS DATE) ";
+        return new Calendar[]{start, end};
     }
 
     private List<ContentMap> getLatest(String path, String maxResultSize, String nodeType, int pageNumber, String nodeTypeName, boolean publishedBlogsOnly) throws RepositoryException {
@@ -394,87 +620,224 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         if (StringUtils.isNumeric(maxResultSize)) {
             resultSize = Integer.parseInt(maxResultSize);
         }
-        final String sqlBlogItems = BlogJcrUtils.buildQuery(path, nodeType, publishedBlogsOnly, constructPublishDatePredicate(publishedBlogsOnly));
-        return templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, resultSize, pageNumber, nodeTypeName));
+        final long now = System.currentTimeMillis();
+        final Predicate<BlogIndexEntry> indexFilter = publishedBlogsOnly ? entry -> entry.isPublished(now) : null;
+        final Map<String, Object> bindings = publishedBlogsOnly ?
+                Collections.<String, Object>singletonMap(PreparedQueries.NOW, Calendar.getInstance()) : Collections.<String, Object>emptyMap();
+
+        final BlogCursor cursor = getCursor();
+        final List<Node> blogs;
+        if (cursor != null && BlogsNodeTypes.Blog.NAME.equals(nodeType)) {
+            blogs = seekBlogs(path, indexFilter, constructPublishDatePredicate(publishedBlogsOnly), bindings, cursor, resultSize);
+        } else if (isIndexReady() && BlogsNodeTypes.Blog.NAME.equals(nodeType)) {
+            final BlogSelection selection = blogIndex.select().withFilter(BlogJcrUtils.createReadableFilter());
+            if (indexFilter != null) {
+                selection.withFilter(indexFilter);
+            }
+            final List<BlogIndexEntry> entries = selection.get(path, (long) resultSize * (pageNumber - 1), resultSize);
+            blogs = BlogJcrUtils.getWrappedNodesFromIndex(entries, resultSize, 1);
+            setPaged(blogs, resultSize, () -> selection.count(path));
+        } else {
+            final String sqlBlogItems = BlogJcrUtils.buildQuery(path, nodeType, publishedBlogsOnly, constructPublishDatePredicate(publishedBlogsOnly));
+            blogs = BlogJcrUtils.getWrappedNodesFromQuery(sqlBlogItems, bindings, resultSize, pageNumber, nodeTypeName);
+            setPaged(blogs, resultSize, () -> BlogJcrUtils.countQueryResults(BlogRepositoryConstants.COLLABORATION, sqlBlogItems, bindings));
+        }
+        return templatingFunctions.asContentMapList(blogs);
     }
 
-    private String constructCategoryPredicate(final Map<String, String> filter) {
-        if (!filter.containsKey(PARAM_CATEGORY)) {
-            return StringUtils.EMPTY;
+    /**
+     * Select the blogs next to the cursor from the blog index, or with a keyset query while the index is not ready.
+     */
+    private List<Node> seekBlogs(String path, Predicate<BlogIndexEntry> indexFilter, String customFilters, Map<String, ?> bindings,
+                                 BlogCursor cursor, int resultSize) throws RepositoryException {
+        if (isIndexReady()) {
+            final Predicate<BlogIndexEntry> readableFilter = BlogJcrUtils.createReadableFilter();
+            final CursorPage<BlogIndexEntry> entries = CursorPage.create(blogIndex.seek(path,
+                    indexFilter == null ? readableFilter : indexFilter.and(readableFilter), cursor, resultSize),
+                    cursor, resultSize, BlogCursor::valueOf);
+            blogsPage = CursorPage.of(BlogJcrUtils.getWrappedNodesFromIndex(entries.getItems(), resultSize, 1),
+                    entries.getOlderCursor(), entries.getNewerCursor());
+        } else {
+            blogsPage = BlogJcrUtils.getWrappedNodesFromSeekQuery(path, BlogsNodeTypes.Blog.NAME, customFilters, bindings, cursor, resultSize);
         }
+        return blogsPage.getItems();
+    }
 
-        final ContentMap contentMap = templatingFunctions.contentByPath(filter.get(PARAM_CATEGORY), BlogRepositoryConstants.CATEGORY);
+    /**
+     * Remember a page selected by page number, so the cursors of the neighbouring pages can be determined when asked for.
+     */
+    private void setPaged(List<Node> blogs, int resultSize, Computation<Integer> count) {
+        blogsPage = null;
+        pagedBlogs = blogs;
+        pagedSize = resultSize;
+        pagedCount = count;
+    }
 
-        if (contentMap == null) {
-            LOGGER.debug("Category '{}' does not exist", filter.get(PARAM_CATEGORY));
-            return StringUtils.EMPTY;
+    /**
+     * Compute a value once for this rendering. Templates often ask for the same listing or count more than once,
+     * repeated calls return the value computed first. The computation is timed as the section named by the first part
+     * of the key.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T memoize(String key, Computation<T> computation) throws RepositoryException {
+        if (memo.containsKey(key)) {
+            return (T) memo.get(key);
+        }
+        final int roundTrips = RoundTrips.get();
+        final T value;
+        try (RenderTimings.Split ignored = RenderTimings.start(StringUtils.substringBefore(key, "|"))) {
+            value = computation.get();
         }
+        memo.put(key, value);
+        LOGGER.debug("Computed {} using {} JCR round trips, {} in this request so far", key, RoundTrips.get() - roundTrips, RoundTrips.get());
+        return value;
+    }
 
-        final String categoryId = (String) contentMap.get("@id");
+    private CursorPage<Node> getBlogsPage() throws RepositoryException {
+        if (blogsPage == null && pagedBlogs != null) {
+            final boolean hasOlder = !pagedBlogs.isEmpty() && pagedSize != Integer.MAX_VALUE
+                    && pagedCount.get() > (long) pagedSize * getPageNumber();
+            final boolean hasNewer = !pagedBlogs.isEmpty() && getPageNumber() > 1;
+            blogsPage = CursorPage.of(pagedBlogs,
+                    hasOlder ? BlogCursor.valueOf(pagedBlogs.get(pagedBlogs.size() - 1)) : null,
+                    hasNewer ? BlogCursor.valueOf(pagedBlogs.get(0)) : null);
+        }
+        return blogsPage;
+    }
 
-        if (StringUtils.isNotEmpty(categoryId)) {
-            return "AND p.categories like '%" + categoryId + "%' ";
+    private String constructCategoryPredicate() {
+        if (getFilterBindings().containsKey(PreparedQueries.CATEGORY)) {
+            return "AND p.categories = $" + PreparedQueries.CATEGORY + " ";
         }
 
         return StringUtils.EMPTY;
     }
 
-    private String constructPublishDatePredicate(boolean publishedBlogsOnly) {
-        if(publishedBlogsOnly) {
-            StringBuilder filterProperty = new StringBuilder("");
-            filterProperty.append("AND ( p.publishDate IS NULL OR p.publishDate <= CAST('").append(LocalDateTime.now()).append("' AS DATE)) ");
-            return filterProperty.toString();
-        }else{
+    private String getFilterAuthorId() {
+        if (!filter.has(BlogFilter.AUTHOR)) {
+            return null;
+        }
+
+        final ContentMap contentMap = templatingFunctions.contentByPath(filter.get(BlogFilter.AUTHOR), BlogRepositoryConstants.CONTACTS);
+
+        if (contentMap == null) {
+            LOGGER.debug("Author '{}' does not exist", filter.get(BlogFilter.AUTHOR));
             return null;
         }
+
+        return StringUtils.defaultIfEmpty((String) contentMap.get("@id"), null);
+    }
+
+    private String getFilterCategoryId() {
+        if (!filter.has(BlogFilter.CATEGORY)) {
+            return null;
+        }
+
+        final ContentMap contentMap = templatingFunctions.contentByPath(filter.get(BlogFilter.CATEGORY), BlogRepositoryConstants.CATEGORY);
+
+        if (contentMap == null) {
+            LOGGER.debug("Category '{}' does not exist", filter.get(BlogFilter.CATEGORY));
+            return null;
+        }
+
+        return StringUtils.defaultIfEmpty((String) contentMap.get("@id"), null);
     }
 
+    private boolean isIndexReady() {
+        return blogIndex != null && blogIndex.isReady();
+    }
 
     /**
-     * Forms a query string like this "OR CONTAINS(p.categories, '"uuid"')" and appends it to each other.
+     * Create the blog index equivalent of the author, category and date created predicates.
      *
-     * @param query        a new StringBuilder to keep the content on recursive calls
-     * @param categoryUuid the uuid of the category
-     * @return a query string used to filter the blogs by categories
-     * @throws RepositoryException Handling RepositoryException.
+     * @return Filter for blog index entries
      */
-    private StringBuilder formQueryString(StringBuilder query, String categoryUuid, boolean publishedBlogsOnly) throws RepositoryException {
-        List<ContentMap> childCategories = templatingFunctions.children(templatingFunctions.contentById(categoryUuid, BlogRepositoryConstants.CATEGORY));
+    private Predicate<BlogIndexEntry> createIndexFilter() {
+        final Map<String, Object> bindings = getFilterBindings();
+        final String authorId = (String) bindings.get(PreparedQueries.AUTHOR);
+        final String categoryId = (String) bindings.get(PreparedQueries.CATEGORY);
+        final Calendar from = (Calendar) bindings.get(PreparedQueries.FROM);
+        final Calendar to = (Calendar) bindings.get(PreparedQueries.TO);
+
+        return entry -> (authorId == null || authorId.equals(entry.getAuthorId()))
+                && (categoryId == null || entry.getCategoryIds().contains(categoryId))
+                && (from == null || (entry.getCreated() >= from.getTimeInMillis() && entry.getCreated() <= to.getTimeInMillis()));
+    }
 
-        for (ContentMap childCategory : childCategories) {
-            if (!templatingFunctions.children(childCategory).isEmpty()) {
-                formQueryString(query, childCategory.getJCRNode().getIdentifier(),publishedBlogsOnly);
-            }
-            query.append("OR CONTAINS(p.categories, '").append(childCategory.getJCRNode().getIdentifier()).append("') ");
+    /**
+     * Select the blogs matching the author, category and date created filters using the bitmaps of the blog index,
+     * leaving out the blogs the user may not read.
+     *
+     * @return Selection of blog index entries
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    private BlogSelection createIndexSelection() throws RepositoryException {
+        final Map<String, Object> bindings = getFilterBindings();
+        final BlogSelection selection = blogIndex.select().withAuthor((String) bindings.get(PreparedQueries.AUTHOR))
+                .withFilter(BlogJcrUtils.createReadableFilter());
+
+        final String categoryId = (String) bindings.get(PreparedQueries.CATEGORY);
+        if (categoryId != null) {
+            selection.withAnyCategory(Collections.singleton(categoryId));
+        }
+        final Calendar from = (Calendar) bindings.get(PreparedQueries.FROM);
+        final Calendar to = (Calendar) bindings.get(PreparedQueries.TO);
+        if (from != null) {
+            selection.withMonths(ArchiveHistogram.toKey(from.getTimeInMillis()), ArchiveHistogram.toKey(to.getTimeInMillis()));
         }
-        if(publishedBlogsOnly){
-            query.append("AND ( p.publishDate IS NULL OR p.publishDate <= CAST('").append(LocalDateTime.now()).append("' AS DATE)) ");
+        return selection;
+    }
+
+    private String constructPublishDatePredicate(boolean publishedBlogsOnly) {
+        if (publishedBlogsOnly) {
+            return "AND ( p.publishDate IS NULL OR p.publishDate <= $" + PreparedQueries.NOW + ") ";
+        } else {
+            return null;
         }
-        return query;
     }
 
-    private List<CloudMap> getCloudData(Iterable<Node> nodeList, String propName, boolean excludeNonExisting) throws RepositoryException {
-        final List<CloudMap> cloudData = new ArrayList<>(0);
-        final int maxCloudUsage = getBlogCount("/", false);
 
-        for (Node entry : nodeList) {
-            try {
-                final int count = getRelatedBlogCount(propName, entry.getIdentifier());
-                if (count == 0 && excludeNonExisting) {
+    /**
+     * Count the blogs referencing each identifier stored in the given property, scanning all blogs once.
+     *
+     * @param propName Blog property holding the referenced identifier(s)
+     * @return Aggregated reference counts
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    private CloudAggregator aggregateBlogReferences(String propName) throws RepositoryException {
+        final CloudAggregator aggregator = new CloudAggregator(propName);
+
+        if (isIndexReady()) {
+            final Predicate<BlogIndexEntry> readableFilter = BlogJcrUtils.createReadableFilter();
+            for (BlogIndexEntry entry : blogIndex.getEntries()) {
+                if (!readableFilter.test(entry)) {
                     continue;
                 }
-
-                final int scale = getScale(count, maxCloudUsage);
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("{} blogs out of {} leaving a score of {}", count, maxCloudUsage, scale);
+                if (BlogsNodeTypes.Blog.PROPERTY_AUTHOR.equals(propName)) {
+                    aggregator.add(entry.getAuthorId() == null ? Collections.<String>emptySet() : Collections.singleton(entry.getAuthorId()));
+                } else {
+                    aggregator.add(entry.getCategoryIds());
                 }
+            }
+            return aggregator;
+        }
 
-                cloudData.add(new CloudMap(entry, count, scale));
-            } catch (RepositoryException e) {
-                LOGGER.warn("Exception getting related blog count", e);
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(BlogRepositoryConstants.COLLABORATION,
+                "SELECT p.* from [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p,'/')", Collections.<String, Object>emptyMap())) {
+            final NodeIterator blogs = execution.getNodes(BlogsNodeTypes.Blog.NAME);
+            while (blogs.hasNext()) {
+                aggregator.add(blogs.nextNode());
             }
         }
-        return cloudData;
+        return aggregator;
+    }
+
+    private static Map<String, Object> createArchivedDate(int month, int count) {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("year", Integer.toString(ArchiveHistogram.getYear(month)));
+        map.put("month", String.format("%02d", ArchiveHistogram.getMonth(month)));
+        map.put("count", count);
+        return map;
     }
 
     public static String getMonthName(String month) {
@@ -487,6 +850,13 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         return monthNames[monthNr - 1];
     }
 
+    /**
+     * Value derived from the repository, computed when needed only.
+     */
+    private interface Computation<T> {
+        T get() throws RepositoryException;
+    }
+
     /**
      * Determine if older blog posts exists
      *
@@ -497,18 +867,4 @@ public class BlogRenderableDefinition<RD extends RenderableDefinition> extends R
         final int maxPage = (int) Math.ceil((double) totalBlogs / (double) maxResultSize);
         return maxPage >= pageNumber + 1;
     }
-
-    private static int getScale(int count, int max) {
-        int scale = 0;
-        if (max > 0) {
-            scale = (count * 10) / max;
-        }
-        if (scale < 0) {
-            scale = 0;
-        }
-        if (scale > 9) {
-            scale = 9;
-        }
-        return scale;
-    }
 }
\ No newline at end of file
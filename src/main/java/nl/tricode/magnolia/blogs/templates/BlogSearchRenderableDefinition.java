@@ -18,20 +18,23 @@
  */
 package nl.tricode.magnolia.blogs.templates;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
-import info.magnolia.cms.util.QueryUtil;
 import info.magnolia.context.MgnlContext;
 import info.magnolia.context.WebContext;
 import info.magnolia.jcr.util.ContentMap;
 import info.magnolia.jcr.wrapper.I18nNodeWrapper;
+import info.magnolia.objectfactory.Components;
 import info.magnolia.rendering.model.RenderingModel;
 import info.magnolia.rendering.model.RenderingModelImpl;
 import info.magnolia.rendering.template.RenderableDefinition;
 import info.magnolia.templating.functions.TemplatingFunctions;
 import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.cache.ConditionalGet;
+import nl.tricode.magnolia.blogs.index.BlogSearchIndex;
+import nl.tricode.magnolia.blogs.index.SearchHits;
+import nl.tricode.magnolia.blogs.metrics.RenderTimings;
+import nl.tricode.magnolia.blogs.util.BlogJcrUtils;
 import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.QueryExecutor;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,23 +44,21 @@ import javax.jcr.LoginException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
-import javax.jcr.query.Query;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> extends RenderingModelImpl<RD> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BlogSearchRenderableDefinition.class);
 
-    private static final String SEARCH_TERM = "s";
-    private static final String PAGENUMBER = "p";
     private static final String SEARCH_PROXIMITY = "~0.6";
 
     private final TemplatingFunctions templatingFunctions;
+    private final BlogSearchIndex searchIndex;
     private final WebContext webContext = MgnlContext.getWebContext();
 
-    private Multimap<String, String> filter;
+    private final BlogFilter filter;
 
     private String nodetype;
     private String workspace;
@@ -65,39 +66,46 @@ public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> ext
     private int numPages;
     private List<ContentMap> searchResults = new ArrayList<ContentMap>();
 
-    @Inject
     public BlogSearchRenderableDefinition(Node content, RD definition, RenderingModel<?> parent, TemplatingFunctions templatingFunctions) {
+        this(content, definition, parent, templatingFunctions, Components.getComponent(BlogSearchIndex.class));
+    }
+
+    @Inject
+    public BlogSearchRenderableDefinition(Node content, RD definition, RenderingModel<?> parent, TemplatingFunctions templatingFunctions,
+                                          BlogSearchIndex searchIndex) {
         super(content, definition, parent);
         this.templatingFunctions = templatingFunctions;
+        this.searchIndex = searchIndex;
 
         setWorkspace(BlogRepositoryConstants.COLLABORATION);
         setNodetype(BlogsNodeTypes.Blog.NAME);
 
-        filter = LinkedListMultimap.create();
-        Set<String> parameters = webContext.getParameters().keySet();
-        for (String parameterKey : parameters) {
-            if (allowedParameters().contains(parameterKey)) {
-                String[] parameterValues = webContext.getParameterValues(parameterKey);
-                for (String parameterValue : parameterValues) {
-                    if (StringUtils.isNotEmpty(parameterValue)) {
-                        filter.get(parameterKey).add(parameterValue);
-                    }
-                }
-            }
-            webContext.remove(parameterKey);
-        }
+        filter = BlogFilter.get(webContext);
         LOGGER.debug("Running constructor BlogSearchRenderableDefinition");
     }
 
     @Override
     public String execute() {
+        ConditionalGet.register(webContext);
+
+        try (RenderTimings.Split ignored = RenderTimings.start("search")) {
+            return search();
+        }
+    }
+
+    private String search() {
+        if (isSearchIndexUsable()) {
+            try {
+                executeIndexSearch(getSearchPath(), getMaxResultsPerPage(), getPageNumber());
+                return StringUtils.EMPTY;
+            } catch (RepositoryException e) {
+                LOGGER.error("Unable to read the blogs found in the search index, falling back to a query", e);
+            }
+        }
+
         String queryString = buildQuery(getSearchPath(), true);
         LOGGER.debug("BlogSearchRenderableDefinition Query executed: {}", queryString);
 
-        // Do not cache this response!
-        // More info: http://documentation.magnolia-cms.com/display/DOCS/Cache+module#Cachemodule-Cacheheadernegotiation
-        webContext.getResponse().setHeader("Cache-Control", "no-cache");
-
         if (StringUtils.isBlank(queryString)) {
             return null;
         }
@@ -111,8 +119,8 @@ public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> ext
 
     public String getPredicate() {
         String searchTermPredicate = StringUtils.EMPTY;
-        if (filter.containsKey(SEARCH_TERM)) {
-            String searchString = filter.get(SEARCH_TERM).iterator().next().replaceAll("'", "''");
+        if (filter.has(BlogFilter.SEARCH_TERM)) {
+            String searchString = filter.get(BlogFilter.SEARCH_TERM).replaceAll("'", "''");
             searchString = searchString + SEARCH_PROXIMITY;
             searchTermPredicate = MessageFormat.format("AND contains(p.*, ''{0}'') ", searchString);
         }
@@ -125,11 +133,7 @@ public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> ext
      * @return pagenumber
      */
     public int getPageNumber() {
-        int pageNumber = 1;
-        if (filter.containsKey(PAGENUMBER)) {
-            pageNumber = Integer.parseInt(filter.get(PAGENUMBER).iterator().next());
-        }
-        return pageNumber;
+        return filter.getSearchPage();
     }
 
     public String getWorkspace() {
@@ -194,6 +198,8 @@ public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> ext
 
     /**
      * Fetching paged node items.
+     * Search hits are mapped onto their nearest node of the given type, so paging can not be done by the query itself.
+     * Only the nodes of the requested page are kept, the remaining hits are just counted.
      *
      * @param statement     SQL2 statement
      * @param maxResultSize Max results returned
@@ -204,36 +210,62 @@ public class BlogSearchRenderableDefinition<RD extends RenderableDefinition> ext
      * @throws RepositoryException Handling RepositoryException.
      */
     protected void executePagedNodesQuery(String statement, int maxResultSize, int pageNumber, String workspace, String nodeType) throws LoginException, RepositoryException {
-        List<Node> nodeList = new ArrayList<Node>(0);
         List<Node> nodeListPaged = new ArrayList<Node>(0);
-        NodeIterator items = QueryUtil.search(workspace, statement, Query.JCR_SQL2, nodeType);
-        while (items.hasNext()) {
-            nodeList.add(new I18nNodeWrapper(items.nextNode()));
-        }
-        int total = nodeList.size();
-
-        // Paging result set
-        int startRow = (maxResultSize * (pageNumber - 1));
-        int newLimit = maxResultSize;
-        if (total > startRow) {
-            if (total < startRow + maxResultSize) {
-                newLimit = total - startRow;
+        int total = 0;
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(workspace, statement, Collections.<String, Object>emptyMap())) {
+            NodeIterator items = execution.getNodes(nodeType);
+
+            // Paging result set
+            long startRow = Math.max(0L, (long) maxResultSize * (pageNumber - 1));
+            while (items.hasNext()) {
+                Node node = items.nextNode();
+                if (total >= startRow && nodeListPaged.size() < maxResultSize) {
+                    nodeListPaged.add(new I18nNodeWrapper(node));
+                }
+                total++;
             }
-            nodeListPaged = nodeList.subList(startRow, startRow + newLimit);
+            execution.setRowsUsed(nodeListPaged.size());
         }
 
-        int calcNumPages = total / maxResultSize;
-        if ((total % maxResultSize) > 0) {
-            calcNumPages++;
-        }
         // Set template model properties
         setCount(total);
-        setNumPages(calcNumPages);
+        setNumPages(calculateNumPages(total, maxResultSize));
         setSearchResults(templatingFunctions.asContentMapList(nodeListPaged));
     }
 
-    protected Set<String> allowedParameters() {
-        return Sets.newHashSet(SEARCH_TERM, "r", PAGENUMBER);
+    /**
+     * Search blogs in the in-memory search index instead of querying the repository.
+     * Only the blogs on the requested page are read, the blogs the user may not read are left out before paging.
+     *
+     * @param path          Start node path in hierarchy
+     * @param maxResultSize Max results returned
+     * @param pageNumber    paging number
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    protected void executeIndexSearch(String path, int maxResultSize, int pageNumber) throws RepositoryException {
+        final long startRow = Math.max(0L, (long) maxResultSize * (pageNumber - 1));
+        final SearchHits hits = searchIndex.search(path, filter.get(BlogFilter.SEARCH_TERM), BlogJcrUtils.createReadablePathFilter(),
+                (int) Math.min(Integer.MAX_VALUE, startRow), maxResultSize);
+
+        setCount(hits.getTotal());
+        setNumPages(calculateNumPages(hits.getTotal(), maxResultSize));
+        setSearchResults(templatingFunctions.asContentMapList(BlogJcrUtils.getWrappedNodesByIdentifier(hits.getIdentifiers())));
+    }
+
+    /**
+     * @return <code>true</code> when blogs are searched for a term and the optional search index has been built
+     */
+    protected boolean isSearchIndexUsable() {
+        return searchIndex != null && searchIndex.isReady() && filter.has(BlogFilter.SEARCH_TERM)
+                && BlogRepositoryConstants.COLLABORATION.equals(getWorkspace()) && BlogsNodeTypes.Blog.NAME.equals(getNodetype());
+    }
+
+    private static int calculateNumPages(int total, int maxResultSize) {
+        int calcNumPages = total / maxResultSize;
+        if ((total % maxResultSize) > 0) {
+            calcNumPages++;
+        }
+        return calcNumPages;
     }
 
     /**
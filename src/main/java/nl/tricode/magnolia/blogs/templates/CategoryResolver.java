@@ -0,0 +1,133 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.ContentMap;
+import info.magnolia.templating.functions.TemplatingFunctions;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import nl.tricode.magnolia.blogs.util.RoundTrips;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the categories of a page of blogs in one batch, so every distinct category is read once and its
+ * {@link ContentMap} is shared by all blogs referencing it.
+ */
+public final class CategoryResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryResolver.class);
+
+    private final TemplatingFunctions templatingFunctions;
+    private final Map<String, ContentMap> categories = new HashMap<>();
+
+    /**
+     * @param templatingFunctions Templating functions used to create the content maps
+     */
+    public CategoryResolver(TemplatingFunctions templatingFunctions) {
+        this.templatingFunctions = templatingFunctions;
+    }
+
+    /**
+     * Resolve the categories of all given blogs that have not been resolved yet.
+     *
+     * @param blogs Blog nodes
+     */
+    public void addAll(Collection<Node> blogs) {
+        final Set<String> identifiers = new LinkedHashSet<>();
+        for (Node blog : blogs) {
+            identifiers.addAll(getCategoryIds(blog));
+        }
+        resolve(identifiers);
+    }
+
+    /**
+     * @param blog Blog node
+     * @return Existing categories of the blog in the order they were selected
+     */
+    public List<ContentMap> getCategories(Node blog) {
+        final Set<String> identifiers = getCategoryIds(blog);
+        resolve(new LinkedHashSet<>(identifiers));
+
+        final List<ContentMap> blogCategories = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            final ContentMap category = categories.get(identifier);
+            if (category != null) {
+                blogCategories.add(category);
+            }
+        }
+        return blogCategories;
+    }
+
+    private void resolve(Set<String> identifiers) {
+        identifiers.removeIf(categories::containsKey);
+        if (identifiers.isEmpty()) {
+            return;
+        }
+
+        try {
+            final Session session = MgnlContext.getJCRSession(BlogRepositoryConstants.CATEGORY);
+            for (String identifier : identifiers) {
+                try {
+                    RoundTrips.increment();
+                    categories.put(identifier, templatingFunctions.asContentMap(session.getNodeByIdentifier(identifier)));
+                } catch (ItemNotFoundException e) {
+                    LOGGER.debug("Category {} does not exist", identifier);
+                    categories.put(identifier, null);
+                }
+            }
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception while getting categories: {}", e.getMessage());
+        }
+    }
+
+    private static Set<String> getCategoryIds(Node blog) {
+        final Set<String> identifiers = new LinkedHashSet<>();
+        try {
+            if (blog.hasProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES)) {
+                final Property property = blog.getProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+                if (property.isMultiple()) {
+                    for (Value value : property.getValues()) {
+                        identifiers.add(value.getString());
+                    }
+                } else {
+                    identifiers.add(property.getString());
+                }
+            }
+        } catch (RepositoryException e) {
+            LOGGER.error("Exception while getting categories: {}", e.getMessage());
+        }
+        return identifiers;
+    }
+}
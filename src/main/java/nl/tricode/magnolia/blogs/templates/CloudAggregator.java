@@ -0,0 +1,147 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the blogs referencing an identifier (category, author) in a single pass over the blog nodes,
+ * instead of running a count query for every cloud entry.
+ */
+public final class CloudAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudAggregator.class);
+
+    private final String propertyName;
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int total;
+
+    /**
+     * @param propertyName Blog property holding the referenced identifier(s)
+     */
+    public CloudAggregator(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    /**
+     * Add the references of a single blog node.
+     *
+     * @param blog Blog node
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    public void add(Node blog) throws RepositoryException {
+        final Set<String> identifiers = new HashSet<>();
+
+        if (blog.hasProperty(propertyName)) {
+            final Property property = blog.getProperty(propertyName);
+            if (property.isMultiple()) {
+                for (Value value : property.getValues()) {
+                    identifiers.add(value.getString());
+                }
+            } else {
+                identifiers.add(property.getString());
+            }
+        }
+        add(identifiers);
+    }
+
+    /**
+     * Add the references of a single blog.
+     *
+     * @param identifiers Identifiers referenced by the blog
+     */
+    public void add(Collection<String> identifiers) {
+        total++;
+        for (String identifier : new HashSet<>(identifiers)) {
+            counts.merge(identifier, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * @param identifier Referenced identifier
+     * @return Number of blogs referencing the given identifier
+     */
+    public int getCount(String identifier) {
+        return counts.getOrDefault(identifier, 0);
+    }
+
+    /**
+     * @return Number of blogs added
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Create the cloud items for the given entries, scored against the total number of blogs.
+     *
+     * @param entries            Referenced nodes (categories, contacts)
+     * @param excludeNonExisting <code>true</code> to leave out entries without any blogs
+     * @return Collection of entries with relative score
+     */
+    public List<CloudMap> createCloud(Iterable<Node> entries, boolean excludeNonExisting) {
+        final List<CloudMap> cloudData = new ArrayList<>(0);
+
+        for (Node entry : entries) {
+            try {
+                final int count = getCount(entry.getIdentifier());
+                if (count == 0 && excludeNonExisting) {
+                    continue;
+                }
+
+                final int scale = getScale(count, total);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("{} blogs out of {} leaving a score of {}", count, total, scale);
+                }
+
+                cloudData.add(new CloudMap(entry, count, scale));
+            } catch (RepositoryException e) {
+                LOGGER.warn("Exception getting related blog count", e);
+            }
+        }
+        return cloudData;
+    }
+
+    private static int getScale(int count, int max) {
+        int scale = 0;
+        if (max > 0) {
+            scale = (count * 10) / max;
+        }
+        if (scale < 0) {
+            scale = 0;
+        }
+        if (scale > 9) {
+            scale = 9;
+        }
+        return scale;
+    }
+}
@@ -20,13 +20,21 @@ package nl.tricode.magnolia.blogs.templates.functions;
 
 import info.magnolia.jcr.util.ContentMap;
 import info.magnolia.templating.functions.TemplatingFunctions;
+import nl.tricode.magnolia.blogs.cache.AuthorCache;
+import nl.tricode.magnolia.blogs.cache.AuthorSummary;
 import nl.tricode.magnolia.blogs.exception.UnableToGetBlogException;
 import nl.tricode.magnolia.blogs.exception.UnableToGetLatestBlogsException;
+import nl.tricode.magnolia.blogs.index.BlogCompletion;
+import nl.tricode.magnolia.blogs.index.BlogFacets;
+import nl.tricode.magnolia.blogs.index.Suggestion;
+import nl.tricode.magnolia.blogs.metrics.RenderTimings;
 import nl.tricode.magnolia.blogs.service.BlogItemsWrapper;
 import nl.tricode.magnolia.blogs.service.BlogService;
+import nl.tricode.magnolia.blogs.util.BlogCursor;
 
 import javax.inject.Inject;
 import javax.jcr.Node;
+import java.util.List;
 
 /**
  * An object exposing several methods useful for blog related templates. It is exposed in templates as <code>blogfn</code>.
@@ -36,11 +44,16 @@ public class BlogTemplatingFunctions {
 
     private final BlogService blogService;
     private final TemplatingFunctions templatingFunctions;
+    private final AuthorCache authorCache;
+    private final BlogCompletion blogCompletion;
 
     @Inject
-    public BlogTemplatingFunctions(BlogService blogService, TemplatingFunctions templatingFunctions) {
+    public BlogTemplatingFunctions(BlogService blogService, TemplatingFunctions templatingFunctions, AuthorCache authorCache,
+                                   BlogCompletion blogCompletion) {
         this.blogService = blogService;
         this.templatingFunctions = templatingFunctions;
+        this.authorCache = authorCache;
+        this.blogCompletion = blogCompletion;
     }
 
     /**
@@ -96,6 +109,49 @@ public class BlogTemplatingFunctions {
         return blogService.getLatestBlogItems(searchRootPath, pageNumber, maxResultsPerPage, categoryName, workspace);
     }
 
+    /**
+     * Returns the blog entries starting from given path following the given cursor, the next page of older blogs.
+     *
+     * @param searchRootPath    Start path to return blog items from
+     * @param cursor            Older cursor of the current page, empty for the first page
+     * @param maxResultsPerPage Maximum results returned per page
+     * @return wrapper object holding the cursors of the neighbouring pages
+     * @throws UnableToGetLatestBlogsException Unable to get latest blogs
+     */
+    public BlogItemsWrapper blogsAfter(String searchRootPath, String cursor, int maxResultsPerPage)
+            throws UnableToGetLatestBlogsException {
+        return blogService.getLatestBlogItems(searchRootPath, BlogCursor.after(cursor), maxResultsPerPage, "");
+    }
+
+    /**
+     * Returns the blog entries starting from given path preceding the given cursor, the previous page of newer blogs.
+     *
+     * @param searchRootPath    Start path to return blog items from
+     * @param cursor            Newer cursor of the current page
+     * @param maxResultsPerPage Maximum results returned per page
+     * @return wrapper object holding the cursors of the neighbouring pages
+     * @throws UnableToGetLatestBlogsException Unable to get latest blogs
+     */
+    public BlogItemsWrapper blogsBefore(String searchRootPath, String cursor, int maxResultsPerPage)
+            throws UnableToGetLatestBlogsException {
+        return blogService.getLatestBlogItems(searchRootPath, BlogCursor.before(cursor), maxResultsPerPage, "");
+    }
+
+    /**
+     * Returns the number of blogs per category, author and month of creation starting from given path, filtered by
+     * given category and author identifier.
+     *
+     * @param searchRootPath Start path to count blog items from
+     * @param categoryUuid   Category identifier, empty for any category
+     * @param authorId       Author identifier, empty for any author
+     * @return facet counts having <i>categories</i>, <i>authors</i>, <i>months</i> and <i>total</i>
+     * @throws UnableToGetLatestBlogsException Unable to get latest blogs
+     */
+    public BlogFacets facets(String searchRootPath, String categoryUuid, String authorId)
+            throws UnableToGetLatestBlogsException {
+        return blogService.getFacets(searchRootPath, categoryUuid, authorId);
+    }
+
     /**
      * Return the ContentMap for the blog id.
      *
@@ -167,4 +223,28 @@ public class BlogTemplatingFunctions {
             throws UnableToGetBlogException, UnableToGetLatestBlogsException {
         return blogService.getRelatedBlogItemsByName(name, maxResultsReturned);
     }
+
+    /**
+     * Return the author details for the contact id.
+     *
+     * @param id Contact identifier, as referenced by the blog author property
+     * @return Author details having <i>firstName</i>, <i>lastName</i>, <i>name</i> and <i>email</i>, or
+     * <code>null</code> when the author does not exist
+     */
+    public AuthorSummary author(String id) {
+        try (RenderTimings.Split ignored = RenderTimings.start("author")) {
+            return authorCache.get(id);
+        }
+    }
+
+    /**
+     * Complete the text typed in a search box with blog titles, category names and author names.
+     *
+     * @param prefix         Text typed so far
+     * @param maxSuggestions Maximum number of suggestions, at most {@value BlogCompletion#MAX_SUGGESTIONS}
+     * @return Suggestions having <i>type</i> (blog, category or author), <i>identifier</i> and <i>text</i>, best first
+     */
+    public List<Suggestion> suggest(String prefix, int maxSuggestions) {
+        return blogCompletion.complete(prefix, maxSuggestions);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import info.magnolia.jcr.util.NodeTypes;
+import nl.tricode.magnolia.blogs.index.BlogIndexEntry;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import java.util.Calendar;
+
+/**
+ * Position in a blog listing for keyset (seek) paging, made of the date created and identifier of the blog at the
+ * edge of a page. The next page is selected by seeking past that blog, so the cost of a page does not depend on
+ * how many pages precede it.
+ * A cursor is passed as <code>&lt;date created in milliseconds&gt;.&lt;identifier&gt;</code>, in the <code>after</code>
+ * parameter for older blogs and the <code>before</code> parameter for newer blogs.
+ */
+public final class BlogCursor {
+
+    private static final char SEPARATOR = '.';
+
+    private final long created;
+    private final String identifier;
+    private final boolean before;
+
+    private BlogCursor(long created, String identifier, boolean before) {
+        this.created = created;
+        this.identifier = identifier;
+        this.before = before;
+    }
+
+    /**
+     * @param value Cursor value
+     * @return Cursor selecting the blogs following (older than) the given position, <code>null</code> when the value is invalid
+     */
+    public static BlogCursor after(String value) {
+        return parse(value, false);
+    }
+
+    /**
+     * @param value Cursor value
+     * @return Cursor selecting the blogs preceding (newer than) the given position, <code>null</code> when the value is invalid
+     */
+    public static BlogCursor before(String value) {
+        return parse(value, true);
+    }
+
+    /**
+     * @param entry Blog index entry
+     * @return Cursor value of the entry
+     */
+    public static String valueOf(BlogIndexEntry entry) {
+        return valueOf(entry.getCreated(), entry.getIdentifier());
+    }
+
+    /**
+     * @param blog Blog node
+     * @return Cursor value of the node
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    public static String valueOf(Node blog) throws RepositoryException {
+        final Calendar created = NodeTypes.Created.getCreated(blog);
+        return valueOf(created == null ? BlogIndexEntry.NO_DATE : created.getTimeInMillis(), blog.getIdentifier());
+    }
+
+    private static String valueOf(long created, String identifier) {
+        return Long.toString(created) + SEPARATOR + identifier;
+    }
+
+    private static BlogCursor parse(String value, boolean before) {
+        final String created = StringUtils.substringBefore(value, String.valueOf(SEPARATOR));
+        final String identifier = StringUtils.substringAfter(value, String.valueOf(SEPARATOR));
+        if (StringUtils.isEmpty(identifier) || !created.matches("-?\\d{1,19}")) {
+            return null;
+        }
+        try {
+            return new BlogCursor(Long.parseLong(created), identifier, before);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return <code>true</code> when the blogs preceding the position are selected, <code>false</code> for the blogs following it
+     */
+    public boolean isBefore() {
+        return before;
+    }
+
+    /**
+     * @return Date created as used in a query
+     */
+    public Calendar getCreatedDate() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(created);
+        return calendar;
+    }
+
+    @Override
+    public String toString() {
+        return valueOf(created, identifier);
+    }
+}
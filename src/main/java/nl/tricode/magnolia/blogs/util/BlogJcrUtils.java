@@ -18,24 +18,41 @@
  */
 package nl.tricode.magnolia.blogs.util;
 
-import info.magnolia.cms.util.QueryUtil;
+import info.magnolia.context.Context;
+import info.magnolia.context.MgnlContext;
+import info.magnolia.jcr.util.NodeUtil;
 import info.magnolia.jcr.wrapper.I18nNodeWrapper;
+import nl.tricode.magnolia.blogs.index.BlogIndexEntry;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
-import javax.jcr.query.Query;
+import javax.jcr.Session;
+import javax.jcr.query.RowIterator;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 public final class BlogJcrUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BlogJcrUtils.class);
 
+    private static final String REQUEST_COUNTS_ATTRIBUTE = BlogJcrUtils.class.getName() + ".counts";
+    private static final String COUNT_SELECT = "SELECT p.[jcr:uuid] ";
+    private static final Pattern SELECT_ALL_PATTERN = Pattern.compile("^SELECT\\s+p\\.\\*\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\s*ORDER BY\\s+.*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     private BlogJcrUtils() {
         // Util class, prevent instantiating
     }
@@ -54,7 +71,302 @@ public final class BlogJcrUtils {
                                                       final int maxResultSize,
                                                       final int pageNumber,
                                                       final String nodeTypeName) throws RepositoryException {
-        return getWrappedNodesFromQuery(query, maxResultSize, pageNumber, nodeTypeName, BlogRepositoryConstants.COLLABORATION);
+        return getWrappedNodesFromQuery(query, Collections.<String, Object>emptyMap(), maxResultSize, pageNumber, nodeTypeName);
+    }
+
+    /**
+     * Query blog items using JCR SQL2 syntax with bind variables.
+     *
+     * @param query         Query string
+     * @param bindings      Values by bind variable name, see {@link PreparedQueries}
+     * @param maxResultSize Max results returned
+     * @param pageNumber    paging number
+     * @param nodeTypeName  Node type name
+     * @return List of blog nodes
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static List<Node> getWrappedNodesFromQuery(final String query,
+                                                      final Map<String, ?> bindings,
+                                                      final int maxResultSize,
+                                                      final int pageNumber,
+                                                      final String nodeTypeName) throws RepositoryException {
+        return getWrappedNodesFromQuery(query, bindings, maxResultSize, pageNumber, nodeTypeName, BlogRepositoryConstants.COLLABORATION);
+    }
+
+    /**
+     * Query one page of items using JCR SQL2 syntax. Paging is done by the query itself using limit and offset,
+     * so only the nodes of the requested page are read.
+     *
+     * @param workspace     Search in JCR workspace like collaboration
+     * @param query         Query string
+     * @param maxResultSize Max results returned
+     * @param pageNumber    paging number
+     * @return List of nodes
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static List<Node> getWrappedNodesFromPagedQuery(final String workspace,
+                                                           final String query,
+                                                           final int maxResultSize,
+                                                           final int pageNumber) throws RepositoryException {
+        return getWrappedNodesFromPagedQuery(workspace, query, Collections.<String, Object>emptyMap(), maxResultSize, pageNumber);
+    }
+
+    /**
+     * Query one page of items using JCR SQL2 syntax with bind variables.
+     *
+     * @param workspace     Search in JCR workspace like collaboration
+     * @param query         Query string
+     * @param bindings      Values by bind variable name, see {@link PreparedQueries}
+     * @param maxResultSize Max results returned
+     * @param pageNumber    paging number
+     * @return List of nodes
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static List<Node> getWrappedNodesFromPagedQuery(final String workspace,
+                                                           final String query,
+                                                           final Map<String, ?> bindings,
+                                                           final int maxResultSize,
+                                                           final int pageNumber) throws RepositoryException {
+        final List<Node> itemsListPaged = new ArrayList<>(0);
+        try (QueryExecutor.Execution execution = QueryExecutor.executePaged(workspace, query, bindings,
+                Math.max(0L, (long) maxResultSize * (pageNumber - 1)), maxResultSize)) {
+            final NodeIterator items = execution.getNodes();
+            while (items.hasNext() && itemsListPaged.size() < maxResultSize) {
+                itemsListPaged.add(new I18nNodeWrapper(items.nextNode()));
+            }
+        }
+        return itemsListPaged;
+    }
+
+    /**
+     * Count the results of a JCR SQL2 query without reading any nodes.
+     * The size reported by the repository is used when available, otherwise the result rows are counted.
+     * Counts are remembered for the duration of the current request, so repeated counts of the same query are free.
+     *
+     * @param workspace Search in JCR workspace like collaboration
+     * @param query     Query string
+     * @return Number of results
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static int countQueryResults(final String workspace, final String query) throws RepositoryException {
+        return countQueryResults(workspace, query, Collections.<String, Object>emptyMap());
+    }
+
+    /**
+     * Count the results of a JCR SQL2 query with bind variables without reading any nodes.
+     *
+     * @param workspace Search in JCR workspace like collaboration
+     * @param query     Query string
+     * @param bindings  Values by bind variable name, see {@link PreparedQueries}
+     * @return Number of results
+     * @throws javax.jcr.RepositoryException In case of read error
+     * @see #countQueryResults(String, String)
+     */
+    public static int countQueryResults(final String workspace, final String query, final Map<String, ?> bindings) throws RepositoryException {
+        final String countQuery = toCountQuery(query);
+        final String key = workspace + ':' + countQuery + PreparedQueries.toKey(bindings);
+        final Map<String, Integer> requestCounts = getRequestCounts();
+
+        Integer count = requestCounts == null ? null : requestCounts.get(key);
+        if (count == null) {
+            count = executeCountQuery(workspace, countQuery, bindings);
+            if (requestCounts != null) {
+                requestCounts.put(key, count);
+            }
+        } else {
+            LOGGER.debug("Using count of this request for query [{}].", countQuery);
+        }
+        return count;
+    }
+
+    /**
+     * Read one page of blog items found in the blog index.
+     *
+     * @param entries       Index entries in the requested order
+     * @param maxResultSize Max results returned
+     * @param pageNumber    paging number
+     * @return List of blog nodes, leaving out the blogs which are not readable for the current user
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static List<Node> getWrappedNodesFromIndex(final List<BlogIndexEntry> entries,
+                                                      final int maxResultSize,
+                                                      final int pageNumber) throws RepositoryException {
+        final long startRow = Math.max(0L, (long) maxResultSize * (pageNumber - 1));
+        if (startRow >= entries.size()) {
+            return new ArrayList<>(0);
+        }
+        final int endRow = (int) Math.min(entries.size(), startRow + maxResultSize);
+
+        final Session session = MgnlContext.getJCRSession(BlogRepositoryConstants.COLLABORATION);
+        final List<Node> itemsListPaged = new ArrayList<>(endRow - (int) startRow);
+        for (BlogIndexEntry entry : entries.subList((int) startRow, endRow)) {
+            try {
+                RoundTrips.increment();
+                itemsListPaged.add(new I18nNodeWrapper(session.getNodeByIdentifier(entry.getIdentifier())));
+            } catch (ItemNotFoundException e) {
+                LOGGER.debug("Indexed blog item is not readable: {}", entry.getPath());
+            }
+        }
+        return itemsListPaged;
+    }
+
+    /**
+     * The blog index is built in the system context, so listings from the index use this filter to leave out the
+     * blogs the current user is not allowed to read, keeping their totals in line with the blogs returned.
+     *
+     * @return Condition holding for the indexed blogs which are readable for the current user
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static Predicate<BlogIndexEntry> createReadableFilter() throws RepositoryException {
+        final Predicate<String> readablePath = createReadablePathFilter();
+        return entry -> readablePath.test(entry.getPath());
+    }
+
+    /**
+     * @return Condition holding for the paths in the collaboration workspace which are readable for the current user
+     * @throws javax.jcr.RepositoryException In case of read error
+     * @see #createReadableFilter()
+     */
+    public static Predicate<String> createReadablePathFilter() throws RepositoryException {
+        final Session session = MgnlContext.getJCRSession(BlogRepositoryConstants.COLLABORATION);
+        return path -> {
+            try {
+                return session.hasPermission(path, Session.ACTION_READ);
+            } catch (RepositoryException e) {
+                LOGGER.debug("Unable to check read permission of {}", path, e);
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Read the blog items with the given identifiers.
+     *
+     * @param identifiers Blog node identifiers in the requested order
+     * @return List of blog nodes, leaving out the blogs which no longer exist or are not readable for the current user
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static List<Node> getWrappedNodesByIdentifier(final List<String> identifiers) throws RepositoryException {
+        final Session session = MgnlContext.getJCRSession(BlogRepositoryConstants.COLLABORATION);
+        final List<Node> items = new ArrayList<>(identifiers.size());
+        for (String identifier : identifiers) {
+            try {
+                RoundTrips.increment();
+                items.add(new I18nNodeWrapper(session.getNodeByIdentifier(identifier)));
+            } catch (ItemNotFoundException e) {
+                LOGGER.debug("Blog item is not readable: {}", identifier);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Query the page next to the cursor using keyset (seek) paging: the query starts right after the cursor position
+     * instead of skipping the rows of the preceding pages. Items are sorted by date created in descending order and
+     * by identifier.
+     *
+     * @param path          Start node path in hierarchy
+     * @param contentType   Content type
+     * @param customFilters Custom filters
+     * @param bindings      Values of the bind variables in the custom filters, see {@link PreparedQueries}
+     * @param cursor        Position to seek, <code>null</code> for the first page
+     * @param pageSize      Number of items per page
+     * @return Page of nodes
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static CursorPage<Node> getWrappedNodesFromSeekQuery(final String path,
+                                                                final String contentType,
+                                                                final String customFilters,
+                                                                final Map<String, ?> bindings,
+                                                                final BlogCursor cursor,
+                                                                final int pageSize) throws RepositoryException {
+        final Map<String, Object> seekBindings = new LinkedHashMap<>(bindings);
+        if (cursor != null) {
+            seekBindings.put(PreparedQueries.CURSOR_CREATED, cursor.getCreatedDate());
+            seekBindings.put(PreparedQueries.CURSOR_IDENTIFIER, cursor.getIdentifier());
+        }
+
+        final List<Node> items = getWrappedNodesFromPagedQuery(BlogRepositoryConstants.COLLABORATION,
+                buildSeekQuery(path, contentType, customFilters, cursor), seekBindings, CursorPage.withLookAhead(pageSize), 1);
+        if (cursor != null && cursor.isBefore()) {
+            // Newer items are queried in ascending order, starting at the cursor
+            Collections.reverse(items);
+        }
+        return CursorPage.create(items, cursor, pageSize, BlogCursor::valueOf);
+    }
+
+    /**
+     * Select the items next to the cursor by reading the query result up to the cursor position. Used for listings
+     * that are not sorted by date created, where the query cannot seek to the cursor directly.
+     *
+     * @param workspace Search in JCR workspace like collaboration
+     * @param query     Query string
+     * @param bindings  Values by bind variable name, see {@link PreparedQueries}
+     * @param cursor    Position to seek, <code>null</code> for the first page
+     * @param pageSize  Number of items per page
+     * @return Page of nodes, empty when the cursor item is not found
+     * @throws javax.jcr.RepositoryException In case of read error
+     */
+    public static CursorPage<Node> getWrappedNodesNextTo(final String workspace,
+                                                         final String query,
+                                                         final Map<String, ?> bindings,
+                                                         final BlogCursor cursor,
+                                                         final int pageSize) throws RepositoryException {
+        final int selectSize = CursorPage.withLookAhead(pageSize);
+        final Deque<Node> selected = new ArrayDeque<>();
+        boolean found = cursor == null;
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(workspace, query, bindings)) {
+            final NodeIterator items = execution.getNodes();
+            while (items.hasNext() && (!found || selected.size() < selectSize)) {
+                final Node node = items.nextNode();
+                if (found) {
+                    selected.add(new I18nNodeWrapper(node));
+                } else if (cursor.getIdentifier().equals(node.getIdentifier())) {
+                    found = true;
+                    if (cursor.isBefore()) {
+                        break;
+                    }
+                } else if (cursor.isBefore()) {
+                    selected.add(new I18nNodeWrapper(node));
+                    if (selected.size() > selectSize) {
+                        selected.removeFirst();
+                    }
+                }
+            }
+            execution.setRowsUsed(found ? selected.size() : 0);
+        }
+        return CursorPage.create(found ? new ArrayList<>(selected) : new ArrayList<Node>(0), cursor, pageSize, BlogCursor::valueOf);
+    }
+
+    /**
+     * @param path          Start node path in hierarchy
+     * @param contentType   Content type
+     * @param customFilters Custom filters, may be <code>null</code>
+     * @param cursor        Position to seek, <code>null</code> for the first page
+     * @return A jcr query selecting the items next to the cursor position, see {@link PreparedQueries#CURSOR_CREATED}
+     */
+    public static String buildSeekQuery(final String path,
+                                        final String contentType,
+                                        final String customFilters,
+                                        final BlogCursor cursor) {
+        final StringBuilder query = new StringBuilder("SELECT p.* FROM [")
+                .append(contentType)
+                .append("] AS p WHERE ISDESCENDANTNODE(p, '")
+                .append(StringUtils.defaultIfEmpty(path, "/"))
+                .append("') ")
+                .append(StringUtils.defaultString(customFilters));
+
+        final boolean before = cursor != null && cursor.isBefore();
+        if (cursor != null) {
+            query.append("AND (p.[mgnl:created] ").append(before ? '>' : '<').append(" $").append(PreparedQueries.CURSOR_CREATED)
+                    .append(" OR (p.[mgnl:created] = $").append(PreparedQueries.CURSOR_CREATED)
+                    .append(" AND p.[jcr:uuid] ").append(before ? '<' : '>').append(" $").append(PreparedQueries.CURSOR_IDENTIFIER)
+                    .append(")) ");
+        }
+
+        query.append(before ? "ORDER BY p.[mgnl:created], p.[jcr:uuid] desc" : "ORDER BY p.[mgnl:created] desc, p.[jcr:uuid]");
+        LOGGER.debug("BuildSeekQuery [{}].", query.toString());
+        return query.toString();
     }
 
     /**
@@ -106,25 +418,96 @@ public final class BlogJcrUtils {
         return query.toString();
     }
 
-    private static List<Node> getWrappedNodesFromQuery(String query, int maxResultSize, int pageNumber, String nodeTypeName, String workspace) throws RepositoryException {
-        final List<Node> itemsListPaged = new ArrayList<>(0);
-        final NodeIterator items = QueryUtil.search(workspace, query, Query.JCR_SQL2, nodeTypeName);
+    /**
+     * @param filterProperty Filter property
+     * @return A blog count query, matching the filter property against the <code>$identifier</code> bind variable.
+     */
+    public static String buildBlogCountQuery(final String filterProperty) {
+        return "SELECT p.* from [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p,'/') AND contains(p." + filterProperty
+                + ", $" + PreparedQueries.IDENTIFIER + ")";
+    }
 
-        // Paging result set
-        final int startRow = (maxResultSize * (pageNumber - 1));
-        if (startRow > 0) {
-            try {
-                items.skip(startRow);
-            } catch (NoSuchElementException e) {
-                LOGGER.info("No more blog items found beyond this item number: {}", startRow);
+    private static int executeCountQuery(String workspace, String statement, Map<String, ?> bindings) throws RepositoryException {
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(workspace, statement, bindings)) {
+            final RowIterator rows = execution.getRows();
+            final long size = rows.getSize();
+            if (size >= 0) {
+                return (int) size;
             }
+
+            int count = 0;
+            while (rows.hasNext()) {
+                rows.nextRow();
+                count++;
+            }
+            // Counted rows are not used otherwise
+            execution.setRowsUsed(0);
+            return count;
+        }
+    }
+
+    /**
+     * Only select the identifier and drop the ordering, neither is needed to count the results.
+     */
+    private static String toCountQuery(String statement) {
+        return ORDER_BY_PATTERN.matcher(SELECT_ALL_PATTERN.matcher(statement).replaceFirst(COUNT_SELECT)).replaceFirst(StringUtils.EMPTY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Integer> getRequestCounts() {
+        if (!MgnlContext.isWebContext()) {
+            return null;
+        }
+        Map<String, Integer> requestCounts = (Map<String, Integer>) MgnlContext.getAttribute(REQUEST_COUNTS_ATTRIBUTE, Context.LOCAL_SCOPE);
+        if (requestCounts == null) {
+            requestCounts = new HashMap<>();
+            MgnlContext.setAttribute(REQUEST_COUNTS_ATTRIBUTE, requestCounts, Context.LOCAL_SCOPE);
+        }
+        return requestCounts;
+    }
+
+    private static List<Node> getWrappedNodesFromQuery(String query, Map<String, ?> bindings, int maxResultSize, int pageNumber, String nodeTypeName, String workspace) throws RepositoryException {
+        if (selectsNodeType(query, nodeTypeName)) {
+            // Every hit is a node of the requested type, so the repository can skip the rows of the preceding pages
+            return getWrappedNodesFromPagedQuery(workspace, query, bindings, maxResultSize, pageNumber);
         }
 
-        int count = 1;
-        while (items.hasNext() && count <= maxResultSize) {
-            itemsListPaged.add(new I18nNodeWrapper(items.nextNode()));
-            count++;
+        final List<Node> itemsListPaged = new ArrayList<>(0);
+        final long startRow = Math.max(0L, (long) maxResultSize * (pageNumber - 1));
+        try (QueryExecutor.Execution execution = QueryExecutor.execute(workspace, query, bindings)) {
+            final NodeIterator items = execution.getNodes();
+
+            // Paging result set, counting the hits of the requested node type only
+            long row = 0;
+            while (items.hasNext() && itemsListPaged.size() < maxResultSize) {
+                final Node node = toNodeOfType(items.nextNode(), nodeTypeName);
+                if (node != null && row++ >= startRow) {
+                    itemsListPaged.add(new I18nNodeWrapper(node));
+                }
+            }
+            execution.setRowsUsed(itemsListPaged.size());
+        }
+        if (itemsListPaged.isEmpty() && startRow > 0) {
+            LOGGER.info("No more blog items found beyond this item number: {}", startRow);
         }
         return itemsListPaged;
     }
+
+    /**
+     * @return <code>true</code> when the statement selects nodes of the given type, like {@link #buildQuery(String, String)}
+     */
+    static boolean selectsNodeType(String statement, String nodeTypeName) {
+        return StringUtils.isNotEmpty(nodeTypeName) && Pattern.compile("^SELECT\\s+p\\.\\*\\s+FROM\\s+\\[" + Pattern.quote(nodeTypeName) + "\\]",
+                Pattern.CASE_INSENSITIVE).matcher(statement).find();
+    }
+
+    /**
+     * Map a query hit onto the given node type like {@link info.magnolia.cms.util.QueryUtil#search} does.
+     */
+    static Node toNodeOfType(Node node, String nodeTypeName) throws RepositoryException {
+        if (StringUtils.isEmpty(nodeTypeName) || node.isNodeType(nodeTypeName)) {
+            return node;
+        }
+        return node.getDepth() > 0 ? NodeUtil.getNearestAncestorOfType(node, nodeTypeName) : null;
+    }
 }
\ No newline at end of file
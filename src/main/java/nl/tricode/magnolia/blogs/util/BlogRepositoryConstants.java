@@ -10,5 +10,6 @@ public interface BlogRepositoryConstants extends RepositoryConstants {
     String COLLABORATION = "collaboration";
     String CONTACTS = "contacts";
     String CATEGORY = "category";
+    String DAM = "dam";
 
 }
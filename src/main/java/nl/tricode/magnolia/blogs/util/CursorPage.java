@@ -0,0 +1,116 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import javax.jcr.RepositoryException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset paged listing, with the cursors of the neighbouring pages.
+ *
+ * @param <T> Type of the items
+ * @see BlogCursor
+ */
+public final class CursorPage<T> {
+
+    private final List<T> items;
+    private final String olderCursor;
+    private final String newerCursor;
+
+    private CursorPage(List<T> items, String olderCursor, String newerCursor) {
+        this.items = items;
+        this.olderCursor = olderCursor;
+        this.newerCursor = newerCursor;
+    }
+
+    /**
+     * Create the page from the items selected next to the cursor. One item more than the page size is expected when
+     * available: at the end for a page following the cursor and at the start for a page preceding it, telling that
+     * another page exists in that direction without counting.
+     *
+     * @param items    Items in listing order, including the look-ahead item
+     * @param cursor   Cursor the items were selected by, <code>null</code> for the first page
+     * @param pageSize Number of items per page
+     * @param values   Cursor value of an item
+     * @param <T>      Type of the items
+     * @return Page
+     * @throws RepositoryException Handling RepositoryException.
+     */
+    public static <T> CursorPage<T> create(List<T> items, BlogCursor cursor, int pageSize, CursorValue<T> values) throws RepositoryException {
+        final boolean before = cursor != null && cursor.isBefore();
+        final boolean hasMore = items.size() > pageSize;
+        final List<T> page = !hasMore ? items : before ? items.subList(items.size() - pageSize, items.size()) : items.subList(0, pageSize);
+        if (page.isEmpty()) {
+            return new CursorPage<>(Collections.<T>emptyList(), null, null);
+        }
+
+        final boolean hasOlder = before || hasMore;
+        final boolean hasNewer = before ? hasMore : cursor != null;
+        return new CursorPage<>(page,
+                hasOlder ? values.apply(page.get(page.size() - 1)) : null,
+                hasNewer ? values.apply(page.get(0)) : null);
+    }
+
+    /**
+     * @param items       Items of the page
+     * @param olderCursor Cursor of the next page of older items, <code>null</code> when there is none
+     * @param newerCursor Cursor of the previous page of newer items, <code>null</code> when there is none
+     * @param <T>         Type of the items
+     * @return Page
+     */
+    public static <T> CursorPage<T> of(List<T> items, String olderCursor, String newerCursor) {
+        return new CursorPage<>(items, olderCursor, newerCursor);
+    }
+
+    /**
+     * @param pageSize Number of items per page
+     * @return Number of items to select for a page, including the look-ahead item
+     */
+    public static int withLookAhead(int pageSize) {
+        return pageSize == Integer.MAX_VALUE ? pageSize : pageSize + 1;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return Value for the <code>after</code> parameter selecting the next page of older items, <code>null</code> when there is none
+     */
+    public String getOlderCursor() {
+        return olderCursor;
+    }
+
+    /**
+     * @return Value for the <code>before</code> parameter selecting the previous page of newer items, <code>null</code> when there is none
+     */
+    public String getNewerCursor() {
+        return newerCursor;
+    }
+
+    /**
+     * Cursor value of an item.
+     *
+     * @param <T> Type of the items
+     */
+    public interface CursorValue<T> {
+        String apply(T item) throws RepositoryException;
+    }
+}
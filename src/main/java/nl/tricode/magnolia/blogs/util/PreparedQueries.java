@@ -0,0 +1,143 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import info.magnolia.context.MgnlContext;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.query.InvalidQueryException;
+import javax.jcr.query.Query;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * JCR-SQL2 queries with bind variables.
+ * Statements only contain the shape of a query, filter values are bound using the variables below, so the same
+ * statement is used for every request and filter values never have to be escaped into the statement.
+ */
+public final class PreparedQueries {
+
+    /**
+     * Bind variable for an author (contact) identifier, used as <code>$author</code>.
+     */
+    public static final String AUTHOR = "author";
+
+    /**
+     * Bind variable for a category identifier, used as <code>$category</code>.
+     */
+    public static final String CATEGORY = "category";
+
+    /**
+     * Bind variable for the start of a date range, used as <code>$from</code>.
+     */
+    public static final String FROM = "from";
+
+    /**
+     * Bind variable for the end of a date range, used as <code>$to</code>.
+     */
+    public static final String TO = "to";
+
+    /**
+     * Bind variable for the current date, used as <code>$now</code>.
+     */
+    public static final String NOW = "now";
+
+    /**
+     * Bind variable for a node name, used as <code>$name</code>.
+     */
+    public static final String NAME = "name";
+
+    /**
+     * Bind variable for any referenced identifier, used as <code>$identifier</code>.
+     */
+    public static final String IDENTIFIER = "identifier";
+
+    /**
+     * Bind variable for the date created of a keyset paging cursor, used as <code>$cursorCreated</code>.
+     */
+    public static final String CURSOR_CREATED = "cursorCreated";
+
+    /**
+     * Bind variable for the identifier of a keyset paging cursor, used as <code>$cursorIdentifier</code>.
+     */
+    public static final String CURSOR_IDENTIFIER = "cursorIdentifier";
+
+    private PreparedQueries() {
+        // Util class, prevent instantiating
+    }
+
+    /**
+     * Create a query for the statement and bind the given values.
+     * Every call creates its own query, so queries are never shared between threads and no value bound for one
+     * execution is used by another. All bind variables of the statement have to be given a value.
+     *
+     * @param workspace Search in JCR workspace like collaboration
+     * @param statement JCR-SQL2 statement
+     * @param bindings  Values by bind variable name, either {@link String}, {@link Calendar} or {@link Value}
+     * @return Query ready to execute
+     * @throws RepositoryException In case the statement is invalid, or a value is missing or can not be bound
+     */
+    public static Query prepare(String workspace, String statement, Map<String, ?> bindings) throws RepositoryException {
+        final Session session = MgnlContext.getJCRSession(workspace);
+        final Query query = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2);
+
+        for (String variable : query.getBindVariableNames()) {
+            if (bindings == null || !bindings.containsKey(variable)) {
+                throw new InvalidQueryException("No value bound to $" + variable + " of query [" + statement + "]");
+            }
+        }
+        if (bindings != null && !bindings.isEmpty()) {
+            final ValueFactory valueFactory = session.getValueFactory();
+            for (Map.Entry<String, ?> binding : bindings.entrySet()) {
+                query.bindValue(binding.getKey(), toValue(valueFactory, binding.getValue()));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * @param bindings Values by bind variable name
+     * @return Text uniquely representing the bound values, for use in cache keys
+     */
+    public static String toKey(Map<String, ?> bindings) {
+        if (bindings == null || bindings.isEmpty()) {
+            return "";
+        }
+        final StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, ?> binding : bindings.entrySet()) {
+            final Object value = binding.getValue();
+            key.append('$').append(binding.getKey()).append('=')
+                    .append(value instanceof Calendar ? ((Calendar) value).getTimeInMillis() : value);
+        }
+        return key.toString();
+    }
+
+    private static Value toValue(ValueFactory valueFactory, Object value) {
+        if (value instanceof Value) {
+            return (Value) value;
+        }
+        if (value instanceof Calendar) {
+            return valueFactory.createValue((Calendar) value);
+        }
+        return valueFactory.createValue(String.valueOf(value));
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import info.magnolia.jcr.RuntimeRepositoryException;
+import info.magnolia.objectfactory.Components;
+import nl.tricode.magnolia.blogs.metrics.QueryMetrics;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Executes every JCR-SQL2 query of the module, so each execution is counted as a round trip and recorded in the
+ * {@link QueryMetrics}: the time taken to execute the query and read its results, the rows returned and the rows
+ * used. Results are read from an {@link Execution}, which records its metrics when closed:
+ * <pre>
+ * try (QueryExecutor.Execution execution = QueryExecutor.execute(workspace, statement, bindings)) {
+ *     final NodeIterator nodes = execution.getNodes();
+ *     ...
+ * }
+ * </pre>
+ */
+public final class QueryExecutor {
+
+    private QueryExecutor() {
+        // Util class, prevent instantiating
+    }
+
+    /**
+     * @param workspace Search in JCR workspace like collaboration
+     * @param statement JCR-SQL2 statement
+     * @param bindings  Values by bind variable name, see {@link PreparedQueries}
+     * @return Execution of the query
+     * @throws RepositoryException In case the statement is invalid or can not be executed
+     */
+    public static Execution execute(String workspace, String statement, Map<String, ?> bindings) throws RepositoryException {
+        return start(workspace, statement, PreparedQueries.prepare(workspace, statement, bindings));
+    }
+
+    /**
+     * @param workspace Search in JCR workspace like collaboration
+     * @param statement JCR-SQL2 statement
+     * @param bindings  Values by bind variable name, see {@link PreparedQueries}
+     * @param offset    Number of rows to skip
+     * @param limit     Maximum number of rows returned
+     * @return Execution of the query returning one page of rows
+     * @throws RepositoryException In case the statement is invalid or can not be executed
+     */
+    public static Execution executePaged(String workspace, String statement, Map<String, ?> bindings, long offset, long limit)
+            throws RepositoryException {
+        final Query query = PreparedQueries.prepare(workspace, statement, bindings);
+        query.setOffset(offset);
+        query.setLimit(limit);
+        return start(workspace, statement, query);
+    }
+
+    private static Execution start(String workspace, String statement, Query query) throws RepositoryException {
+        RoundTrips.increment();
+        final long start = System.nanoTime();
+        return new Execution(workspace, statement, query.execute(), start);
+    }
+
+    /**
+     * Result of one query execution, counting the rows read from it.
+     */
+    public static final class Execution implements AutoCloseable {
+
+        private final String workspace;
+        private final String statement;
+        private final QueryResult result;
+        private final long start;
+        private RangeCounter counter;
+        private long rowsUsed = -1;
+        private boolean closed;
+
+        private Execution(String workspace, String statement, QueryResult result, long start) {
+            this.workspace = workspace;
+            this.statement = statement;
+            this.result = result;
+            this.start = start;
+        }
+
+        /**
+         * @return Nodes of the result
+         * @throws RepositoryException In case of read error
+         */
+        public NodeIterator getNodes() throws RepositoryException {
+            final CountingNodeIterator nodes = new CountingNodeIterator(result.getNodes());
+            counter = nodes;
+            return nodes;
+        }
+
+        /**
+         * Map every hit onto its nearest node of the given type, leaving out duplicates and hits without such a node,
+         * like {@link info.magnolia.cms.util.QueryUtil#search(String, String, String, String)} does.
+         *
+         * @param nodeTypeName Node type name
+         * @return Nodes of the given type
+         * @throws RepositoryException In case of read error
+         */
+        public NodeIterator getNodes(String nodeTypeName) throws RepositoryException {
+            final CountingNodeIterator nodes = new CountingNodeIterator(result.getNodes());
+            counter = nodes;
+            return new NodeTypeIterator(nodes, nodeTypeName);
+        }
+
+        /**
+         * @return Rows of the result
+         * @throws RepositoryException In case of read error
+         */
+        public RowIterator getRows() throws RepositoryException {
+            final CountingRowIterator rows = new CountingRowIterator(result.getRows());
+            counter = rows;
+            return rows;
+        }
+
+        /**
+         * @param rowsUsed Number of rows the caller actually used, by default the number of rows read
+         */
+        public void setRowsUsed(long rowsUsed) {
+            this.rowsUsed = rowsUsed;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            final QueryMetrics metrics = Components.getComponent(QueryMetrics.class);
+            if (metrics != null) {
+                final long read = counter == null ? 0 : counter.read;
+                final long size = counter == null ? -1 : counter.getSize();
+                metrics.record(workspace, statement, System.nanoTime() - start, Math.max(read, size), rowsUsed < 0 ? read : rowsUsed);
+            }
+        }
+    }
+
+    private abstract static class RangeCounter {
+
+        long read;
+
+        abstract long getSize();
+    }
+
+    private static final class CountingNodeIterator extends RangeCounter implements NodeIterator {
+
+        private final NodeIterator nodes;
+
+        private CountingNodeIterator(NodeIterator nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public Node nextNode() {
+            final Node node = nodes.nextNode();
+            read++;
+            return node;
+        }
+
+        @Override
+        public Object next() {
+            return nextNode();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nodes.hasNext();
+        }
+
+        @Override
+        public void skip(long skipNum) {
+            nodes.skip(skipNum);
+        }
+
+        @Override
+        public long getSize() {
+            return nodes.getSize();
+        }
+
+        @Override
+        public long getPosition() {
+            return nodes.getPosition();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class CountingRowIterator extends RangeCounter implements RowIterator {
+
+        private final RowIterator rows;
+
+        private CountingRowIterator(RowIterator rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Row nextRow() {
+            final Row row = rows.nextRow();
+            read++;
+            return row;
+        }
+
+        @Override
+        public Object next() {
+            return nextRow();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public void skip(long skipNum) {
+            rows.skip(skipNum);
+        }
+
+        @Override
+        public long getSize() {
+            return rows.getSize();
+        }
+
+        @Override
+        public long getPosition() {
+            return rows.getPosition();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Nodes of a type, mapped from the hits read ahead of time.
+     */
+    private static final class NodeTypeIterator implements NodeIterator {
+
+        private final NodeIterator hits;
+        private final String nodeTypeName;
+        private final Set<String> paths = new HashSet<>();
+        private Node next;
+        private long position;
+
+        private NodeTypeIterator(NodeIterator hits, String nodeTypeName) {
+            this.hits = hits;
+            this.nodeTypeName = nodeTypeName;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && hits.hasNext()) {
+                    final Node node = BlogJcrUtils.toNodeOfType(hits.nextNode(), nodeTypeName);
+                    if (node != null && paths.add(node.getPath())) {
+                        next = node;
+                    }
+                }
+                return next != null;
+            } catch (RepositoryException e) {
+                throw new RuntimeRepositoryException(e);
+            }
+        }
+
+        @Override
+        public Node nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Node node = next;
+            next = null;
+            position++;
+            return node;
+        }
+
+        @Override
+        public Object next() {
+            return nextNode();
+        }
+
+        @Override
+        public void skip(long skipNum) {
+            for (long i = 0; i < skipNum; i++) {
+                nextNode();
+            }
+        }
+
+        @Override
+        public long getSize() {
+            return -1;
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
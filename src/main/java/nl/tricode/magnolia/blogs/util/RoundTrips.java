@@ -0,0 +1,65 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import info.magnolia.context.Context;
+import info.magnolia.context.MgnlContext;
+
+/**
+ * Number of JCR round trips (query executions and node reads by identifier) made by the blog module for the current
+ * request, to tell how much repository access a rendering costs.
+ */
+public final class RoundTrips {
+
+    private static final String REQUEST_ATTRIBUTE = RoundTrips.class.getName();
+
+    private RoundTrips() {
+        // Util class, prevent instantiating
+    }
+
+    /**
+     * Count one round trip for the current request.
+     */
+    public static void increment() {
+        final int[] count = getRequestCount();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    /**
+     * @return Number of round trips counted for the current request, <code>0</code> outside a request
+     */
+    public static int get() {
+        final int[] count = getRequestCount();
+        return count == null ? 0 : count[0];
+    }
+
+    private static int[] getRequestCount() {
+        if (!MgnlContext.isWebContext()) {
+            return null;
+        }
+        int[] count = (int[]) MgnlContext.getAttribute(REQUEST_ATTRIBUTE, Context.LOCAL_SCOPE);
+        if (count == null) {
+            count = new int[1];
+            MgnlContext.setAttribute(REQUEST_ATTRIBUTE, count, Context.LOCAL_SCOPE);
+        }
+        return count;
+    }
+}
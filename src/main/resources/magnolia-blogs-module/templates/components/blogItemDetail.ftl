@@ -8,11 +8,11 @@
             ${blog.message!""}
         </section>
 
-        [#assign author = cmsfn.contentById(blog.author, "contacts" ) /]
+        [#assign author = blogfn.author(blog.author!"")! /]
         <div class="postdetails">
             <ul class="list-unstyled inline-list blog-info">
                 <li><i class="fa fa-calendar">${cmsfn.metaData(blog,"mgnl:created")?date("yyyy-MM-dd")}</i></li>
-                <li><i class="fa fa-pencil">${author.firstName} ${author.lastName}</i></li>
+                <li><i class="fa fa-pencil">${author.name!}</i></li>
             </ul>
         </div>
     </article>
@@ -1,4 +1,5 @@
 [#if (!ctx.parameters.name?has_content)]
+[@model.fragmentCache]
     [#if (content.blogGroup?has_content) ]
         [#assign blogGroupPath = cmsfn.contentById(content.blogGroup, "collaboration").@path /]
     [/#if]
@@ -21,7 +22,7 @@
                     <h2>${blog.title!"No title found"}</h2>
                 [/#if]
 
-                [#assign categories = model.getBlogCategories(blog) /]
+                [#assign categories = model.getPageCategories(blog) /]
                 [#if (categories)?size > 0 ]
                     <div class="postdetails">
                         <ul class="list-unstyled inline-list blog-categories">
@@ -45,11 +46,11 @@
                     [/#if]
                 </section>
 
-                [#assign author = cmsfn.contentById(blog.author, "contacts" ) /]
+                [#assign author = blogfn.author(blog.author!"")! /]
                 <div class="postdetails">
                     <ul class="list-unstyled inline-list blog-info">
                         <li><i class="fa fa-calendar">${cmsfn.metaData(blog,"mgnl:created")?date("yyyy-MM-dd")}</i></li>
-                        <li><i class="fa fa-pencil">${author.firstName} ${author.lastName}</i></li>
+                        <li><i class="fa fa-pencil">${author.name!}</i></li>
                     </ul>
                 </div>
             </article>
@@ -62,26 +63,25 @@
             <p>No blog entries available</p>
         </div>
     [/#if]
+[/@model.fragmentCache]
 [/#if]
 
+[#-- Pager links hold the page number for bookmarks and crawlers, and the cursor the listing continues from --]
 [#macro renderPagination]
-    [#assign olderPages = model.pageOlderPosts(blogGroupPath!"/",(content.maxResultsPerPage!"5")?number) /]
+    [#assign olderCursor = model.olderCursor! /]
+    [#assign newerCursor = model.newerCursor! /]
 
-    [#if (olderPages > 1)]
+    [#if (olderCursor?has_content || newerCursor?has_content)]
         <ul class="pager">
 
-        [#assign hasOlderPages = model.hasOlderPosts(blogGroupPath!"/",(content.maxResultsPerPage!"5")?number) /]
-        [#if (hasOlderPages)]
-            <a class="button left small" href="${pageLink}?page=${olderPages}">
+        [#if (olderCursor?has_content)]
+            <a class="button left small" href="${pageLink}?page=${model.pageNumber + 1}&amp;after=${olderCursor?url}">
                 <i class="fa fa-chevron-left">Older</i>
             </a>
         [/#if]
 
-        [#assign hasNewerPages =  model.hasNewerPosts() /]
-        [#if (hasNewerPages)]
-            [#assign newerPages =  model.pageNewerPosts() /]
-
-            <a class="button right small" href="${pageLink}?page=${newerPages}">
+        [#if (newerCursor?has_content)]
+            <a class="button right small" href="${pageLink}?page=${model.pageNewerPosts()}&amp;before=${newerCursor?url}">
                 <i class="fa fa-chevron-right">Newer</i>
             </a>
         [/#if]
@@ -26,6 +26,8 @@ import info.magnolia.jcr.util.NodeTypes;
 import info.magnolia.ui.vaadin.integration.jcr.JcrItemAdapter;
 import info.magnolia.ui.workbench.column.definition.PropertyColumnDefinition;
 import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.cache.AuthorCache;
+import nl.tricode.magnolia.blogs.cache.ContentVersionTracker;
 import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.JcrConstants;
@@ -62,7 +64,7 @@ public class AuthorNameColumnFormatterTest {
 
     @Before
     public void setUp() throws Exception {
-        formatter = new AuthorNameColumnFormatter(new PropertyColumnDefinition());
+        formatter = new AuthorNameColumnFormatter(new PropertyColumnDefinition(), new AuthorCache(new ContentVersionTracker()));
 
         MgnlContext.setInstance(mockWebContext);
     }
@@ -0,0 +1,144 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import nl.tricode.magnolia.blogs.util.BlogRepositoryConstants;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test(s) for {@link DatasetGenerator}.
+ */
+public class DatasetGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGeneratesFoldersAndReferences() throws Exception {
+        DatasetGenerator generator = createGenerator();
+        RecordingWriter writer = new RecordingWriter();
+
+        generator.generate(writer);
+
+        Assert.assertEquals(25, writer.blogPaths.size());
+        Assert.assertEquals("/test-0000/0000/blog-0", writer.blogPaths.get(0));
+        Assert.assertEquals("/test-0000/0001/blog-5", writer.blogPaths.get(5));
+        Assert.assertEquals("/test-0001/0000/blog-20", writer.blogPaths.get(20));
+        Assert.assertEquals(12, generator.getCategoryIdentifiers().size());
+        Assert.assertEquals(4, generator.getAuthorIdentifiers().size());
+        Assert.assertTrue(writer.parents.isEmpty());
+        for (Map<String, Object> blog : writer.blogs) {
+            Assert.assertTrue(generator.getAuthorIdentifiers().contains(blog.get(BlogsNodeTypes.Blog.PROPERTY_AUTHOR)));
+            Assert.assertTrue(generator.getCategoryIdentifiers().containsAll(Arrays.asList((String[]) blog.get(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES))));
+            Assert.assertTrue(((String) blog.get(BlogsNodeTypes.Blog.PROPERTY_MESSAGE)).length() >= 100);
+        }
+    }
+
+    @Test
+    public void testWritesBootstrapFiles() throws Exception {
+        File directory = temporaryFolder.newFolder("bootstrap");
+        DatasetGenerator generator = createGenerator();
+
+        try (XmlDatasetWriter writer = new XmlDatasetWriter(directory)) {
+            generator.generate(writer);
+        }
+
+        List<String> files = Arrays.asList(directory.list());
+        Assert.assertEquals(4, files.size());
+        Assert.assertTrue(files.containsAll(Arrays.asList("contacts.test.xml", "category.test.xml",
+                "collaboration.test-0000.xml", "collaboration.test-0001.xml")));
+
+        String xml = new String(Files.readAllBytes(new File(directory, "collaboration.test-0000.xml").toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(xml.contains("<sv:node xmlns:sv=\"http://www.jcp.org/jcr/sv/1.0\" sv:name=\"test-0000\">"));
+        Assert.assertTrue(xml.contains("<sv:property sv:name=\"categories\" sv:type=\"String\" sv:multiple=\"true\">"));
+        Assert.assertTrue(xml.contains("<sv:value>mgnl:blog</sv:value>"));
+        Assert.assertTrue(xml.contains("&lt;p&gt;"));
+    }
+
+    private static DatasetGenerator createGenerator() {
+        Calendar endDate = Calendar.getInstance();
+        endDate.clear();
+        endDate.set(2017, Calendar.JANUARY, 1);
+
+        DatasetGenerator generator = new DatasetGenerator();
+        generator.setName("test");
+        generator.setBlogCount(25);
+        generator.setBlogsPerFolder(5);
+        generator.setFoldersPerFolder(4);
+        generator.setCategoryCount(12);
+        generator.setAuthorCount(4);
+        generator.setMinMessageLength(100);
+        generator.setMaxMessageLength(200);
+        generator.setEndDate(endDate);
+        return generator;
+    }
+
+    private static class RecordingWriter implements DatasetWriter {
+
+        private final Deque<String> parents = new ArrayDeque<>();
+        private final List<String> blogPaths = new ArrayList<>();
+        private final List<Map<String, Object>> blogs = new ArrayList<>();
+
+        @Override
+        public void startWorkspace(String workspace) {
+            Assert.assertTrue(Arrays.asList(BlogRepositoryConstants.CONTACTS, BlogRepositoryConstants.CATEGORY,
+                    BlogRepositoryConstants.COLLABORATION).contains(workspace));
+        }
+
+        @Override
+        public String startNode(String name, String nodeType, String identifier, Map<String, Object> properties) {
+            final String path = (parents.isEmpty() ? "" : parents.peek()) + "/" + name;
+            if (BlogsNodeTypes.Blog.NAME.equals(nodeType)) {
+                blogPaths.add(path);
+                blogs.add(properties);
+            }
+            parents.push(path);
+            return identifier;
+        }
+
+        @Override
+        public void endNode() {
+            parents.pop();
+        }
+
+        @Override
+        public void endWorkspace() {
+            Assert.assertTrue(parents.isEmpty());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.generator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Unit test(s) for {@link ZipfDistribution}.
+ */
+public class ZipfDistributionTest {
+
+    @Test
+    public void testProbabilitiesFollowRank() {
+        ZipfDistribution distribution = new ZipfDistribution(4, 1.0);
+
+        // 1 + 1/2 + 1/3 + 1/4 = 25/12
+        Assert.assertEquals(12.0 / 25, distribution.probability(0), 1e-9);
+        Assert.assertEquals(6.0 / 25, distribution.probability(1), 1e-9);
+        Assert.assertEquals(3.0 / 25, distribution.probability(3), 1e-9);
+    }
+
+    @Test
+    public void testSamplesAreSkewedTowardsFirstRanks() {
+        ZipfDistribution distribution = new ZipfDistribution(100, 1.0);
+        Random random = new Random(1);
+        int[] counts = new int[distribution.size()];
+        for (int i = 0; i < 100000; i++) {
+            counts[distribution.sample(random)]++;
+        }
+
+        Assert.assertEquals(distribution.probability(0), counts[0] / 100000.0, 0.01);
+        Assert.assertTrue(counts[0] > counts[1]);
+        Assert.assertTrue(counts[1] > counts[9]);
+        Assert.assertTrue(counts[9] > counts[99]);
+    }
+}
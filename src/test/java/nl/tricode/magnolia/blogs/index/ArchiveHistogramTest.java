@@ -0,0 +1,69 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Unit test(s) for {@link ArchiveHistogram}.
+ */
+public class ArchiveHistogramTest {
+
+    @Test
+    public void testPackedKey() {
+        int key = ArchiveHistogram.toKey(2016, 12);
+
+        Assert.assertEquals(2016, ArchiveHistogram.getYear(key));
+        Assert.assertEquals(12, ArchiveHistogram.getMonth(key));
+        Assert.assertEquals(ArchiveHistogram.toKey(2017, 1), key + 1);
+    }
+
+    @Test
+    public void testCountsMostRecentMonthFirst() {
+        ArchiveHistogram archive = new ArchiveHistogram();
+        archive.add(ArchiveHistogram.toKey(2015, 3));
+        archive.add(ArchiveHistogram.toKey(2016, 1));
+        archive.add(ArchiveHistogram.toKey(2015, 3));
+
+        Map<Integer, Integer> counts = archive.getCounts();
+
+        Assert.assertEquals(Arrays.asList(ArchiveHistogram.toKey(2016, 1), ArchiveHistogram.toKey(2015, 3)),
+                new ArrayList<>(counts.keySet()));
+        Assert.assertEquals(Integer.valueOf(2), counts.get(ArchiveHistogram.toKey(2015, 3)));
+    }
+
+    @Test
+    public void testRemoveDropsEmptyMonths() {
+        ArchiveHistogram archive = new ArchiveHistogram();
+        archive.add(ArchiveHistogram.toKey(2015, 3));
+        archive.add(ArchiveHistogram.toKey(2015, 3));
+
+        archive.remove(ArchiveHistogram.toKey(2015, 3));
+        Assert.assertEquals(Integer.valueOf(1), archive.getCounts().get(ArchiveHistogram.toKey(2015, 3)));
+
+        archive.remove(ArchiveHistogram.toKey(2015, 3));
+        archive.remove(ArchiveHistogram.toKey(2014, 1));
+        Assert.assertTrue(archive.getCounts().isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * Unit test(s) for {@link BlogIndex}.
+ */
+public class BlogIndexTest {
+
+    @Test
+    public void testPutIsListedAfterPublish() {
+        BlogIndex index = new BlogIndex();
+        index.put(entry("a", "/2015/a", 1000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("b", "/2015/b", 3000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("c", "/2016/c", 2000L, BlogIndexEntry.NO_DATE));
+
+        Assert.assertEquals(Collections.emptyList(), index.getEntries());
+        Assert.assertEquals(0, index.select().count("/"));
+        long version = index.getVersion();
+
+        index.publish();
+
+        Assert.assertEquals(Arrays.asList("b", "c", "a"), identifiers(index.getEntries()));
+        Assert.assertEquals(3, index.select().count("/"));
+        Assert.assertEquals(2, index.select().count("/2015"));
+        Assert.assertEquals(version + 1, index.getVersion());
+    }
+
+    @Test
+    public void testPublishedSnapshotIsNotChanged() {
+        BlogIndex index = new BlogIndex();
+        index.put(entry("a", "/a", 1000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("b", "/b", 2000L, BlogIndexEntry.NO_DATE));
+        index.publish();
+        List<BlogIndexEntry> snapshot = index.getEntries();
+        BlogSelection selection = index.select();
+
+        index.remove(Collections.singleton("/b"));
+        index.put(entry("c", "/c", 3000L, BlogIndexEntry.NO_DATE));
+
+        Assert.assertEquals(Arrays.asList("b", "a"), identifiers(index.getEntries()));
+        index.publish();
+
+        Assert.assertEquals(Arrays.asList("b", "a"), identifiers(snapshot));
+        Assert.assertEquals(2, selection.count("/"));
+        Assert.assertEquals(Arrays.asList("c", "a"), identifiers(index.getEntries()));
+        try {
+            index.getEntries().clear();
+            Assert.fail("Published entries must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRemoveDropsBlogsAtOrBelowPath() {
+        BlogIndex index = new BlogIndex();
+        index.put(entry("a", "/2015/a", 1000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("b", "/2015/b", 2000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("c", "/20150/c", 3000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("d", "/d", 4000L, BlogIndexEntry.NO_DATE));
+
+        index.remove(Arrays.asList("/2015", "/d"));
+        index.publish();
+
+        Assert.assertEquals(Collections.singletonList("c"), identifiers(index.getEntries()));
+        Assert.assertNull(index.getEntry("a"));
+        Assert.assertNull(index.getEntryByName("d"));
+        Assert.assertNotNull(index.getEntryByName("c"));
+    }
+
+    @Test
+    public void testPutReplacesEntryAndArchiveCount() {
+        BlogIndex index = new BlogIndex();
+        int january = ArchiveHistogram.toKey(2015, 1);
+        int february = ArchiveHistogram.toKey(2015, 2);
+        index.put(entry("a", "/a", millis(2015, 1), BlogIndexEntry.NO_DATE));
+        index.put(entry("b", "/b", millis(2015, 1), BlogIndexEntry.NO_DATE));
+        index.publish();
+        Assert.assertEquals(Integer.valueOf(2), index.getArchiveCounts().get(january));
+
+        index.put(entry("a", "/a", millis(2015, 2), BlogIndexEntry.NO_DATE));
+        index.publish();
+
+        NavigableMap<Integer, Integer> counts = index.getArchiveCounts();
+        Assert.assertEquals(Integer.valueOf(1), counts.get(january));
+        Assert.assertEquals(Integer.valueOf(1), counts.get(february));
+        Assert.assertEquals(2, index.getEntries().size());
+        Assert.assertEquals(millis(2015, 2), index.getEntry("a").getCreated());
+    }
+
+    @Test
+    public void testEntryByNameIsMostRecentlyCreated() {
+        BlogIndex index = new BlogIndex();
+        index.put(entry("a", "/2015/post", 1000L, BlogIndexEntry.NO_DATE));
+        index.put(entry("b", "/2016/post", 2000L, BlogIndexEntry.NO_DATE));
+        index.publish();
+
+        Assert.assertEquals("b", index.getEntryByName("post").getIdentifier());
+        Assert.assertNull(index.getEntryByName("unknown"));
+    }
+
+    @Test
+    public void testPublishDates() {
+        BlogIndex index = new BlogIndex();
+        Assert.assertEquals(Long.MAX_VALUE, index.getNextPublishDate(0L));
+        Assert.assertEquals(BlogIndexEntry.NO_DATE, index.getLastPublishDate(0L));
+
+        index.put(entry("a", "/a", 1000L, 5000L));
+        index.put(entry("b", "/b", 2000L, 3000L));
+        index.put(entry("c", "/c", 3000L, BlogIndexEntry.NO_DATE));
+        index.publish();
+
+        Assert.assertEquals(3000L, index.getNextPublishDate(1000L));
+        Assert.assertEquals(BlogIndexEntry.NO_DATE, index.getLastPublishDate(1000L));
+        Assert.assertEquals(5000L, index.getNextPublishDate(3000L));
+        Assert.assertEquals(3000L, index.getLastPublishDate(3000L));
+        Assert.assertEquals(Long.MAX_VALUE, index.getNextPublishDate(5000L));
+        Assert.assertEquals(5000L, index.getLastPublishDate(6000L));
+    }
+
+    private static BlogIndexEntry entry(String identifier, String path, long created, long publishDate) {
+        return new BlogIndexEntry(identifier, path.substring(path.lastIndexOf('/') + 1), identifier, path, created,
+                BlogIndexEntry.NO_DATE, publishDate, null, Collections.<String>emptySet());
+    }
+
+    private static long millis(int year, int month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, 15);
+        return calendar.getTimeInMillis();
+    }
+
+    private static List<String> identifiers(List<BlogIndexEntry> entries) {
+        String[] identifiers = new String[entries.size()];
+        for (int i = 0; i < identifiers.length; i++) {
+            identifiers[i] = entries.get(i).getIdentifier();
+        }
+        return Arrays.asList(identifiers);
+    }
+}
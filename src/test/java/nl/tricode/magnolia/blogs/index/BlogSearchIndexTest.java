@@ -0,0 +1,109 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test(s) for {@link BlogSearchIndex}.
+ */
+public class BlogSearchIndexTest {
+
+    @Test
+    public void testTitleOutweighsMessage() throws Exception {
+        BlogSearchIndex searchIndex = new BlogSearchIndex(null);
+        index(searchIndex, "a", "/blogs/a", "Other title", "Magnolia in the message");
+        index(searchIndex, "b", "/blogs/b", "Magnolia templating", "Message");
+        index(searchIndex, "c", "/blogs/c", "Cooking", "Recipes");
+
+        SearchHits hits = searchIndex.search("/", "magnolia", 0, 10);
+
+        Assert.assertEquals(Arrays.asList("b", "a"), hits.getIdentifiers());
+        Assert.assertEquals(2, hits.getTotal());
+    }
+
+    @Test
+    public void testPagesAndFiltersByPath() throws Exception {
+        BlogSearchIndex searchIndex = new BlogSearchIndex(null);
+        index(searchIndex, "a", "/blogs/a", "Java", "Java java java");
+        index(searchIndex, "b", "/blogs/b", "Java", "Java");
+        index(searchIndex, "c", "/news/c", "Java", "Java");
+
+        SearchHits hits = searchIndex.search("/blogs", "java", 1, 1);
+
+        Assert.assertEquals(Collections.singletonList("b"), hits.getIdentifiers());
+        Assert.assertEquals(2, hits.getTotal());
+    }
+
+    @Test
+    public void testPathFilterIsAppliedBeforePaging() throws Exception {
+        BlogSearchIndex searchIndex = new BlogSearchIndex(null);
+        index(searchIndex, "a", "/blogs/a", "Java", "Java java java");
+        index(searchIndex, "b", "/blogs/b", "Java", "Java java");
+        index(searchIndex, "c", "/blogs/c", "Java", "Java");
+
+        SearchHits hits = searchIndex.search("/", "java", path -> !"/blogs/a".equals(path), 0, 1);
+
+        Assert.assertEquals(Collections.singletonList("b"), hits.getIdentifiers());
+        Assert.assertEquals(2, hits.getTotal());
+    }
+
+    @Test
+    public void testRemovedBlogIsNotFound() throws Exception {
+        BlogSearchIndex searchIndex = new BlogSearchIndex(null);
+        BlogIndexEntry entry = index(searchIndex, "a", "/blogs/a", "Java", null);
+
+        searchIndex.removed(entry);
+
+        Assert.assertEquals(0, searchIndex.search("/", "java", 0, 10).getTotal());
+    }
+
+    private static BlogIndexEntry index(BlogSearchIndex searchIndex, String identifier, String path, String title, String message) throws Exception {
+        Node blog = mock(Node.class);
+        doReturn(identifier).when(blog).getIdentifier();
+        doReturn(identifier).when(blog).getName();
+        doReturn(path).when(blog).getPath();
+        mockProperty(blog, BlogsNodeTypes.Blog.PROPERTY_TITLE, title);
+        mockProperty(blog, BlogsNodeTypes.Blog.PROPERTY_MESSAGE, message);
+
+        BlogIndexEntry entry = BlogIndexEntry.create(blog);
+        searchIndex.indexed(blog, entry);
+        return entry;
+    }
+
+    private static void mockProperty(Node node, String name, String value) throws Exception {
+        if (value == null) {
+            return;
+        }
+        Property property = mock(Property.class);
+        doReturn(value).when(property).getString();
+        doReturn(true).when(node).hasProperty(name);
+        doReturn(property).when(node).getProperty(name);
+    }
+}
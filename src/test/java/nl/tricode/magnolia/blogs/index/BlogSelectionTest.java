@@ -0,0 +1,133 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit test(s) for {@link BlogSelection}.
+ */
+public class BlogSelectionTest {
+
+    private static final List<BlogIndexEntry> ENTRIES = Arrays.asList(
+            entry("e5", "/2016/e5", 5000L, "x", "c1"),
+            entry("e4", "/2015/e4", 4000L, "y", "c2"),
+            entry("e3", "/2016/e3", 3000L, "x", "c2"),
+            entry("e2", "/2015/e2", 2000L, "y", "c1"),
+            entry("e1", "/2016/e1", 1000L, "x"));
+
+    @Test
+    public void testSeekAfterAnchor() {
+        BlogSelection selection = select();
+
+        Assert.assertEquals(Arrays.asList("e5", "e4", "e3"), identifiers(selection.seek("/", null, false, 2)));
+        Assert.assertEquals(Arrays.asList("e3", "e2", "e1"), identifiers(selection.seek("/", ENTRIES.get(1), false, 2)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(selection.seek("/", ENTRIES.get(4), false, 2)));
+    }
+
+    @Test
+    public void testSeekBeforeAnchor() {
+        BlogSelection selection = select();
+
+        Assert.assertEquals(Arrays.asList("e5", "e4", "e3"), identifiers(selection.seek("/", ENTRIES.get(3), true, 2)));
+        Assert.assertEquals(Collections.singletonList("e5"), identifiers(selection.seek("/", ENTRIES.get(1), true, 2)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(selection.seek("/", ENTRIES.get(0), true, 2)));
+    }
+
+    @Test
+    public void testSeekAnchorNoLongerIndexed() {
+        BlogIndexEntry removed = BlogIndexEntry.probe(3500L, "gone");
+
+        Assert.assertEquals(Arrays.asList("e3", "e2"), identifiers(select().seek("/", removed, false, 1)));
+        Assert.assertEquals(Arrays.asList("e5", "e4"), identifiers(select().seek("/", removed, true, 1)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(select().seek("/", BlogIndexEntry.probe(500L, "gone"), false, 1)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(select().seek("/", BlogIndexEntry.probe(6000L, "gone"), true, 1)));
+    }
+
+    @Test
+    public void testSeekBelowPathWithCriteria() {
+        BlogSelection selection = select().withAuthor("x");
+
+        Assert.assertEquals(Arrays.asList("e3", "e1"), identifiers(selection.seek("/2016", ENTRIES.get(0), false, 2)));
+        Assert.assertEquals(Collections.singletonList("e5"), identifiers(selection.seek("/2016", ENTRIES.get(2), true, 2)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(selection.seek("/2015", null, false, 2)));
+    }
+
+    @Test
+    public void testEmptyBitmaps() {
+        BlogSelection selection = new BlogSelection(BlogBitmaps.EMPTY);
+
+        Assert.assertEquals(0, selection.count("/"));
+        Assert.assertEquals(0, selection.count("/2015"));
+        Assert.assertEquals(Collections.emptyList(), selection.get("/", 0, 10));
+        Assert.assertEquals(Collections.emptyList(), selection.seek("/", null, false, 10));
+        Assert.assertEquals(Collections.emptyList(), selection.seek("/", BlogIndexEntry.probe(1000L, "e1"), true, 10));
+        Assert.assertEquals(0, new BlogSelection(BlogBitmaps.EMPTY).withAuthor("x").count("/"));
+        Assert.assertEquals(0, new BlogSelection(BlogBitmaps.EMPTY).withAnyCategory(Collections.singleton("c1")).count("/"));
+    }
+
+    @Test
+    public void testCountMatchesGetForRootAndPath() {
+        for (String path : Arrays.asList("/", "/2015", "/2016", "/2017")) {
+            Assert.assertEquals(path, select().get(path, 0, 10).size(), select().count(path));
+            Assert.assertEquals(path, select().withAuthor("x").get(path, 0, 10).size(), select().withAuthor("x").count(path));
+            Assert.assertEquals(path, select().withAnyCategory(Collections.singleton("c2")).get(path, 0, 10).size(),
+                    select().withAnyCategory(Collections.singleton("c2")).count(path));
+            Assert.assertEquals(path, select().withFilter(entry -> entry.getCreated() > 1500L).get(path, 0, 10).size(),
+                    select().withFilter(entry -> entry.getCreated() > 1500L).count(path));
+        }
+        Assert.assertEquals(5, select().count("/"));
+        Assert.assertEquals(3, select().count("/2016"));
+        Assert.assertEquals(3, select().withAuthor("x").count("/2016"));
+        Assert.assertEquals(0, select().withAuthor("x").count("/2015"));
+        Assert.assertEquals(0, select().withAuthor("unknown").count("/"));
+        Assert.assertEquals(4, select().withAnyCategory(Arrays.asList("c1", "unknown", "c2")).count("/"));
+        Assert.assertEquals(0, select().withAnyCategory(Collections.<String>emptyList()).count("/"));
+    }
+
+    @Test
+    public void testGetPagesInSelectionOrder() {
+        Assert.assertEquals(Arrays.asList("e3", "e1"), identifiers(select().get("/2016", 1, 10)));
+        Assert.assertEquals(Collections.singletonList("e4"), identifiers(select().withAuthor("y").get("/", 0, 1)));
+        Assert.assertEquals(Collections.emptyList(), identifiers(select().get("/", 5, 10)));
+    }
+
+    private static BlogSelection select() {
+        return new BlogSelection(new BlogBitmaps(ENTRIES, BlogIndexEntry.BY_CREATED_DESC));
+    }
+
+    private static BlogIndexEntry entry(String identifier, String path, long created, String authorId, String... categoryIds) {
+        return new BlogIndexEntry(identifier, identifier, identifier, path, created, BlogIndexEntry.NO_DATE,
+                BlogIndexEntry.NO_DATE, authorId, new HashSet<>(Arrays.asList(categoryIds)));
+    }
+
+    private static List<String> identifiers(List<BlogIndexEntry> entries) {
+        String[] identifiers = new String[entries.size()];
+        for (int i = 0; i < identifiers.length; i++) {
+            identifiers[i] = entries.get(i).getIdentifier();
+        }
+        return Arrays.asList(identifiers);
+    }
+}
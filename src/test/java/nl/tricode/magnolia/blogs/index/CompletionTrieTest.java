@@ -0,0 +1,58 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test(s) for {@link CompletionTrie}.
+ */
+public class CompletionTrieTest {
+
+    @Test
+    public void testCompletesAnyWordIgnoringCaseAndAccents() {
+        CompletionTrie trie = CompletionTrie.build(Arrays.asList(
+                new Suggestion(Suggestion.TYPE_BLOG, "1", "Getting started with Magnolia", 0.5),
+                new Suggestion(Suggestion.TYPE_CATEGORY, "2", "Caf\u00e9 culture", 0.8),
+                new Suggestion(Suggestion.TYPE_AUTHOR, "3", "Magda Jansen", 0.9)), 10);
+
+        Assert.assertEquals("[author:Magda Jansen, blog:Getting started with Magnolia]", trie.complete("MAG").toString());
+        Assert.assertEquals("[blog:Getting started with Magnolia]", trie.complete("started w").toString());
+        Assert.assertEquals("[category:Caf\u00e9 culture]", trie.complete("cafe").toString());
+        Assert.assertTrue(trie.complete("xyz").isEmpty());
+        Assert.assertTrue(trie.complete(" ").isEmpty());
+    }
+
+    @Test
+    public void testKeepsBestSuggestionsOnly() {
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            suggestions.add(new Suggestion(Suggestion.TYPE_BLOG, String.valueOf(i), "Blog " + i, i));
+        }
+        CompletionTrie trie = CompletionTrie.build(suggestions, 3);
+
+        Assert.assertEquals("[blog:Blog 19, blog:Blog 18, blog:Blog 17]", trie.complete("blog").toString());
+        Assert.assertEquals("[blog:Blog 5]", trie.complete("blog 5 ").toString());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Unit test(s) for {@link RelatedBlogs}.
+ */
+public class RelatedBlogsTest {
+
+    @Test
+    public void testOrdersByCategoryAndTermOverlap() {
+        RelatedBlogs related = new RelatedBlogs();
+        related.clear();
+        related.put("a", set("java", "cms"), set("magnolia", "blog"));
+        related.put("b", set("java", "cms"), set("other"));
+        related.put("c", set("java"), set("magnolia", "blog"));
+        related.put("d", set("cooking"), set("recipe"));
+        related.update();
+
+        Assert.assertEquals(Arrays.asList("b", "c"), related.get("a"));
+        Assert.assertEquals(Collections.emptyList(), related.get("d"));
+        Assert.assertEquals(Collections.emptyList(), related.get("unknown"));
+    }
+
+    @Test
+    public void testUpdatesOnlyAffectedBlogs() {
+        RelatedBlogs related = new RelatedBlogs();
+        related.clear();
+        related.put("a", set("java"), set("magnolia"));
+        related.put("b", set("java"), set("magnolia"));
+        related.put("c", set("cooking"), set("recipe"));
+        related.update();
+        Assert.assertEquals(Collections.singletonList("b"), related.get("a"));
+
+        related.put("c", set("java"), set("magnolia"));
+        related.update();
+        Assert.assertEquals(Arrays.asList("b", "c"), related.get("a"));
+        Assert.assertEquals(Arrays.asList("a", "b"), related.get("c"));
+
+        related.remove("b");
+        related.update();
+        Assert.assertEquals(Collections.singletonList("c"), related.get("a"));
+        Assert.assertEquals(Collections.emptyList(), related.get("b"));
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test(s) for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(value <= LatencyHistogram.highestValueOf(index));
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+        }
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros);
+        }
+
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(5000, histogram.getMean());
+        Assert.assertEquals(10000, histogram.getMax());
+        assertWithinPrecision(5000, histogram.getPercentile(50));
+        assertWithinPrecision(9900, histogram.getPercentile(99));
+        Assert.assertEquals(10000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testEmptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getPercentile(99));
+        Assert.assertEquals(0, histogram.getMean());
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentile(50));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
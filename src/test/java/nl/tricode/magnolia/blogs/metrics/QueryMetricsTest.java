@@ -0,0 +1,65 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test(s) for {@link QueryMetrics}.
+ */
+public class QueryMetricsTest {
+
+    @Test
+    public void testNormalizeReplacesLiterals() {
+        Assert.assertEquals("SELECT p.* FROM [mgnl:blog] AS p WHERE p.title = '?' AND p.count > ? AND p.author = $author",
+                QueryMetrics.normalize("SELECT p.* FROM [mgnl:blog] AS p\n  WHERE p.title = 'It''s 2017' AND p.count > 12 AND p.author = $author"));
+        Assert.assertEquals("SELECT p.* FROM [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p,'?')",
+                QueryMetrics.normalize("SELECT p.* FROM [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p,'/blog2')"));
+    }
+
+    @Test
+    public void testRecordPerShape() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setSlowQueryThresholdMillis(100);
+
+        metrics.record("collaboration", "SELECT * FROM [mgnl:blog] WHERE name = 'a'", TimeUnit.MILLISECONDS.toNanos(2), 10, 5);
+        metrics.record("collaboration", "SELECT * FROM [mgnl:blog] WHERE name = 'b'", TimeUnit.MILLISECONDS.toNanos(200), 30, 5);
+        metrics.record("category", "SELECT * FROM [mgnl:category]", TimeUnit.MILLISECONDS.toNanos(1), 3, 3);
+
+        List<QueryStatistics> queries = metrics.getQueries();
+        Assert.assertEquals(2, queries.size());
+        Assert.assertEquals(3, metrics.getExecutionCount());
+        Assert.assertEquals(1, metrics.getSlowCount());
+
+        QueryStatistics blogs = queries.get(0);
+        Assert.assertEquals("collaboration", blogs.getWorkspace());
+        Assert.assertEquals("SELECT * FROM [mgnl:blog] WHERE name = '?'", blogs.getQuery());
+        Assert.assertEquals(2, blogs.getCount());
+        Assert.assertEquals(40, blogs.getRowsReturned());
+        Assert.assertEquals(10, blogs.getRowsUsed());
+        Assert.assertEquals(200000, blogs.getMaxMicros());
+
+        metrics.reset();
+        Assert.assertTrue(metrics.getQueries().isEmpty());
+    }
+}
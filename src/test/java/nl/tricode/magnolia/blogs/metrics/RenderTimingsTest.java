@@ -0,0 +1,94 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test(s) for {@link RenderTimings} and {@link RenderMetrics}.
+ */
+public class RenderTimingsTest {
+
+    @Test
+    public void testServerTimingSumsRepeatedSections() {
+        RenderTimings timings = new RenderTimings();
+        timings.add("model", TimeUnit.MICROSECONDS.toNanos(400));
+        timings.add("categories", TimeUnit.MICROSECONDS.toNanos(1200));
+        timings.add("categories", TimeUnit.MICROSECONDS.toNanos(800));
+
+        Assert.assertEquals(Arrays.asList("model", "categories"), new ArrayList<>(timings.getNames()));
+        Assert.assertEquals(2, timings.getCalls("categories"));
+        Assert.assertEquals("model;dur=0.4, categories;dur=2.0;desc=\"2 calls\"", timings.toServerTiming());
+        Assert.assertEquals("", new RenderTimings().toServerTiming());
+    }
+
+    @Test
+    public void testNestedSectionsAreLeftOutOfTheirParent() throws InterruptedException {
+        RenderTimings timings = new RenderTimings();
+        try (RenderTimings.Split ignored = timings.open("render")) {
+            try (RenderTimings.Split nested = timings.open("blogs")) {
+                Thread.sleep(20);
+            }
+            try (RenderTimings.Split nested = timings.open("count")) {
+                Thread.sleep(10);
+            }
+        }
+
+        Assert.assertEquals(Arrays.asList("blogs", "count", "render"), new ArrayList<>(timings.getNames()));
+        Assert.assertTrue(timings.getNanos("blogs") >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertTrue(timings.getNanos("count") >= TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertTrue(timings.getNanos("render") < TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testMetricsAggregatePerSection() {
+        RenderMetrics metrics = new RenderMetrics();
+        for (int request = 1; request <= 3; request++) {
+            RenderTimings timings = new RenderTimings();
+            timings.add("blogs", TimeUnit.MILLISECONDS.toNanos(request));
+            timings.add("author", TimeUnit.MILLISECONDS.toNanos(1));
+            timings.add("author", TimeUnit.MILLISECONDS.toNanos(1));
+            metrics.record(timings);
+        }
+
+        List<RenderStatistics> sections = metrics.getSections();
+        Assert.assertEquals(3, metrics.getRequestCount());
+        Assert.assertEquals(2, sections.size());
+
+        RenderStatistics author = sections.get(0);
+        Assert.assertEquals("author", author.getName());
+        Assert.assertEquals(3, author.getCount());
+        Assert.assertEquals(6, author.getCalls());
+        Assert.assertEquals(2000, author.getMeanMicros());
+
+        RenderStatistics blogs = sections.get(1);
+        Assert.assertEquals(3000, blogs.getMaxMicros());
+        Assert.assertEquals(2000, blogs.getMeanMicros());
+
+        metrics.reset();
+        Assert.assertTrue(metrics.getSections().isEmpty());
+        Assert.assertEquals(0, metrics.getRequestCount());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Unit test(s) for {@link BlogFilter}.
+ */
+public class BlogFilterTest {
+
+    @Test
+    public void testIgnoresUnknownEmptyAndInvalidParameters() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("foo", "bar");
+        parameters.put(BlogFilter.AUTHOR, " ");
+        parameters.put(BlogFilter.YEAR, "20x1");
+        parameters.put(BlogFilter.PAGE, "-2");
+        parameters.put(BlogFilter.CATEGORY, " news ");
+
+        BlogFilter filter = BlogFilter.parse(parameters);
+
+        Assert.assertEquals("category=news", filter.getKey());
+        Assert.assertFalse(filter.has(BlogFilter.AUTHOR));
+        Assert.assertNull(filter.getYear());
+        Assert.assertEquals(1, filter.getPage());
+    }
+
+    @Test
+    public void testNormalizesNumericParameters() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(BlogFilter.YEAR, "02011");
+        parameters.put(BlogFilter.MONTH, "012");
+        parameters.put(BlogFilter.PAGE, "1");
+        parameters.put(BlogFilter.SEARCH_PAGE, "+3");
+
+        BlogFilter filter = BlogFilter.parse(parameters);
+
+        Assert.assertEquals(Integer.valueOf(2011), filter.getYear());
+        Assert.assertEquals(Integer.valueOf(12), filter.getMonth());
+        Assert.assertFalse(filter.has(BlogFilter.PAGE));
+        Assert.assertEquals(3, filter.getSearchPage());
+    }
+
+    @Test
+    public void testIgnoresMonthOutOfRange() {
+        for (String month : new String[]{"0", "13", "-1", "2147483648"}) {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put(BlogFilter.YEAR, "2011");
+            parameters.put(BlogFilter.MONTH, month);
+
+            BlogFilter filter = BlogFilter.parse(parameters);
+
+            Assert.assertNull(month, filter.getMonth());
+            Assert.assertEquals("year=2011", filter.getKey());
+        }
+    }
+
+    @Test
+    public void testIgnoresYearOutOfRange() {
+        for (String year : new String[]{"0", "-5", "10000"}) {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put(BlogFilter.YEAR, year);
+            parameters.put(BlogFilter.MONTH, "4");
+
+            BlogFilter filter = BlogFilter.parse(parameters);
+
+            Assert.assertNull(year, filter.getYear());
+            Assert.assertEquals("month=4", filter.getKey());
+        }
+        Assert.assertEquals(Integer.valueOf(1), BlogFilter.parse(singleton(BlogFilter.YEAR, "1")).getYear());
+        Assert.assertEquals(Integer.valueOf(9999), BlogFilter.parse(singleton(BlogFilter.YEAR, "9999")).getYear());
+    }
+
+    @Test
+    public void testKeyIsCanonical() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put(BlogFilter.MONTH, "4");
+        first.put(BlogFilter.YEAR, "2015");
+        first.put(BlogFilter.SEARCH_TERM, "a&b=c");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put(BlogFilter.SEARCH_TERM, "a&b=c");
+        second.put(BlogFilter.YEAR, "2015");
+        second.put(BlogFilter.MONTH, "04");
+        second.put(BlogFilter.PAGE, "1");
+
+        Assert.assertEquals(BlogFilter.parse(first), BlogFilter.parse(second));
+        Assert.assertEquals("month=4&s=a%26b=c&year=2015", BlogFilter.parse(first).getKey());
+    }
+
+    private static Map<String, String> singleton(String parameter, String value) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(parameter, value);
+        return parameters;
+    }
+}
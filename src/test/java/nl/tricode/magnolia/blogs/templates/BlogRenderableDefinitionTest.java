@@ -28,6 +28,7 @@ import info.magnolia.rendering.model.RenderingModel;
 import info.magnolia.rendering.template.RenderableDefinition;
 import info.magnolia.rendering.template.type.TemplateTypeHelper;
 import info.magnolia.templating.functions.TemplatingFunctions;
+import nl.tricode.magnolia.blogs.util.PreparedQueries;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
 import org.junit.Assert;
@@ -36,6 +37,8 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import javax.inject.Provider;
 import javax.jcr.Node;
@@ -45,20 +48,26 @@ import javax.jcr.Workspace;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 public class BlogRenderableDefinitionTest {
 
     private static final String WORKSPACE = "collaboration";
+    private static final String DATE_CREATED_PREDICATE = "AND p.[mgnl:created] >= $from AND p.[mgnl:created] <= $to ";
 
     private BlogRenderableDefinition<RenderableDefinition> definition;
 
@@ -131,10 +140,12 @@ public class BlogRenderableDefinitionTest {
 
         String expectedQuery = "SELECT p.* FROM [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p, '/') ORDER BY p.[mgnl:created] desc";
 
-        executeMockQuery(WORKSPACE, expectedQuery, nodes);
+        Query query = executeMockQuery(WORKSPACE, expectedQuery, nodes);
 
         List<ContentMap> blogs = definition.getBlogs("/", "5");
         Assert.assertEquals(5, blogs.size());
+        Mockito.verify(query).setOffset(5L);
+        Mockito.verify(query).setLimit(5L);
     }
 
     @Test
@@ -146,10 +157,12 @@ public class BlogRenderableDefinitionTest {
 
         String expectedQuery = "SELECT p.* FROM [mgnl:blog] AS p WHERE ISDESCENDANTNODE(p, '/') ORDER BY p.[mgnl:created] desc";
 
-        executeMockQuery(WORKSPACE, expectedQuery, nodes);
+        Query query = executeMockQuery(WORKSPACE, expectedQuery, nodes);
 
         List<ContentMap> blogs = definition.getBlogs("/", "5");
         Assert.assertEquals(0, blogs.size());
+        Mockito.verify(query).setOffset(5L);
+        Mockito.verify(query).setLimit(5L);
     }
 
     @Test
@@ -185,7 +198,8 @@ public class BlogRenderableDefinitionTest {
         doReturn(id).when(contentMap).get("@id");
 
         String predicate = definition.constructAuthorPredicate();
-        Assert.assertEquals("AND p.author = 'louisvutton' ", predicate);
+        Assert.assertEquals("AND p.author = $author ", predicate);
+        Assert.assertEquals(id, definition.getFilterBindings().get(PreparedQueries.AUTHOR));
     }
 
     @Test
@@ -202,8 +216,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2011-01-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2011-12-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-01-01T00:00:00.000Z", "2011-12-31T23:59:59.999Z");
     }
 
     @Test
@@ -213,8 +227,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2011-01-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2011-12-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-01-01T00:00:00.000Z", "2011-12-31T23:59:59.999Z");
     }
 
     @Test
@@ -224,8 +238,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2010-12-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2010-12-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-01-01T00:00:00.000Z", "2011-12-31T23:59:59.999Z");
     }
 
     @Test
@@ -235,8 +249,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2011-01-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2011-01-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-01-01T00:00:00.000Z", "2011-01-31T23:59:59.999Z");
     }
 
     @Test
@@ -246,8 +260,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2011-02-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2011-02-28T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-02-01T00:00:00.000Z", "2011-02-28T23:59:59.999Z");
     }
 
     @Test
@@ -257,8 +271,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2011-12-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2011-12-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-12-01T00:00:00.000Z", "2011-12-31T23:59:59.999Z");
     }
 
     @Test
@@ -268,8 +282,8 @@ public class BlogRenderableDefinitionTest {
         createInstance();
 
         String predicate = definition.constructDateCreatedPredicate();
-        Assert.assertEquals("AND p.[mgnl:created] >= CAST('2012-01-01T00:00:00.000Z' AS DATE) " +
-                "AND p.[mgnl:created] <= CAST('2012-01-31T23:59:59.999Z' AS DATE) ", predicate);
+        Assert.assertEquals(DATE_CREATED_PREDICATE, predicate);
+        assertDateCreatedRange("2011-01-01T00:00:00.000Z", "2011-12-31T23:59:59.999Z");
     }
 
     @Test
@@ -281,7 +295,7 @@ public class BlogRenderableDefinitionTest {
         Assert.assertEquals("December", december);
     }
 
-    private void executeMockQuery(String workspace, String expectedQuery, List<Node> results) throws Exception {
+    private Query executeMockQuery(String workspace, String expectedQuery, final List<Node> results) throws Exception {
         Session mockSession = mock(Session.class);
         Workspace mockWorkspace = mock(Workspace.class);
         QueryManager mockQueryManager = mock(QueryManager.class);
@@ -293,8 +307,41 @@ public class BlogRenderableDefinitionTest {
         doReturn(mockQueryManager).when(mockWorkspace).getQueryManager();
 
         doReturn(mockQuery).when(mockQueryManager).createQuery(expectedQuery, Query.JCR_SQL2);
+        doReturn(new String[0]).when(mockQuery).getBindVariableNames();
         doReturn(mockQueryResult).when(mockQuery).execute();
-        doReturn(new NodeIteratorAdapter(results)).when(mockQueryResult).getNodes();
+        // Honor the paging of the query like the repository does
+        final long[] offsetAndLimit = {0L, Long.MAX_VALUE};
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                offsetAndLimit[0] = (Long) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(mockQuery).setOffset(anyLong());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                offsetAndLimit[1] = (Long) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(mockQuery).setLimit(anyLong());
+        doAnswer(new Answer<NodeIteratorAdapter>() {
+            @Override
+            public NodeIteratorAdapter answer(InvocationOnMock invocation) {
+                final int from = (int) Math.min(results.size(), offsetAndLimit[0]);
+                final int to = from + (int) Math.min(results.size() - from, offsetAndLimit[1]);
+                return new NodeIteratorAdapter(results.subList(from, to));
+            }
+        }).when(mockQueryResult).getNodes();
+        return mockQuery;
+    }
+
+    private void assertDateCreatedRange(String expectedFrom, String expectedTo) {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        Map<String, Object> bindings = definition.getFilterBindings();
+
+        Assert.assertEquals(expectedFrom, dateFormat.format(((Calendar) bindings.get(PreparedQueries.FROM)).getTime()));
+        Assert.assertEquals(expectedTo, dateFormat.format(((Calendar) bindings.get(PreparedQueries.TO)).getTime()));
     }
 
     private void createInstance() {
@@ -0,0 +1,114 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import info.magnolia.context.MgnlContext;
+import info.magnolia.context.WebContext;
+import info.magnolia.jcr.util.ContentMap;
+import info.magnolia.templating.functions.TemplatingFunctions;
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test(s) for {@link CategoryResolver}.
+ */
+public class CategoryResolverTest {
+
+    private Session mockSession;
+    private TemplatingFunctions mockTemplatingFunctions;
+
+    @Before
+    public void setUp() throws Exception {
+        WebContext mockWebContext = mock(WebContext.class);
+        mockSession = mock(Session.class);
+        mockTemplatingFunctions = mock(TemplatingFunctions.class);
+
+        MgnlContext.setInstance(mockWebContext);
+        doReturn(mockSession).when(mockWebContext).getJCRSession("category");
+    }
+
+    @Test
+    public void testResolvesEveryCategoryOnce() throws Exception {
+        ContentMap categoryA = createCategory("a");
+        ContentMap categoryB = createCategory("b");
+        Node blog1 = createBlogNode("a", "b");
+        Node blog2 = createBlogNode("b");
+
+        CategoryResolver resolver = new CategoryResolver(mockTemplatingFunctions);
+        resolver.addAll(Arrays.asList(blog1, blog2));
+
+        Assert.assertEquals(Arrays.asList(categoryA, categoryB), resolver.getCategories(blog1));
+        Assert.assertSame(categoryB, resolver.getCategories(blog2).get(0));
+        verify(mockSession, times(1)).getNodeByIdentifier("a");
+        verify(mockSession, times(1)).getNodeByIdentifier("b");
+    }
+
+    @Test
+    public void testSkipsNonExistingCategories() throws Exception {
+        doThrow(new ItemNotFoundException()).when(mockSession).getNodeByIdentifier("removed");
+        ContentMap category = createCategory("a");
+        Node blog = createBlogNode("removed", "a");
+
+        CategoryResolver resolver = new CategoryResolver(mockTemplatingFunctions);
+        List<ContentMap> categories = resolver.getCategories(blog);
+        resolver.getCategories(blog);
+
+        Assert.assertEquals(Arrays.asList(category), categories);
+        verify(mockSession, times(1)).getNodeByIdentifier("removed");
+    }
+
+    private ContentMap createCategory(String identifier) throws Exception {
+        Node mockCategory = mock(Node.class);
+        ContentMap mockContentMap = mock(ContentMap.class);
+        doReturn(mockCategory).when(mockSession).getNodeByIdentifier(identifier);
+        doReturn(mockContentMap).when(mockTemplatingFunctions).asContentMap(mockCategory);
+        return mockContentMap;
+    }
+
+    private static Node createBlogNode(String... categoryIds) throws Exception {
+        Node mockNode = mock(Node.class);
+        Property mockProperty = mock(Property.class);
+        Value[] values = new Value[categoryIds.length];
+        for (int i = 0; i < categoryIds.length; i++) {
+            values[i] = mock(Value.class);
+            doReturn(categoryIds[i]).when(values[i]).getString();
+        }
+        doReturn(true).when(mockNode).hasProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+        doReturn(mockProperty).when(mockNode).getProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+        doReturn(true).when(mockProperty).isMultiple();
+        doReturn(values).when(mockProperty).getValues();
+        return mockNode;
+    }
+}
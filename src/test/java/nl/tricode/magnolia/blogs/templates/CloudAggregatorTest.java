@@ -0,0 +1,107 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.templates;
+
+import nl.tricode.magnolia.blogs.BlogsNodeTypes;
+import org.apache.jackrabbit.commons.iterator.PropertyIteratorAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Value;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test(s) for {@link CloudAggregator}.
+ */
+public class CloudAggregatorTest {
+
+    @Test
+    public void testCountsEveryBlogOnce() throws Exception {
+        CloudAggregator aggregator = new CloudAggregator(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+
+        aggregator.add(createBlogNode("a", "b"));
+        aggregator.add(createBlogNode("a", "a"));
+        aggregator.add(createBlogNode());
+
+        Assert.assertEquals(3, aggregator.getTotal());
+        Assert.assertEquals(2, aggregator.getCount("a"));
+        Assert.assertEquals(1, aggregator.getCount("b"));
+        Assert.assertEquals(0, aggregator.getCount("c"));
+    }
+
+    @Test
+    public void testCreateCloudExcludesNonExisting() throws Exception {
+        CloudAggregator aggregator = new CloudAggregator(BlogsNodeTypes.Blog.PROPERTY_AUTHOR);
+        aggregator.add(Collections.singletonList("a"));
+        aggregator.add(Collections.singletonList("a"));
+
+        List<CloudMap> cloud = aggregator.createCloud(Arrays.asList(createEntryNode("a"), createEntryNode("b")), true);
+
+        Assert.assertEquals(1, cloud.size());
+        Assert.assertEquals("a", cloud.get(0).get("id"));
+        Assert.assertEquals(2, cloud.get(0).get("count"));
+        Assert.assertEquals(9, cloud.get(0).get("scale"));
+    }
+
+    @Test
+    public void testCreateCloudKeepsNonExisting() throws Exception {
+        CloudAggregator aggregator = new CloudAggregator(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+        aggregator.add(Collections.singletonList("a"));
+        aggregator.add(Collections.<String>emptyList());
+
+        List<CloudMap> cloud = aggregator.createCloud(Arrays.asList(createEntryNode("a"), createEntryNode("b")), false);
+
+        Assert.assertEquals(2, cloud.size());
+        Assert.assertEquals(5, cloud.get(0).get("scale"));
+        Assert.assertEquals(0, cloud.get(1).get("count"));
+    }
+
+    private static Node createBlogNode(String... categoryIds) throws Exception {
+        Node mockNode = mock(Node.class);
+        if (categoryIds.length > 0) {
+            Property mockProperty = mock(Property.class);
+            Value[] values = new Value[categoryIds.length];
+            for (int i = 0; i < categoryIds.length; i++) {
+                values[i] = mock(Value.class);
+                doReturn(categoryIds[i]).when(values[i]).getString();
+            }
+            doReturn(true).when(mockNode).hasProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+            doReturn(mockProperty).when(mockNode).getProperty(BlogsNodeTypes.Blog.PROPERTY_CATEGORIES);
+            doReturn(true).when(mockProperty).isMultiple();
+            doReturn(values).when(mockProperty).getValues();
+        }
+        return mockNode;
+    }
+
+    private static Node createEntryNode(String identifier) throws Exception {
+        Node mockNode = mock(Node.class);
+        doReturn(identifier).when(mockNode).getIdentifier();
+        doReturn(identifier).when(mockNode).getName();
+        doReturn("/" + identifier).when(mockNode).getPath();
+        doReturn(new PropertyIteratorAdapter(Collections.<Property>emptyList())).when(mockNode).getProperties();
+        return mockNode;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *      Tricode Blog module
+ *      Is a Blog module for Magnolia CMS.
+ *      Copyright (C) 2015  Tricode Business Integrators B.V.
+ *
+ * 	  This program is free software: you can redistribute it and/or modify
+ *		  it under the terms of the GNU General Public License as published by
+ *		  the Free Software Foundation, either version 3 of the License, or
+ *		  (at your option) any later version.
+ *
+ *		  This program is distributed in the hope that it will be useful,
+ *		  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *		  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *		  GNU General Public License for more details.
+ *
+ *		  You should have received a copy of the GNU General Public License
+ *		  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package nl.tricode.magnolia.blogs.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit test(s) for {@link CursorPage}.
+ */
+public class CursorPageTest {
+
+    @Test
+    public void testFirstPageHasOlderCursorOnly() throws Exception {
+        CursorPage<String> page = CursorPage.create(Arrays.asList("1.a", "1.b", "1.c"), null, 2, item -> item);
+
+        Assert.assertEquals(Arrays.asList("1.a", "1.b"), page.getItems());
+        Assert.assertEquals("1.b", page.getOlderCursor());
+        Assert.assertNull(page.getNewerCursor());
+    }
+
+    @Test
+    public void testPageAfterCursor() throws Exception {
+        CursorPage<String> page = CursorPage.create(Arrays.asList("1.c", "1.d"), BlogCursor.after("1.b"), 2, item -> item);
+
+        Assert.assertEquals(Arrays.asList("1.c", "1.d"), page.getItems());
+        Assert.assertNull(page.getOlderCursor());
+        Assert.assertEquals("1.c", page.getNewerCursor());
+    }
+
+    @Test
+    public void testPageBeforeCursorDropsLookAheadAtStart() throws Exception {
+        CursorPage<String> page = CursorPage.create(Arrays.asList("1.a", "1.b", "1.c"), BlogCursor.before("1.d"), 2, item -> item);
+
+        Assert.assertEquals(Arrays.asList("1.b", "1.c"), page.getItems());
+        Assert.assertEquals("1.c", page.getOlderCursor());
+        Assert.assertEquals("1.b", page.getNewerCursor());
+    }
+
+    @Test
+    public void testEmptyPageHasNoCursors() throws Exception {
+        CursorPage<String> page = CursorPage.create(Collections.<String>emptyList(), BlogCursor.after("1.a"), 2, item -> item);
+
+        Assert.assertTrue(page.getItems().isEmpty());
+        Assert.assertNull(page.getOlderCursor());
+        Assert.assertNull(page.getNewerCursor());
+    }
+
+    @Test
+    public void testInvalidCursorIsIgnored() {
+        Assert.assertNull(BlogCursor.after("abc"));
+        Assert.assertNull(BlogCursor.before("12."));
+        Assert.assertEquals("12.a-b", BlogCursor.after("12.a-b").toString());
+    }
+}